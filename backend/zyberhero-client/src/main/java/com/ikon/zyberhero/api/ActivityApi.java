@@ -3,6 +3,7 @@ package com.ikon.zyberhero.api;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import com.ikon.zyberhero.dto.request.ActivityBatchRequestDto;
 import com.ikon.zyberhero.dto.request.ActivityCreateRequestDto;
 import com.ikon.zyberhero.dto.response.ActivityResponseDto;
 
@@ -18,6 +19,10 @@ public interface ActivityApi {
     ResponseEntity<?> createActivity(@RequestHeader(value = "Authorization", required = false) String accessToken,
                                      @RequestBody ActivityCreateRequestDto request);
 
+    @PostMapping("/activity/batch")
+    ResponseEntity<?> createActivityBatch(@RequestHeader(value = "Authorization", required = false) String accessToken,
+                                          @RequestBody ActivityBatchRequestDto request);
+
     @GetMapping("/activity")
     ResponseEntity<List<ActivityResponseDto>> listActivity(@RequestHeader(value = "Authorization", required = false) String accessToken);
 
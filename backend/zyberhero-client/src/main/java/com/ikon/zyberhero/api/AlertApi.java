@@ -21,12 +21,14 @@ public interface AlertApi {
     @GetMapping("/latest")
     ResponseEntity<AlertResponseDto> latest(@RequestHeader(value = "Authorization", required = false) String accessToken,
                                             @RequestParam(value = "deviceUuid", required = false) String deviceUuid,
-                                            @RequestParam(value = "deviceId", required = false) Long deviceId);
+                                            @RequestParam(value = "deviceId", required = false) Long deviceId,
+                                            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch);
 
     @GetMapping("/list")
     ResponseEntity<List<AlertResponseDto>> list(@RequestHeader(value = "Authorization", required = false) String accessToken,
                                                 @RequestParam(value = "deviceUuid", required = false) String deviceUuid,
-                                                @RequestParam(value = "deviceId", required = false) Long deviceId);
+                                                @RequestParam(value = "deviceId", required = false) Long deviceId,
+                                                @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch);
 
     @GetMapping("/count-last-24h")
     ResponseEntity<?> countLast24h(@RequestHeader(value = "Authorization", required = false) String accessToken);
@@ -2,7 +2,10 @@ package com.ikon.zyberhero.api;
 
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 
+import com.ikon.zyberhero.dto.request.BulkCommandRequestDto;
+import com.ikon.zyberhero.dto.request.CommandAckRequestDto;
 import com.ikon.zyberhero.dto.request.CommandRequestDto;
 import com.ikon.zyberhero.dto.response.CommandResponseDto;
 
@@ -26,11 +29,29 @@ public interface CommandsApi {
     ResponseEntity<?> schedule(@RequestHeader(value = "Authorization", required = false) String accessToken,
                                @RequestBody CommandRequestDto request);
 
+    @PostMapping("/bulk")
+    ResponseEntity<?> bulk(@RequestHeader(value = "Authorization", required = false) String accessToken,
+                           @RequestBody BulkCommandRequestDto request);
+
     @GetMapping("/pending")
     ResponseEntity<List<CommandResponseDto>> pending(@RequestHeader(value = "Authorization", required = false) String accessToken,
                                                      @RequestParam(value = "deviceUuid", required = false) String deviceUuid,
                                                      @RequestParam(value = "deviceId", required = false) Long deviceId,
-                                                     @RequestParam(value = "machineName", required = false) String machineName);
+                                                     @RequestParam(value = "machineName", required = false) String machineName,
+                                                     @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch);
+
+    // Long-poll variant of /pending: send the ETag of the last answer as If-None-Match and the
+    // request waits until a new command arrives (200) or zyberhero.commands.long-poll.timeout-ms passes (304)
+    @GetMapping("/pending/wait")
+    DeferredResult<ResponseEntity<List<CommandResponseDto>>> awaitPending(@RequestHeader(value = "Authorization", required = false) String accessToken,
+                                                                          @RequestParam(value = "deviceUuid", required = false) String deviceUuid,
+                                                                          @RequestParam(value = "deviceId", required = false) Long deviceId,
+                                                                          @RequestParam(value = "machineName", required = false) String machineName,
+                                                                          @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch);
+
+    @PostMapping("/ack")
+    ResponseEntity<?> ackBatch(@RequestHeader(value = "Authorization", required = false) String accessToken,
+                               @RequestBody CommandAckRequestDto request);
 
     @PostMapping("/ack/{id}")
     ResponseEntity<?> ack(@RequestHeader(value = "Authorization", required = false) String accessToken,
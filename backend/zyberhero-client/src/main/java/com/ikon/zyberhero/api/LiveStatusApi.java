@@ -4,6 +4,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import com.ikon.zyberhero.dto.request.LiveStatusRequestDto;
+import com.ikon.zyberhero.dto.request.LiveStatusSyncRequestDto;
 import com.ikon.zyberhero.dto.response.LiveAppResponseDto;
 
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -18,10 +19,18 @@ public interface LiveStatusApi {
     ResponseEntity<?> postLiveStatus(@RequestHeader(value = "Authorization", required = false) String accessToken,
                                      @RequestBody LiveStatusRequestDto request);
 
+    @PostMapping("/live-status/sync")
+    ResponseEntity<?> syncLiveStatus(@RequestHeader(value = "Authorization", required = false) String accessToken,
+                                     @RequestBody LiveStatusSyncRequestDto request);
+
+    // lastSeen is floored to zyberhero.live-status.last-seen-granularity-seconds (default 30s),
+    // whatever zyberhero.live-status.mode is. Without staleSeconds the answer carries an ETag;
+    // send it back as If-None-Match for a 304 while nothing changed
     @GetMapping("/live-status")
     ResponseEntity<List<LiveAppResponseDto>> getLiveStatus(@RequestHeader(value = "Authorization", required = false) String accessToken,
                                                            @RequestParam(value = "deviceUuid", required = false) String deviceUuid,
                                                            @RequestParam(value = "deviceId", required = false) Long deviceId,
-                                                           @RequestParam(value = "staleSeconds", required = false) Integer staleSeconds);
+                                                           @RequestParam(value = "staleSeconds", required = false) Integer staleSeconds,
+                                                           @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch);
 
 }
@@ -3,6 +3,7 @@ package com.ikon.zyberhero.api;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import com.ikon.zyberhero.dto.request.LocationBatchRequestDto;
 import com.ikon.zyberhero.dto.request.LocationCreateRequestDto;
 import com.ikon.zyberhero.dto.response.LocationResponseDto;
 
@@ -18,10 +19,19 @@ public interface LocationApi {
     ResponseEntity<?> createLocation(@RequestHeader(value = "Authorization", required = false) String accessToken,
                                      @RequestBody LocationCreateRequestDto request);
 
+    @PostMapping("/location/batch")
+    ResponseEntity<?> createLocationBatch(@RequestHeader(value = "Authorization", required = false) String accessToken,
+                                          @RequestBody LocationBatchRequestDto request);
+
     @GetMapping("/location/latest")
     ResponseEntity<LocationResponseDto> latest(@RequestHeader(value = "Authorization", required = false) String accessToken,
                                               @RequestParam(value = "deviceUuid", required = false) String deviceUuid,
-                                              @RequestParam(value = "deviceId", required = false) Long deviceId);
+                                              @RequestParam(value = "deviceId", required = false) Long deviceId,
+                                              @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch);
+
+    @GetMapping("/location/latest/child")
+    ResponseEntity<List<LocationResponseDto>> latestForChild(@RequestHeader(value = "Authorization", required = false) String accessToken,
+                                                            @RequestParam(value = "childId", required = false) Long childId);
 
 
 
@@ -30,6 +40,10 @@ public interface LocationApi {
                                                      @RequestParam(value = "deviceUuid", required = false) String deviceUuid,
                                                      @RequestParam(value = "deviceId", required = false) Long deviceId,
                                                      @RequestParam(value = "date", required = false) String date,
-                                                     @RequestParam(value = "limit", required = false) Integer limit);
+                                                     @RequestParam(value = "limit", required = false) Integer limit,
+                                                     @RequestParam(value = "before", required = false) String before,
+                                                     @RequestParam(value = "after", required = false) String after,
+                                                     @RequestParam(value = "tolerance", required = false) Double tolerance,
+                                                     @RequestParam(value = "maxPoints", required = false) Integer maxPoints);
 
 }
\ No newline at end of file
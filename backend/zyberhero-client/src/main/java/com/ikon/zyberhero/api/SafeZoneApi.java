@@ -20,7 +20,8 @@ public interface SafeZoneApi {
 
     @GetMapping("/safezones")
     ResponseEntity<List<SafeZoneResponseDto>> listSafeZones(@RequestHeader(value = "Authorization", required = false) String accessToken,
-                                                             @RequestParam(required = false) Long childId);
+                                                             @RequestParam(required = false) Long childId,
+                                                             @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch);
 
     @GetMapping("/safezones/{id}")
     ResponseEntity<?> getSafeZone(@RequestHeader(value = "Authorization", required = false) String accessToken,
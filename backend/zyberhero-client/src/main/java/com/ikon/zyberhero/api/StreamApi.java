@@ -0,0 +1,24 @@
+package com.ikon.zyberhero.api;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+@Tag(name = "Stream APIs", description = "Server-sent events for live dashboards")
+@RequestMapping("/api")
+public interface StreamApi {
+
+    // events: live-status, alert, location, command-ack
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    ResponseEntity<SseEmitter> stream(@RequestHeader(value = "Authorization", required = false) String accessToken,
+                                      @RequestParam(value = "childId", required = false) Long childId,
+                                      @RequestParam(value = "deviceUuid", required = false) String deviceUuid,
+                                      @RequestParam(value = "deviceId", required = false) Long deviceId);
+
+}
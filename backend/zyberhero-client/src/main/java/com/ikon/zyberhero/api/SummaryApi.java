@@ -10,6 +10,7 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 
 import com.ikon.zyberhero.dto.response.ScreenTimeResponseDto;
 import com.ikon.zyberhero.dto.response.DailyComparisonResponseDto;
+import com.ikon.zyberhero.dto.response.UsageRangeResponseDto;
 
 @Tag(name = "Summary APIs", description = "Summary and screen-time endpoints")
 @RequestMapping("/api")
@@ -29,4 +30,13 @@ public interface SummaryApi {
                                                           @RequestParam(value = "deviceId", required = false) Long deviceId,
                                                           @RequestParam(value = "childId", required = false) Long childId);
 
+    @GetMapping("/summary/range")
+    ResponseEntity<UsageRangeResponseDto> usageRange(@RequestHeader(value = "Authorization", required = false) String accessToken,
+                                                     @RequestParam(value = "from") String from,
+                                                     @RequestParam(value = "to") String to,
+                                                     @RequestParam(value = "granularity", required = false, defaultValue = "day") String granularity,
+                                                     @RequestParam(value = "deviceUuid", required = false) String deviceUuid,
+                                                     @RequestParam(value = "deviceId", required = false) Long deviceId,
+                                                     @RequestParam(value = "childId", required = false) Long childId);
+
 }
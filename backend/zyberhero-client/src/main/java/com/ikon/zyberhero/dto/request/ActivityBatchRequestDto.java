@@ -0,0 +1,12 @@
+package com.ikon.zyberhero.dto.request;
+
+import java.util.List;
+
+import lombok.Data;
+
+@Data
+public class ActivityBatchRequestDto {
+    private String deviceUuid;
+    private Long deviceId;
+    private List<ActivityCreateRequestDto> activities;
+}
@@ -0,0 +1,16 @@
+package com.ikon.zyberhero.dto.request;
+
+import java.util.List;
+import lombok.Data;
+
+// Targets the union of childId's devices, deviceIds and deviceUuids, or every device with allDevices.
+@Data
+public class BulkCommandRequestDto {
+    private String action; // "kill", "relaunch" or "schedule"
+    private String appName;
+    private String schedule;
+    private Long childId;
+    private List<Long> deviceIds;
+    private List<String> deviceUuids;
+    private Boolean allDevices = false;
+}
@@ -0,0 +1,9 @@
+package com.ikon.zyberhero.dto.request;
+
+import java.util.List;
+import lombok.Data;
+
+@Data
+public class CommandAckRequestDto {
+    private List<Long> ids;
+}
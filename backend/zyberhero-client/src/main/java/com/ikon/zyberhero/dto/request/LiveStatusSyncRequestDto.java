@@ -0,0 +1,25 @@
+package com.ikon.zyberhero.dto.request;
+
+import java.util.List;
+import lombok.Data;
+
+// Incremental live status. The agent numbers its reports with seq and sends one of:
+//  - "full":  apps is the complete running set
+//  - "delta": added/changed/removed relative to baseSeq, the last seq the server acknowledged
+//  - "hash":  nothing changed since baseSeq; hash identifies the set the agent believes is current
+// hash = lowercase hex SHA-256 of the running apps sorted by appName, each written as
+// appName + "\t" + windowTitle + "\n" (UTF-8, null title as empty string).
+@Data
+public class LiveStatusSyncRequestDto {
+    private String deviceUuid;
+    private Long deviceId;
+    private String machineName;
+    private Long seq;
+    private Long baseSeq;
+    private String mode; // "full", "delta" or "hash"
+    private String hash;
+    private List<LiveStatusRequestDto.LiveAppDto> apps;
+    private List<LiveStatusRequestDto.LiveAppDto> added;
+    private List<LiveStatusRequestDto.LiveAppDto> changed;
+    private List<String> removed;
+}
@@ -0,0 +1,12 @@
+package com.ikon.zyberhero.dto.request;
+
+import java.util.List;
+
+import lombok.Data;
+
+@Data
+public class LocationBatchRequestDto {
+    private Long deviceId;
+    private String deviceMac;
+    private List<LocationCreateRequestDto> locations;
+}
@@ -0,0 +1,19 @@
+package com.ikon.zyberhero.dto.response;
+
+import java.util.List;
+
+import lombok.Data;
+
+@Data
+public class BatchResultResponseDto {
+    private Integer accepted;
+    private Integer rejected;
+    private List<ItemResultDto> results;
+
+    @Data
+    public static class ItemResultDto {
+        private Integer index;
+        private String status; // "accepted" or "rejected"
+        private String error;
+    }
+}
@@ -0,0 +1,23 @@
+package com.ikon.zyberhero.dto.response;
+
+import java.util.List;
+
+import lombok.Data;
+
+@Data
+public class BulkCommandResponseDto {
+    private String action;
+    private String appName;
+    private Integer applied;
+    private Integer rejected;
+    private List<DeviceResultDto> results;
+
+    @Data
+    public static class DeviceResultDto {
+        private Long deviceId;
+        private String deviceUuid; // set when the target was given by uuid
+        private Long commandId;
+        private String status; // "applied" or "rejected"
+        private String error;
+    }
+}
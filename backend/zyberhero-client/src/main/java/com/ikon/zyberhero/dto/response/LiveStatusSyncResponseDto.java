@@ -0,0 +1,10 @@
+package com.ikon.zyberhero.dto.response;
+
+import lombok.Data;
+
+@Data
+public class LiveStatusSyncResponseDto {
+    private String status; // "ok", "unchanged" or "resync" (send mode "full" next)
+    private Long seq;      // last seq the server applied for this device
+    private String hash;   // hash of the server's current set
+}
@@ -0,0 +1,35 @@
+package com.ikon.zyberhero.dto.response;
+
+import java.util.List;
+
+import lombok.Data;
+
+@Data
+public class UsageRangeResponseDto {
+    private String from;
+    private String to;
+    private String granularity; // "hour" or "day"
+    private List<SeriesPointDto> series;
+    private List<AppTotalDto> apps;
+    // total seconds per hour of day, index 0..23
+    private List<Long> hourOfDay;
+    private Long totalFocusedSeconds;
+    private Long totalScreenSeconds;
+
+    @Data
+    public static class SeriesPointDto {
+        private String bucket; // yyyy-MM-dd or yyyy-MM-ddTHH:00
+        private Long focusedSeconds;
+        private Long screenSeconds;
+        private Long totalSeconds;
+    }
+
+    @Data
+    public static class AppTotalDto {
+        private String app;
+        private Long focusedSeconds;
+        private Long screenSeconds;
+        private Long totalSeconds;
+        private String totalFormatted;
+    }
+}
@@ -0,0 +1,39 @@
+package com.ikon.zyberhero.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Data;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "zyberhero.ingest")
+public class IngestProperties {
+
+    // maximum number of entries accepted by a single batch request
+    private int batchMaxItems = 1000;
+
+    // rows sent per JDBC batch round trip
+    private int jdbcBatchSize = 500;
+
+    private Async async = new Async();
+
+    @Data
+    public static class Async {
+        // when enabled, agent POSTs are queued and answered with 202
+        private boolean enabled = false;
+        // per payload type; a full queue answers 429
+        private int queueCapacity = 10000;
+        private int flushSize = 500;
+        private long flushIntervalMs = 200;
+        private int writerThreads = 1;
+        // a flush failing transiently (database down, pool timeout) is retried backing off
+        // from retryBackoffMs (doubling, capped at 30s) until it succeeds; once shutting down
+        // only retryAttempts more times. Other failures split the group to isolate bad items
+        private int retryAttempts = 3;
+        private long retryBackoffMs = 200;
+        // how long shutdown waits for queued items to be written
+        private long shutdownTimeoutMs = 15000;
+    }
+
+}
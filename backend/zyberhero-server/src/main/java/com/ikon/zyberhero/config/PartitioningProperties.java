@@ -0,0 +1,28 @@
+package com.ikon.zyberhero.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Data;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "zyberhero.partitioning")
+public class PartitioningProperties {
+
+    private boolean enabled = true;
+
+    // "day" or "week"; applies to partitions created from now on
+    private String granularity = "week";
+
+    // number of future partitions kept ready ahead of the current one
+    private int premake = 4;
+
+    // partitions entirely older than this are retired; 0 keeps everything
+    private int activityRetentionDays = 0;
+    private int locationRetentionDays = 0;
+
+    // "detach" keeps retired partitions as standalone tables, "drop" removes them
+    private String retentionMode = "detach";
+
+}
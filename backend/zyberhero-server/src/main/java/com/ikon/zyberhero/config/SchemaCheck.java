@@ -0,0 +1,94 @@
+package com.ikon.zyberhero.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+// The db/migration scripts are applied by hand and ddl-auto only adds what the entities
+// declare, yet the JDBC repositories depend on objects only the scripts create. Startup
+// fails, before the schedulers and endpoints start, while any of them is missing.
+@Component
+public class SchemaCheck implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(SchemaCheck.class);
+
+    // tables whose bulk inserts leave id to the sequence-backed column default
+    private static final List<String> SEQUENCE_ID_TABLES =
+            List.of("activity_logs", "locations", "alerts", "live_app_status", "control_commands");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+
+    public SchemaCheck(JdbcTemplate jdbcTemplate, @Value("${zyberhero.schema.check:true}") boolean enabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!enabled) return;
+        List<String> missing = missing();
+        if (!missing.isEmpty()) {
+            throw new IllegalStateException("Database schema is missing " + String.join("; ", missing)
+                    + ". Apply the scripts in db/migration before starting the server.");
+        }
+        log.info("Schema check passed");
+    }
+
+    public List<String> missing() {
+        List<String> out = new ArrayList<>();
+        for (String table : SEQUENCE_ID_TABLES) {
+            if (!hasSequenceDefault(table)) out.add(table + ".id sequence default (V6)");
+        }
+        if (!hasUniqueKey("control_commands", "action", "app_name", "device_id")) {
+            out.add("unique key control_commands(device_id, app_name, action) (V12)");
+        }
+        if (!hasUniqueKey("live_app_status", "app_name", "device_id")) {
+            out.add("unique key live_app_status(device_id, app_name)");
+        }
+        if (!hasUniqueKey("daily_app_usage", "app", "device_id", "usage_date")) {
+            out.add("unique key daily_app_usage(device_id, usage_date, app) (V8)");
+        }
+        if (!hasUniqueKey("hourly_app_usage", "app", "device_id", "usage_hour")) {
+            out.add("unique key hourly_app_usage(device_id, usage_hour, app) (V10)");
+        }
+        if (!hasRelation("idx_locations_device_ts_id")) out.add("index idx_locations_device_ts_id (V13)");
+        if (!hasColumn("control_commands", "server_evaluated")) out.add("control_commands.server_evaluated (V14)");
+        if (!hasRelation("location_compaction_marks")) out.add("table location_compaction_marks (V15)");
+        return out;
+    }
+
+    private boolean hasSequenceDefault(String table) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM information_schema.columns WHERE table_schema = current_schema() "
+                        + "AND table_name = ? AND column_name = 'id' AND column_default LIKE 'nextval(%')",
+                Boolean.class, table));
+    }
+
+    // ON CONFLICT (cols) needs a non-partial unique index on exactly those columns; sorted names
+    private boolean hasUniqueKey(String table, String... columns) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_index i JOIN pg_class t ON t.oid = i.indrelid "
+                        + "WHERE t.relname = ? AND pg_table_is_visible(t.oid) AND i.indisunique AND i.indpred IS NULL "
+                        + "AND (SELECT array_agg(a.attname::text ORDER BY a.attname::text) FROM pg_attribute a "
+                        + "WHERE a.attrelid = t.oid AND a.attnum = ANY(i.indkey)) = CAST(? AS text[]))",
+                Boolean.class, table, "{" + String.join(",", columns) + "}"));
+    }
+
+    private boolean hasRelation(String name) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, name));
+    }
+
+    private boolean hasColumn(String table, String column) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM information_schema.columns WHERE table_schema = current_schema() "
+                        + "AND table_name = ? AND column_name = ?)", Boolean.class, table, column));
+    }
+
+}
@@ -3,6 +3,7 @@ package com.ikon.zyberhero.config;
 import java.util.Arrays;
 import java.util.List;
 
+import jakarta.servlet.DispatcherType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.convert.converter.Converter;
@@ -41,7 +42,9 @@ public class SecurityConfig {
                             .requestMatchers("/actuator/health", "/actuator/info").permitAll()
                             // 2. Explicitly permit all OPTIONS requests
                             .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
-                            // 3. Authenticate all other requests
+                            // 3. Async dispatches (SSE stream) re-enter the chain after the request was authenticated
+                            .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+                            // 4. Authenticate all other requests
                             .anyRequest().authenticated();
                 })
                 .oauth2ResourceServer((oauth2) -> {
@@ -56,6 +59,8 @@ public class SecurityConfig {
         configuration.setAllowedOrigins(List.of("http://localhost:3000")); // Your React app's origin
         configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS"));
         configuration.setAllowedHeaders(List.of("*")); // Or specify headers like "Authorization", "Content-Type"
+        configuration.setExposedHeaders(List.of("ETag", // Polling clients send it back as If-None-Match
+                "X-Cursor-Before", "X-Cursor-After")); // location history paging
         configuration.setAllowCredentials(true); // If you need cookies/auth headers
         configuration.setMaxAge(3600L); // Cache preflight response for 1 hour
 
@@ -0,0 +1,93 @@
+package com.ikon.zyberhero.config;
+
+import java.util.Map;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+import org.springframework.web.socket.server.standard.ServletServerContainerFactoryBean;
+
+import com.ikon.zyberhero.controller.DeviceChannelHandler;
+import com.ikon.zyberhero.service.DeviceResolver;
+
+// Raw WebSocket device channel at /api/device/ws. The upgrade request passes the
+// normal JWT filter chain; the interceptor below binds the connection to one device.
+@Configuration
+@EnableWebSocket
+public class WebSocketConfig implements WebSocketConfigurer {
+
+    private final DeviceChannelHandler deviceChannelHandler;
+    private final DeviceResolver deviceResolver;
+
+    public WebSocketConfig(DeviceChannelHandler deviceChannelHandler, DeviceResolver deviceResolver) {
+        this.deviceChannelHandler = deviceChannelHandler;
+        this.deviceResolver = deviceResolver;
+    }
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(deviceChannelHandler, "/api/device/ws").addInterceptors(new DeviceHandshakeInterceptor());
+    }
+
+    // Tomcat allocates the message buffers per connection: the text buffer is a CharBuffer
+    // of this many chars (2 bytes each), so 4096 costs 8 KB per device, about 400 MB at
+    // 50k connections, plus the 1 KB binary buffer. A larger frame closes the session
+    // (1009); batches belong on the HTTP batch endpoints (POST /api/activity/batch etc.).
+    @Bean
+    public ServletServerContainerFactoryBean createWebSocketContainer(
+            @Value("${zyberhero.device-channel.max-text-message-bytes:4096}") int maxTextMessageBytes,
+            @Value("${zyberhero.device-channel.idle-timeout-ms:120000}") long idleTimeoutMs) {
+        ServletServerContainerFactoryBean container = new ServletServerContainerFactoryBean();
+        container.setMaxTextMessageBufferSize(maxTextMessageBytes);
+        container.setMaxBinaryMessageBufferSize(1024);
+        container.setMaxSessionIdleTimeout(idleTimeoutMs);
+        return container;
+    }
+
+    private final class DeviceHandshakeInterceptor implements HandshakeInterceptor {
+
+        @Override
+        public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                WebSocketHandler wsHandler, Map<String, Object> attributes) {
+            if (!(request instanceof ServletServerHttpRequest servletRequest)) return false;
+            HttpServletRequest req = servletRequest.getServletRequest();
+            Long deviceId = resolve(req.getParameter("deviceUuid"), req.getParameter("deviceId"), req.getParameter("mac"));
+            if (deviceId == null) {
+                response.setStatusCode(HttpStatus.BAD_REQUEST);
+                return false;
+            }
+            attributes.put(DeviceChannelHandler.DEVICE_ID, deviceId);
+            return true;
+        }
+
+        @Override
+        public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                WebSocketHandler wsHandler, Exception exception) {
+        }
+
+        private Long resolve(String deviceUuid, String deviceId, String mac) {
+            Long resolved = deviceResolver.findIdByUuid(deviceUuid).orElse(null);
+            if (resolved == null && deviceId != null) {
+                try {
+                    Long id = Long.valueOf(deviceId);
+                    if (deviceResolver.exists(id)) resolved = id;
+                } catch (NumberFormatException ignored) {
+                    // not a device id
+                }
+            }
+            if (resolved == null) resolved = deviceResolver.findIdByMac(mac).orElse(null);
+            return resolved;
+        }
+    }
+
+}
@@ -9,19 +9,29 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.ikon.zyberhero.api.ActivityApi;
+import com.ikon.zyberhero.dto.request.ActivityBatchRequestDto;
 import com.ikon.zyberhero.dto.request.ActivityCreateRequestDto;
 import com.ikon.zyberhero.dto.response.ActivityResponseDto;
+import com.ikon.zyberhero.dto.response.BatchResultResponseDto;
 import com.ikon.zyberhero.service.ActivityService;
+import com.ikon.zyberhero.service.IngestPipeline;
 
 @RestController
 @RequiredArgsConstructor
 public class ActivityController implements ActivityApi {
 
     private final ActivityService activityService;
+    private final IngestPipeline ingestPipeline;
 
     @Override
     public ResponseEntity<?> createActivity(String accessToken, ActivityCreateRequestDto request) {
         try {
+            if (ingestPipeline.isEnabled()) {
+                if (!ingestPipeline.submitActivity(request)) {
+                    return ResponseEntity.status(429).header("Retry-After", "1").body(Map.of("error", "Ingest queue full"));
+                }
+                return ResponseEntity.accepted().body(Map.of("queued", true));
+            }
             Long id = activityService.createActivity(request);
             return ResponseEntity.created(URI.create("/api/activity/" + id)).body(Map.of("id", id));
         } catch (IllegalArgumentException ex) {
@@ -32,6 +42,19 @@ public class ActivityController implements ActivityApi {
         }
     }
 
+    @Override
+    public ResponseEntity<?> createActivityBatch(String accessToken, ActivityBatchRequestDto request) {
+        try {
+            BatchResultResponseDto result = activityService.createActivityBatch(request);
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+        } catch (Exception ex) {
+            ex.printStackTrace();
+            return ResponseEntity.status(500).body(Map.of("error", "Failed to save activity batch"));
+        }
+    }
+
     @Override
     public ResponseEntity<List<ActivityResponseDto>> listActivity(String accessToken) {
         List<ActivityResponseDto> list = activityService.listRecent();
@@ -5,6 +5,8 @@ import java.util.List;
 import java.util.Map;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -12,12 +14,14 @@ import com.ikon.zyberhero.api.AlertApi;
 import com.ikon.zyberhero.dto.request.AlertCreateRequestDto;
 import com.ikon.zyberhero.dto.response.AlertResponseDto;
 import com.ikon.zyberhero.service.AlertService;
+import com.ikon.zyberhero.service.ResourceVersions;
 
 @RestController
 @RequiredArgsConstructor
 public class AlertController implements AlertApi {
 
     private final AlertService alertService;
+    private final ResourceVersions versions;
 
     @Override
     public ResponseEntity<?> createAlert(String accessToken, AlertCreateRequestDto request) {
@@ -33,11 +37,15 @@ public class AlertController implements AlertApi {
     }
 
     @Override
-    public ResponseEntity<AlertResponseDto> latest(String accessToken, String deviceUuid, Long deviceId) {
+    public ResponseEntity<AlertResponseDto> latest(String accessToken, String deviceUuid, Long deviceId, String ifNoneMatch) {
         try {
             if (deviceId == null) return ResponseEntity.badRequest().build();
+            String etag = versions.etag(ResourceVersions.Kind.ALERTS, deviceId);
+            if (ResourceVersions.matches(ifNoneMatch, etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
             var optional = alertService.latestForDevice(deviceId);
-            return optional.map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.ok(null));
+            return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(optional.orElse(null));
         } catch (Exception ex) {
             ex.printStackTrace();
             return ResponseEntity.status(500).build();
@@ -45,10 +53,14 @@ public class AlertController implements AlertApi {
     }
 
     @Override
-    public ResponseEntity<List<AlertResponseDto>> list(String accessToken, String deviceUuid, Long deviceId) {
+    public ResponseEntity<List<AlertResponseDto>> list(String accessToken, String deviceUuid, Long deviceId, String ifNoneMatch) {
         if (deviceId == null) return ResponseEntity.badRequest().build();
+        String etag = versions.etag(ResourceVersions.Kind.ALERTS, deviceId);
+        if (ResourceVersions.matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
         var list = alertService.listForDevice(deviceId, 20);
-        return ResponseEntity.ok(list);
+        return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(list);
     }
 
     @Override
@@ -3,20 +3,30 @@ package com.ikon.zyberhero.controller;
 import java.util.List;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
 
 import com.ikon.zyberhero.api.CommandsApi;
+import com.ikon.zyberhero.dto.request.BulkCommandRequestDto;
+import com.ikon.zyberhero.dto.request.CommandAckRequestDto;
 import com.ikon.zyberhero.dto.request.CommandRequestDto;
+import com.ikon.zyberhero.dto.response.BulkCommandResponseDto;
 import com.ikon.zyberhero.dto.response.CommandResponseDto;
+import com.ikon.zyberhero.service.CommandLongPoll;
 import com.ikon.zyberhero.service.CommandsService;
+import com.ikon.zyberhero.service.ResourceVersions;
 
 @RestController
 @RequiredArgsConstructor
 public class CommandsController implements CommandsApi {
 
     private final CommandsService commandsService;
+    private final ResourceVersions versions;
+    private final CommandLongPoll longPoll;
 
     @Override
     public ResponseEntity<?> kill(String accessToken, CommandRequestDto request) {
@@ -58,10 +68,29 @@ public class CommandsController implements CommandsApi {
     }
 
     @Override
-    public ResponseEntity<List<CommandResponseDto>> pending(String accessToken, String deviceUuid, Long deviceId, String machineName) {
+    public ResponseEntity<?> bulk(String accessToken, BulkCommandRequestDto request) {
         try {
-            var list = commandsService.pending(deviceUuid, deviceId, machineName);
-            return ResponseEntity.ok(list);
+            BulkCommandResponseDto result = commandsService.bulk(request);
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(java.util.Map.of("error", ex.getMessage()));
+        } catch (Exception ex) {
+            ex.printStackTrace();
+            return ResponseEntity.status(500).body(java.util.Map.of("error", "Failed to create bulk command"));
+        }
+    }
+
+    @Override
+    public ResponseEntity<List<CommandResponseDto>> pending(String accessToken, String deviceUuid, Long deviceId, String machineName,
+            String ifNoneMatch) {
+        try {
+            Long resolved = commandsService.findDeviceId(deviceUuid, deviceId, machineName);
+            String etag = versions.etag(ResourceVersions.Kind.COMMANDS, resolved);
+            if (ResourceVersions.matches(ifNoneMatch, etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
+            var list = commandsService.pending(null, resolved, null);
+            return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(list);
         } catch (IllegalArgumentException ex) {
             return ResponseEntity.badRequest().build();
         } catch (Exception ex) {
@@ -70,6 +99,32 @@ public class CommandsController implements CommandsApi {
         }
     }
 
+    @Override
+    public DeferredResult<ResponseEntity<List<CommandResponseDto>>> awaitPending(String accessToken, String deviceUuid, Long deviceId,
+            String machineName, String ifNoneMatch) {
+        try {
+            Long resolved = commandsService.findDeviceId(deviceUuid, deviceId, machineName);
+            return longPoll.await(resolved, ifNoneMatch);
+        } catch (IllegalArgumentException ex) {
+            DeferredResult<ResponseEntity<List<CommandResponseDto>>> result = new DeferredResult<>();
+            result.setResult(ResponseEntity.badRequest().build());
+            return result;
+        }
+    }
+
+    @Override
+    public ResponseEntity<?> ackBatch(String accessToken, CommandAckRequestDto request) {
+        try {
+            int acked = commandsService.ack(request.getIds());
+            return ResponseEntity.ok(java.util.Map.of("success", true, "acked", acked));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(java.util.Map.of("error", ex.getMessage()));
+        } catch (Exception ex) {
+            ex.printStackTrace();
+            return ResponseEntity.status(500).body(java.util.Map.of("error", "Failed to acknowledge commands"));
+        }
+    }
+
     @Override
     public ResponseEntity<?> ack(String accessToken, @PathVariable("id") Long id) {
         try {
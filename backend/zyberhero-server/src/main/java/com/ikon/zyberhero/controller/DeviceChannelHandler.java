@@ -0,0 +1,288 @@
+package com.ikon.zyberhero.controller;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ikon.zyberhero.dto.request.ActivityBatchRequestDto;
+import com.ikon.zyberhero.dto.request.ActivityCreateRequestDto;
+import com.ikon.zyberhero.dto.request.AlertCreateRequestDto;
+import com.ikon.zyberhero.dto.request.LiveStatusRequestDto;
+import com.ikon.zyberhero.dto.request.LiveStatusSyncRequestDto;
+import com.ikon.zyberhero.dto.request.LocationBatchRequestDto;
+import com.ikon.zyberhero.dto.request.LocationCreateRequestDto;
+import com.ikon.zyberhero.dto.response.CommandResponseDto;
+import com.ikon.zyberhero.service.ActivityService;
+import com.ikon.zyberhero.service.AlertService;
+import com.ikon.zyberhero.service.CommandWaiters;
+import com.ikon.zyberhero.service.CommandsService;
+import com.ikon.zyberhero.service.DeviceHeartbeatTracker;
+import com.ikon.zyberhero.service.IngestPipeline;
+import com.ikon.zyberhero.service.LiveStatusService;
+import com.ikon.zyberhero.service.LiveStatusSyncService;
+import com.ikon.zyberhero.service.LocationService;
+
+// One WebSocket per device carrying what the agent otherwise sends as separate
+// HTTP requests. Frames are JSON text:
+//   agent -> server  {"type": ..., "id": <any, echoed back>, "data": <the HTTP request body>}
+//     types: activity, activity-batch, live-status, live-status-sync, location, location-batch,
+//            alert, command-ack (data {"id": n} or {"ids": [...]}), ping
+//   server -> agent  {"type": "ack", "id": ..., "data": <the HTTP response body>}
+//                    {"type": "error", "id": ..., "error": "..."}
+//                    {"type": "commands", "data": [<CommandResponseDto>...]} pushed on connect
+//                    and whenever a command for the device commits; always the complete
+//                    set of active kills (possibly empty) plus newly leased commands
+// The device is fixed at the handshake; device fields inside data are ignored.
+// A newer connection for the same device replaces the older one.
+@Component
+public class DeviceChannelHandler extends TextWebSocketHandler {
+
+    public static final String DEVICE_ID = "zyberhero.deviceId";
+    private static final String CHANNEL = "zyberhero.channel";
+
+    private static final Logger log = LoggerFactory.getLogger(DeviceChannelHandler.class);
+
+    private final ObjectMapper objectMapper;
+    private final ActivityService activityService;
+    private final LiveStatusService liveStatusService;
+    private final LiveStatusSyncService liveStatusSyncService;
+    private final LocationService locationService;
+    private final AlertService alertService;
+    private final CommandsService commandsService;
+    private final CommandWaiters commandWaiters;
+    private final IngestPipeline ingestPipeline;
+    private final DeviceHeartbeatTracker heartbeatTracker;
+    private final int sendTimeLimitMs;
+    private final int sendBufferBytes;
+
+    private final Map<Long, Channel> channels = new ConcurrentHashMap<>();
+
+    private final class Channel {
+        final Long deviceId;
+        final WebSocketSession session;
+        final Runnable pushCommands = this::pushCommands;
+
+        Channel(Long deviceId, WebSocketSession session) {
+            this.deviceId = deviceId;
+            // sends come from request threads and the command wake pool; a client that
+            // stops reading overflows the buffer and is disconnected
+            this.session = new ConcurrentWebSocketSessionDecorator(session, sendTimeLimitMs, sendBufferBytes,
+                    ConcurrentWebSocketSessionDecorator.OverflowStrategy.TERMINATE);
+        }
+
+        void pushCommands() {
+            if (!session.isOpen()) return;
+            try {
+                List<CommandResponseDto> commands = commandsService.pending(null, deviceId, null);
+                // sent even when empty: active kills are state, and a kill missing from the
+                // list (e.g. the last one was lifted) tells the agent to stop enforcing it
+                send(frame("commands", null, commands));
+            } catch (Exception ex) {
+                log.warn("Device channel: command push failed for deviceId={}: {}", deviceId, ex.getMessage());
+            }
+        }
+
+        void send(Map<String, Object> frame) {
+            try {
+                session.sendMessage(new TextMessage(objectMapper.writeValueAsString(frame)));
+            } catch (IOException | RuntimeException ex) {
+                log.debug("Device channel: send failed for deviceId={}: {}", deviceId, ex.getMessage());
+                close(CloseStatus.SESSION_NOT_RELIABLE);
+            }
+        }
+
+        void close(CloseStatus status) {
+            try {
+                session.close(status);
+            } catch (IOException | RuntimeException ignored) {
+                // already closed
+            }
+        }
+    }
+
+    public DeviceChannelHandler(ObjectMapper objectMapper, ActivityService activityService,
+            LiveStatusService liveStatusService, LiveStatusSyncService liveStatusSyncService,
+            LocationService locationService, AlertService alertService, CommandsService commandsService,
+            CommandWaiters commandWaiters, IngestPipeline ingestPipeline, DeviceHeartbeatTracker heartbeatTracker,
+            @Value("${zyberhero.device-channel.send-time-limit-ms:10000}") int sendTimeLimitMs,
+            @Value("${zyberhero.device-channel.send-buffer-bytes:262144}") int sendBufferBytes) {
+        this.objectMapper = objectMapper;
+        this.activityService = activityService;
+        this.liveStatusService = liveStatusService;
+        this.liveStatusSyncService = liveStatusSyncService;
+        this.locationService = locationService;
+        this.alertService = alertService;
+        this.commandsService = commandsService;
+        this.commandWaiters = commandWaiters;
+        this.ingestPipeline = ingestPipeline;
+        this.heartbeatTracker = heartbeatTracker;
+        this.sendTimeLimitMs = sendTimeLimitMs;
+        this.sendBufferBytes = sendBufferBytes;
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        Long deviceId = (Long) session.getAttributes().get(DEVICE_ID);
+        Channel channel = new Channel(deviceId, session);
+        session.getAttributes().put(CHANNEL, channel);
+
+        Channel previous = channels.put(deviceId, channel);
+        if (previous != null) {
+            commandWaiters.unlisten(deviceId, previous.pushCommands);
+            previous.close(CloseStatus.POLICY_VIOLATION.withReason("Replaced by a newer connection"));
+        }
+        commandWaiters.listen(deviceId, channel.pushCommands);
+        heartbeatTracker.touch(deviceId);
+
+        // whatever was queued while the device was offline
+        channel.pushCommands();
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+        Channel channel = (Channel) session.getAttributes().get(CHANNEL);
+        if (channel == null) return;
+
+        JsonNode id = null;
+        String type = null;
+        try {
+            JsonNode msg = objectMapper.readTree(message.getPayload());
+            id = msg.get("id");
+            type = msg.path("type").asText(null);
+            if (type == null) throw new IllegalArgumentException("Missing required field: type");
+            Object result = dispatch(channel.deviceId, type, msg.get("data"));
+            channel.send(frame("ack", id, result));
+        } catch (IllegalArgumentException ex) {
+            channel.send(error(id, ex.getMessage()));
+        } catch (IOException ex) {
+            channel.send(error(id, "Malformed message"));
+        } catch (Exception ex) {
+            log.warn("Device channel: {} failed for deviceId={}: {}", type, channel.deviceId, ex.getMessage());
+            channel.send(error(id, "Failed to process " + type));
+        }
+    }
+
+    @Override
+    public void handleTransportError(WebSocketSession session, Throwable exception) {
+        log.debug("Device channel transport error: {}", exception.getMessage());
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        Channel channel = (Channel) session.getAttributes().get(CHANNEL);
+        if (channel == null) return;
+        if (channels.remove(channel.deviceId, channel)) {
+            commandWaiters.unlisten(channel.deviceId, channel.pushCommands);
+        }
+    }
+
+    public int connectedCount() {
+        return channels.size();
+    }
+
+    private Object dispatch(Long deviceId, String type, JsonNode data) throws Exception {
+        switch (type) {
+            case "activity": {
+                ActivityCreateRequestDto req = read(data, ActivityCreateRequestDto.class);
+                req.setDeviceUuid(null);
+                req.setDeviceId(deviceId);
+                if (ingestPipeline.isEnabled()) return queued(ingestPipeline.submitActivity(req));
+                return Map.of("id", activityService.createActivity(req));
+            }
+            case "activity-batch": {
+                ActivityBatchRequestDto req = read(data, ActivityBatchRequestDto.class);
+                req.setDeviceUuid(null);
+                req.setDeviceId(deviceId);
+                return activityService.createActivityBatch(req);
+            }
+            case "live-status": {
+                LiveStatusRequestDto req = read(data, LiveStatusRequestDto.class);
+                req.setDeviceUuid(null);
+                req.setMachineName(null);
+                req.setDeviceId(deviceId);
+                if (ingestPipeline.isEnabled()) return queued(ingestPipeline.submitLiveStatus(req));
+                return liveStatusService.upsertLiveStatus(req);
+            }
+            case "live-status-sync": {
+                LiveStatusSyncRequestDto req = read(data, LiveStatusSyncRequestDto.class);
+                req.setDeviceUuid(null);
+                req.setMachineName(null);
+                req.setDeviceId(deviceId);
+                return liveStatusSyncService.sync(req);
+            }
+            case "location": {
+                LocationCreateRequestDto req = read(data, LocationCreateRequestDto.class);
+                req.setDeviceMac(null);
+                req.setDeviceId(deviceId);
+                if (ingestPipeline.isEnabled()) return queued(ingestPipeline.submitLocation(req));
+                return locationService.createLocation(req);
+            }
+            case "location-batch": {
+                LocationBatchRequestDto req = read(data, LocationBatchRequestDto.class);
+                req.setDeviceMac(null);
+                req.setDeviceId(deviceId);
+                return locationService.createLocationBatch(req);
+            }
+            case "alert": {
+                AlertCreateRequestDto req = read(data, AlertCreateRequestDto.class);
+                req.setDeviceUuid(null);
+                req.setDeviceId(deviceId);
+                return Map.of("id", alertService.createAlert(req));
+            }
+            case "command-ack": {
+                List<Long> ids = new ArrayList<>();
+                if (data != null && data.hasNonNull("id")) ids.add(data.get("id").asLong());
+                if (data != null && data.has("ids")) data.get("ids").forEach(n -> ids.add(n.asLong()));
+                if (ids.isEmpty()) throw new IllegalArgumentException("Missing required field: id or ids");
+                return Map.of("acked", commandsService.ack(ids));
+            }
+            case "ping":
+                heartbeatTracker.touch(deviceId);
+                return Map.of("pong", true);
+            default:
+                throw new IllegalArgumentException("Unknown message type: " + type);
+        }
+    }
+
+    private <T> T read(JsonNode data, Class<T> type) throws IOException {
+        if (data == null || data.isNull()) throw new IllegalArgumentException("Missing required field: data");
+        return objectMapper.treeToValue(data, type);
+    }
+
+    private static Map<String, Object> queued(boolean accepted) {
+        if (!accepted) throw new IllegalArgumentException("Ingest queue full");
+        return Map.of("queued", true);
+    }
+
+    private static Map<String, Object> frame(String type, JsonNode id, Object data) {
+        Map<String, Object> frame = new LinkedHashMap<>();
+        frame.put("type", type);
+        if (id != null) frame.put("id", id);
+        frame.put("data", data);
+        return frame;
+    }
+
+    private static Map<String, Object> error(JsonNode id, String message) {
+        Map<String, Object> frame = new LinkedHashMap<>();
+        frame.put("type", "error");
+        if (id != null) frame.put("id", id);
+        frame.put("error", message);
+        return frame;
+    }
+
+}
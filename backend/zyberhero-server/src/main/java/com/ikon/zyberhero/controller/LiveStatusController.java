@@ -1,27 +1,47 @@
 package com.ikon.zyberhero.controller;
 
 import java.util.List;
+import java.util.Map;
 
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.ikon.zyberhero.api.LiveStatusApi;
 import com.ikon.zyberhero.dto.request.LiveStatusRequestDto;
+import com.ikon.zyberhero.dto.request.LiveStatusSyncRequestDto;
 import com.ikon.zyberhero.dto.response.LiveAppResponseDto;
+import com.ikon.zyberhero.service.IngestPipeline;
 import com.ikon.zyberhero.service.LiveStatusService;
+import com.ikon.zyberhero.service.LiveStatusSyncService;
+import com.ikon.zyberhero.service.ResourceVersions;
 
 @RestController
 public class LiveStatusController implements LiveStatusApi {
 
     private final LiveStatusService service;
+    private final IngestPipeline ingestPipeline;
+    private final LiveStatusSyncService syncService;
+    private final ResourceVersions versions;
 
-    public LiveStatusController(LiveStatusService service) {
+    public LiveStatusController(LiveStatusService service, IngestPipeline ingestPipeline, LiveStatusSyncService syncService,
+            ResourceVersions versions) {
         this.service = service;
+        this.ingestPipeline = ingestPipeline;
+        this.syncService = syncService;
+        this.versions = versions;
     }
 
     @Override
     public ResponseEntity<?> postLiveStatus(String accessToken, LiveStatusRequestDto request) {
         try {
+            if (ingestPipeline.isEnabled()) {
+                if (!ingestPipeline.submitLiveStatus(request)) {
+                    return ResponseEntity.status(429).header("Retry-After", "1").body(Map.of("error", "Ingest queue full"));
+                }
+                return ResponseEntity.accepted().body(Map.of("queued", true));
+            }
             List<LiveAppResponseDto> apps = service.upsertLiveStatus(request);
             return ResponseEntity.ok(apps);
         } catch (IllegalArgumentException ex) {
@@ -29,11 +49,29 @@ public class LiveStatusController implements LiveStatusApi {
         }
     }
 
+    @Override
+    public ResponseEntity<?> syncLiveStatus(String accessToken, LiveStatusSyncRequestDto request) {
+        try {
+            return ResponseEntity.ok(syncService.sync(request));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(ex.getMessage());
+        }
+    }
+
     @Override
     public ResponseEntity<List<LiveAppResponseDto>> getLiveStatus(String accessToken, String deviceUuid, Long deviceId,
-            Integer staleSeconds) {
-        List<LiveAppResponseDto> apps = service.getRunningApps(deviceUuid, deviceId, staleSeconds);
-        return ResponseEntity.ok(apps);
+            Integer staleSeconds, String ifNoneMatch) {
+        // staleSeconds filters by the current time, so those answers change without any write
+        Long resolved = staleSeconds != null && staleSeconds > 0 ? null : service.findDeviceId(deviceUuid, deviceId);
+        if (resolved == null) {
+            return ResponseEntity.ok(service.getRunningApps(deviceUuid, deviceId, staleSeconds));
+        }
+        String etag = versions.etag(ResourceVersions.Kind.LIVE_STATUS, resolved);
+        if (ResourceVersions.matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        List<LiveAppResponseDto> apps = service.getRunningAppsForDevice(resolved);
+        return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(apps);
     }
 
 }
@@ -1,27 +1,48 @@
 package com.ikon.zyberhero.controller;
 
+import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.Map;
 
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.ikon.zyberhero.api.LocationApi;
+import com.ikon.zyberhero.dto.request.LocationBatchRequestDto;
 import com.ikon.zyberhero.dto.request.LocationCreateRequestDto;
+import com.ikon.zyberhero.dto.response.BatchResultResponseDto;
 import com.ikon.zyberhero.dto.response.LocationResponseDto;
+import com.ikon.zyberhero.service.IngestPipeline;
 import com.ikon.zyberhero.service.LocationService;
+import com.ikon.zyberhero.service.ResourceVersions;
 
 @RestController
 public class LocationController implements LocationApi {
 
+    public static final String BEFORE_CURSOR_HEADER = "X-Cursor-Before";
+    public static final String AFTER_CURSOR_HEADER = "X-Cursor-After";
+
     private final LocationService service;
+    private final IngestPipeline ingestPipeline;
+    private final ResourceVersions versions;
 
-    public LocationController(LocationService service) {
+    public LocationController(LocationService service, IngestPipeline ingestPipeline, ResourceVersions versions) {
         this.service = service;
+        this.ingestPipeline = ingestPipeline;
+        this.versions = versions;
     }
 
     @Override
     public ResponseEntity<?> createLocation(String accessToken, LocationCreateRequestDto request) {
         try {
+            if (ingestPipeline.isEnabled()) {
+                if (!ingestPipeline.submitLocation(request)) {
+                    return ResponseEntity.status(429).header("Retry-After", "1").body(Map.of("error", "Ingest queue full"));
+                }
+                return ResponseEntity.accepted().body(Map.of("queued", true));
+            }
             LocationResponseDto dto = service.createLocation(request);
             return ResponseEntity.ok(dto);
         } catch (IllegalArgumentException ex) {
@@ -30,18 +51,51 @@ public class LocationController implements LocationApi {
     }
 
     @Override
-    public ResponseEntity<LocationResponseDto> latest(String accessToken, String deviceUuid, Long deviceId) {
-        LocationResponseDto d = service.latest(deviceUuid, deviceId);
+    public ResponseEntity<?> createLocationBatch(String accessToken, LocationBatchRequestDto request) {
+        try {
+            BatchResultResponseDto result = service.createLocationBatch(request);
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+        }
+    }
+
+    @Override
+    public ResponseEntity<LocationResponseDto> latest(String accessToken, String deviceUuid, Long deviceId, String ifNoneMatch) {
+        Long resolved = service.findDeviceId(deviceUuid, deviceId);
+        if (resolved == null) return ResponseEntity.notFound().build();
+        String etag = versions.etag(ResourceVersions.Kind.LOCATION, resolved);
+        if (ResourceVersions.matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        LocationResponseDto d = service.latest(null, resolved);
         if (d == null) return ResponseEntity.notFound().build();
-        return ResponseEntity.ok(d);
+        return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(d);
     }
 
 
+    @Override
+    public ResponseEntity<List<LocationResponseDto>> latestForChild(String accessToken, Long childId) {
+        try {
+            return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(service.latestForChild(childId));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // The body stays a plain list; the page cursors travel in headers.
     @Override
     public ResponseEntity<List<LocationResponseDto>> history(String accessToken, String deviceUuid, Long deviceId,
-            String date, Integer limit) {
-        List<LocationResponseDto> list = service.history(deviceUuid, deviceId, date, limit);
-        return ResponseEntity.ok(list);
+            String date, Integer limit, String before, String after, Double tolerance, Integer maxPoints) {
+        try {
+            LocationService.HistoryPage page = service.history(deviceUuid, deviceId, date, limit, before, after, tolerance, maxPoints);
+            ResponseEntity.BodyBuilder res = ResponseEntity.ok();
+            if (page.before() != null) res.header(BEFORE_CURSOR_HEADER, page.before());
+            if (page.after() != null) res.header(AFTER_CURSOR_HEADER, page.after());
+            return res.body(page.items());
+        } catch (IllegalArgumentException | DateTimeParseException ex) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
 }
\ No newline at end of file
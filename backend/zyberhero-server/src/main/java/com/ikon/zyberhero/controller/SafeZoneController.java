@@ -5,12 +5,15 @@ import java.util.List;
 import java.util.Map;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.ikon.zyberhero.api.SafeZoneApi;
 import com.ikon.zyberhero.dto.request.SafeZoneCreateRequestDto;
 import com.ikon.zyberhero.dto.response.SafeZoneResponseDto;
+import com.ikon.zyberhero.service.ResourceVersions;
 import com.ikon.zyberhero.service.SafeZoneService;
 
 @RestController
@@ -18,6 +21,7 @@ import com.ikon.zyberhero.service.SafeZoneService;
 public class SafeZoneController implements SafeZoneApi {
 
     private final SafeZoneService safeZoneService;
+    private final ResourceVersions versions;
 
     @Override
     public ResponseEntity<?> createSafeZone(String accessToken, SafeZoneCreateRequestDto request) {
@@ -35,9 +39,13 @@ public class SafeZoneController implements SafeZoneApi {
     }
 
     @Override
-    public ResponseEntity<List<SafeZoneResponseDto>> listSafeZones(String accessToken, Long childId) {
+    public ResponseEntity<List<SafeZoneResponseDto>> listSafeZones(String accessToken, Long childId, String ifNoneMatch) {
+        String etag = versions.etag(ResourceVersions.Kind.SAFEZONES, childId);
+        if (ResourceVersions.matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
         List<SafeZoneResponseDto> list = safeZoneService.listSafeZones(childId);
-        return ResponseEntity.ok(list);
+        return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(list);
     }
 
     @Override
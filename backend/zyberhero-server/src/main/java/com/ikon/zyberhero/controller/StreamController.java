@@ -0,0 +1,34 @@
+package com.ikon.zyberhero.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.ikon.zyberhero.api.StreamApi;
+import com.ikon.zyberhero.service.DeviceResolver;
+import com.ikon.zyberhero.service.EventStreamBroadcaster;
+
+@RestController
+@RequiredArgsConstructor
+public class StreamController implements StreamApi {
+
+    private final EventStreamBroadcaster broadcaster;
+    private final DeviceResolver deviceResolver;
+
+    @Override
+    public ResponseEntity<SseEmitter> stream(String accessToken, Long childId, String deviceUuid, Long deviceId) {
+        Long resolved = deviceId;
+        if (resolved == null && deviceUuid != null) {
+            resolved = deviceResolver.findIdByUuid(deviceUuid).orElse(null);
+            if (resolved == null) return ResponseEntity.badRequest().build();
+        }
+        if (childId == null && resolved == null) return ResponseEntity.badRequest().build();
+        try {
+            return ResponseEntity.ok(broadcaster.subscribe(childId, resolved));
+        } catch (IllegalStateException ex) {
+            return ResponseEntity.status(503).header("Retry-After", "5").build();
+        }
+    }
+
+}
@@ -7,6 +7,7 @@ import org.springframework.web.bind.annotation.RestController;
 import com.ikon.zyberhero.api.SummaryApi;
 import com.ikon.zyberhero.dto.response.DailyComparisonResponseDto;
 import com.ikon.zyberhero.dto.response.ScreenTimeResponseDto;
+import com.ikon.zyberhero.dto.response.UsageRangeResponseDto;
 import com.ikon.zyberhero.service.SummaryService;
 
 @RestController
@@ -37,4 +38,17 @@ public class SummaryController implements SummaryApi {
         }
     }
 
+    @Override
+    public ResponseEntity<UsageRangeResponseDto> usageRange(String accessToken, String from, String to, String granularity, String deviceUuid, Long deviceId, Long childId) {
+        try {
+            var dto = summaryService.usageRange(from, to, granularity, deviceUuid, deviceId, childId);
+            return ResponseEntity.ok(dto);
+        } catch (IllegalArgumentException | java.time.format.DateTimeParseException ex) {
+            return ResponseEntity.badRequest().build();
+        } catch (Exception ex) {
+            ex.printStackTrace();
+            return ResponseEntity.status(500).build();
+        }
+    }
+
 }
@@ -15,9 +15,12 @@ import lombok.NoArgsConstructor;
 public class ActivityLog {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "activity_logs_seq")
+    @SequenceGenerator(name = "activity_logs_seq", sequenceName = "activity_logs_seq", allocationSize = 50)
     private Long id;
 
+    // partition key (V7), part of the table's primary key
+    @Column(nullable = false)
     private LocalDateTime timestamp = LocalDateTime.now();
 
     private LocalDateTime localTimestamp;
@@ -0,0 +1,35 @@
+package com.ikon.zyberhero.entity;
+
+import jakarta.persistence.*;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// A window-title rule: activity from appName whose title contains pattern
+// (case-insensitive) is reported as target. Lower priority wins.
+@Entity
+@Table(name = "app_classification_rules", indexes = {@Index(columnList = "app_name")})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AppClassificationRule {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "app_name", nullable = false)
+    private String appName;
+
+    @Column(nullable = false)
+    private String pattern;
+
+    @Column(nullable = false)
+    private String target;
+
+    private Integer priority = 100;
+
+    private Boolean enabled = true;
+
+}
@@ -0,0 +1,9 @@
+package com.ikon.zyberhero.entity;
+
+// Delivery state of a one-time ControlCommand (relaunch / schedule):
+// QUEUED -> LEASED on delivery; LEASED -> ACKED on ack, back to deliverable when the
+// lease runs out, or EXPIRED after too many unacknowledged deliveries.
+// Kill commands are standing orders and are delivered on every poll while active.
+public enum CommandState {
+    QUEUED, LEASED, ACKED, EXPIRED
+}
@@ -16,7 +16,8 @@ import lombok.NoArgsConstructor;
 public class ControlCommand {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "control_commands_seq")
+    @SequenceGenerator(name = "control_commands_seq", sequenceName = "control_commands_seq", allocationSize = 50)
     private Long id;
 
     private String schedule;
@@ -33,4 +34,18 @@ public class ControlCommand {
     @Column(name = "device_id")
     private Long deviceId;
 
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16)
+    private CommandState state = CommandState.QUEUED;
+
+    private LocalDateTime leaseUntil;
+
+    private Integer deliveryCount = 0;
+
+    private LocalDateTime ackedAt;
+
+    // schedule evaluated by the server's ScheduleEngine instead of the agent
+    @Column(name = "server_evaluated")
+    private Boolean serverEvaluated = false;
+
 }
@@ -0,0 +1,42 @@
+package com.ikon.zyberhero.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Per device, per local day, per classified app usage totals. Maintained by
+// UsageRollupService on ingest; read by the summary endpoints.
+@Entity
+@Table(name = "daily_app_usage", indexes = {@Index(columnList = "usage_date")},
+       uniqueConstraints = {@UniqueConstraint(columnNames = {"device_id", "usage_date", "app"})})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyAppUsage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "device_id", nullable = false)
+    private Long deviceId;
+
+    @Column(name = "usage_date", nullable = false)
+    private LocalDate usageDate;
+
+    @Column(nullable = false)
+    private String app;
+
+    private Long focusedSeconds = 0L;
+
+    private Long screenSeconds = 0L;
+
+    private String windowTitle;
+
+    private LocalDateTime updatedAt = LocalDateTime.now();
+
+}
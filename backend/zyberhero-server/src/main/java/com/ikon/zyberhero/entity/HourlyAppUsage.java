@@ -0,0 +1,37 @@
+package com.ikon.zyberhero.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Per device, per local hour, per classified app usage totals; backs the range summaries.
+@Entity
+@Table(name = "hourly_app_usage", indexes = {@Index(columnList = "usage_hour")},
+       uniqueConstraints = {@UniqueConstraint(columnNames = {"device_id", "usage_hour", "app"})})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HourlyAppUsage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "device_id", nullable = false)
+    private Long deviceId;
+
+    // local time truncated to the hour
+    @Column(name = "usage_hour", nullable = false)
+    private LocalDateTime usageHour;
+
+    @Column(nullable = false)
+    private String app;
+
+    private Long focusedSeconds = 0L;
+
+    private Long screenSeconds = 0L;
+
+}
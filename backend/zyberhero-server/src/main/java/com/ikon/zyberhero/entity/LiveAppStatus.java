@@ -16,7 +16,8 @@ import lombok.NoArgsConstructor;
 public class LiveAppStatus {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "live_app_status_seq")
+    @SequenceGenerator(name = "live_app_status_seq", sequenceName = "live_app_status_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "app_name")
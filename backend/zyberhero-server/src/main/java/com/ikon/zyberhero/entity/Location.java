@@ -15,9 +15,12 @@ import lombok.NoArgsConstructor;
 public class Location {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "locations_seq")
+    @SequenceGenerator(name = "locations_seq", sequenceName = "locations_seq", allocationSize = 50)
     private Long id;
 
+    // partition key (V7), part of the table's primary key
+    @Column(nullable = false)
     private LocalDateTime timestamp = LocalDateTime.now();
 
     private Double latitude;
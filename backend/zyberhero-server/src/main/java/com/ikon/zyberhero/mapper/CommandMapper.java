@@ -4,6 +4,7 @@ import org.springframework.stereotype.Component;
 
 import com.ikon.zyberhero.dto.response.CommandResponseDto;
 import com.ikon.zyberhero.entity.ControlCommand;
+import com.ikon.zyberhero.service.ScheduleEngine;
 
 @Component
 public class CommandMapper {
@@ -13,7 +14,8 @@ public class CommandMapper {
         CommandResponseDto d = new CommandResponseDto();
         d.setId(c.getId());
         d.setAppName(c.getAppName());
-        d.setAction(c.getAction());
+        // agents only know "kill"; the schedule engine's kill rows are kept apart on the server
+        d.setAction(ScheduleEngine.KILL_ACTION.equals(c.getAction()) ? "kill" : c.getAction());
         d.setSchedule(c.getSchedule());
         return d;
     }
@@ -0,0 +1,79 @@
+package com.ikon.zyberhero.repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import com.ikon.zyberhero.config.IngestProperties;
+import com.ikon.zyberhero.entity.ActivityLog;
+
+@Repository
+@RequiredArgsConstructor
+public class ActivityLogJdbcRepository {
+
+    private static final String INSERT_SQL = "INSERT INTO activity_logs "
+            + "(timestamp, local_timestamp, app_name, window_title, duration_seconds, executable_path, screen_time, device_id) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // Per-app totals for one local day, grouped in Postgres. Apps with title rules
+    // stay split by window title so the caller can classify each distinct title once;
+    // rows count when both the stored timestamp and the local time fall inside [start, end).
+    private static final String SUMMARIZE_SQL = "SELECT a.app_name, "
+            + "CASE WHEN a.app_name = ANY(?) THEN a.window_title END AS title, "
+            + "SUM(CASE WHEN a.screen_time THEN 0 ELSE a.duration_seconds END) AS focused, "
+            + "SUM(CASE WHEN a.screen_time THEN a.duration_seconds ELSE 0 END) AS screen, "
+            + "MAX(NULLIF(a.window_title, '')) AS window_title "
+            + "FROM activity_logs a "
+            + "WHERE a.timestamp >= ? AND a.timestamp < ? "
+            + "AND COALESCE(a.local_timestamp, a.timestamp) >= ? AND COALESCE(a.local_timestamp, a.timestamp) < ? "
+            + "AND a.duration_seconds > 0 ";
+
+    private static final RowMapper<AppTitleUsageRow> APP_TITLE_USAGE_ROW = (rs, i) -> new AppTitleUsageRow(
+            rs.getString("app_name"), rs.getString("title"), rs.getLong("focused"), rs.getLong("screen"), rs.getString("window_title"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final IngestProperties ingestProperties;
+
+    public record AppTitleUsageRow(String appName, String title, long focusedSeconds, long screenSeconds, String windowTitle) {}
+
+    // Plain JDBC batch insert; with reWriteBatchedInserts enabled the driver sends
+    // each batch as multi-row INSERT statements instead of one round trip per row.
+    public void batchInsert(List<ActivityLog> logs) {
+        if (logs == null || logs.isEmpty()) return;
+        jdbcTemplate.batchUpdate(INSERT_SQL, logs, ingestProperties.getJdbcBatchSize(), (ps, l) -> {
+            ps.setTimestamp(1, l.getTimestamp() == null ? null : Timestamp.valueOf(l.getTimestamp()));
+            ps.setTimestamp(2, l.getLocalTimestamp() == null ? null : Timestamp.valueOf(l.getLocalTimestamp()));
+            ps.setString(3, l.getAppName());
+            ps.setString(4, l.getWindowTitle());
+            if (l.getDurationSeconds() != null) ps.setInt(5, l.getDurationSeconds());
+            else ps.setNull(5, Types.INTEGER);
+            ps.setString(6, l.getExecutablePath());
+            ps.setBoolean(7, Boolean.TRUE.equals(l.getScreenTime()));
+            ps.setLong(8, l.getDeviceId());
+        });
+    }
+
+    public List<AppTitleUsageRow> summarizeApps(LocalDateTime start, LocalDateTime end, List<Long> deviceIds, Collection<String> splitByTitle) {
+        boolean allDevices = deviceIds == null || deviceIds.isEmpty();
+        String sql = SUMMARIZE_SQL + (allDevices ? "" : "AND a.device_id = ANY(?) ") + "GROUP BY 1, 2";
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setArray(1, con.createArrayOf("varchar", splitByTitle.toArray()));
+            ps.setTimestamp(2, Timestamp.valueOf(start));
+            ps.setTimestamp(3, Timestamp.valueOf(end));
+            ps.setTimestamp(4, Timestamp.valueOf(start));
+            ps.setTimestamp(5, Timestamp.valueOf(end));
+            if (!allDevices) ps.setArray(6, con.createArrayOf("bigint", deviceIds.toArray()));
+            return ps;
+        }, APP_TITLE_USAGE_ROW);
+    }
+
+}
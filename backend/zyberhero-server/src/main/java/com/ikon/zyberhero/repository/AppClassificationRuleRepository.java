@@ -0,0 +1,14 @@
+package com.ikon.zyberhero.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import com.ikon.zyberhero.entity.AppClassificationRule;
+
+import java.util.List;
+
+@Repository
+public interface AppClassificationRuleRepository extends JpaRepository<AppClassificationRule, Long> {
+
+    List<AppClassificationRule> findByEnabledTrueOrderByPriorityAscIdAsc();
+
+}
@@ -0,0 +1,86 @@
+package com.ikon.zyberhero.repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+@Repository
+@RequiredArgsConstructor
+public class ControlCommandJdbcRepository {
+
+    // One statement for every targeted device; the id comes from the column default
+    // (control_commands_seq). A re-issued command is re-armed as a fresh QUEUED delivery.
+    // serverEvaluated marks schedules the ScheduleEngine runs (not delivered to agents).
+    private static final String UPSERT_SQL = "INSERT INTO control_commands "
+            + "(device_id, app_name, action, schedule, server_evaluated, is_active, created_at, state, lease_until, delivery_count, acked_at) "
+            + "SELECT d.device_id, ?, ?, ?, ?, true, ?, 'QUEUED', NULL, 0, NULL "
+            + "FROM unnest(?::bigint[]) AS d(device_id) "
+            + "ON CONFLICT (device_id, app_name, action) DO UPDATE SET "
+            + "schedule = EXCLUDED.schedule, server_evaluated = EXCLUDED.server_evaluated, is_active = true, created_at = EXCLUDED.created_at, "
+            + "state = 'QUEUED', lease_until = NULL, delivery_count = 0, acked_at = NULL "
+            + "RETURNING device_id, id";
+
+    private static final String DEACTIVATE_SQL = "UPDATE control_commands SET is_active = false "
+            + "WHERE action = ? AND app_name = ? AND is_active AND device_id = ANY(?::bigint[])";
+
+    private static final String SERVER_EVALUATED_SQL = "UPDATE control_commands SET server_evaluated = ? "
+            + "WHERE id = ANY(?::bigint[]) AND server_evaluated IS DISTINCT FROM ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // device id -> command id
+    public Map<Long, Long> upsertActive(Collection<Long> deviceIds, String appName, String action, String schedule,
+            LocalDateTime createdAt) {
+        return upsertActive(deviceIds, appName, action, schedule, false, createdAt);
+    }
+
+    public Map<Long, Long> upsertActive(Collection<Long> deviceIds, String appName, String action, String schedule,
+            boolean serverEvaluated, LocalDateTime createdAt) {
+        Long[] ids = deviceIds.toArray(new Long[0]);
+        Map<Long, Long> out = new LinkedHashMap<>();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(UPSERT_SQL);
+            ps.setString(1, appName);
+            ps.setString(2, action);
+            ps.setString(3, schedule);
+            ps.setBoolean(4, serverEvaluated);
+            ps.setTimestamp(5, Timestamp.valueOf(createdAt));
+            ps.setArray(6, con.createArrayOf("bigint", ids));
+            return ps;
+        }, rs -> {
+            out.put(rs.getLong("device_id"), rs.getLong("id"));
+        });
+        return out;
+    }
+
+    public int deactivate(Collection<Long> deviceIds, String appName, String action) {
+        Long[] ids = deviceIds.toArray(new Long[0]);
+        return jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(DEACTIVATE_SQL);
+            ps.setString(1, action);
+            ps.setString(2, appName);
+            ps.setArray(3, con.createArrayOf("bigint", ids));
+            return ps;
+        });
+    }
+
+    public int markServerEvaluated(Collection<Long> commandIds, boolean serverEvaluated) {
+        if (commandIds.isEmpty()) return 0;
+        Long[] ids = commandIds.toArray(new Long[0]);
+        return jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(SERVER_EVALUATED_SQL);
+            ps.setBoolean(1, serverEvaluated);
+            ps.setArray(2, con.createArrayOf("bigint", ids));
+            ps.setBoolean(3, serverEvaluated);
+            return ps;
+        });
+    }
+
+}
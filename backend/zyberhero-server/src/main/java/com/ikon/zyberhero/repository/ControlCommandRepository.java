@@ -1,8 +1,18 @@
 package com.ikon.zyberhero.repository;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import com.ikon.zyberhero.entity.CommandState;
 import com.ikon.zyberhero.entity.ControlCommand;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,5 +23,46 @@ public interface ControlCommandRepository extends JpaRepository<ControlCommand,
 
 	Optional<ControlCommand> findFirstByDeviceIdAndAppNameAndAction(Long deviceId, String appName, String action);
 
+	List<ControlCommand> findByActionAndIsActiveTrue(String action);
+
+	// Active kill orders (manual or from a schedule). They are level-triggered state sent
+	// on every poll while active, so they are read without a lock: overlapping reads of
+	// one device (poll, long-poll wake, channel push) must all see every active kill.
+	@Query("SELECT c FROM ControlCommand c WHERE c.deviceId = :deviceId AND c.isActive = true"
+			+ " AND c.action IN ('kill', 'schedule-kill') ORDER BY c.id")
+	List<ControlCommand> findActiveKills(@Param("deviceId") Long deviceId);
+
+	// One-time commands that are queued or whose lease ran out. Schedules the server
+	// evaluates (ScheduleEngine) are not delivered; others, e.g. ones the engine cannot
+	// parse, still go to the agent. Rows locked by a concurrent poll of the same device
+	// are skipped, not waited for: that poll is leasing them.
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+	@Query("SELECT c FROM ControlCommand c WHERE c.deviceId = :deviceId AND c.isActive = true"
+			+ " AND c.action NOT IN ('kill', 'schedule-kill')"
+			+ " AND (c.action <> 'schedule' OR c.serverEvaluated IS NULL OR c.serverEvaluated = false)"
+			+ " AND (c.state IS NULL OR c.state = :queued"
+			+ " OR (c.state = :leased AND c.leaseUntil < :now AND c.deliveryCount < :maxDeliveries)) ORDER BY c.id")
+	List<ControlCommand> lockDeliverable(@Param("deviceId") Long deviceId, @Param("now") LocalDateTime now,
+			@Param("maxDeliveries") int maxDeliveries, @Param("queued") CommandState queued, @Param("leased") CommandState leased);
+
+	@Modifying
+	@Query("UPDATE ControlCommand c SET c.state = :leased, c.leaseUntil = :until, c.deliveryCount = COALESCE(c.deliveryCount, 0) + 1 WHERE c.id IN :ids")
+	int lease(@Param("ids") Collection<Long> ids, @Param("until") LocalDateTime until, @Param("leased") CommandState leased);
+
+	List<ControlCommand> findByIdInAndIsActiveTrue(Collection<Long> ids);
+
+	@Modifying
+	@Query("UPDATE ControlCommand c SET c.state = :acked, c.isActive = false, c.ackedAt = :now WHERE c.id IN :ids AND c.isActive = true")
+	int ack(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now, @Param("acked") CommandState acked);
+
+	@Query("SELECT DISTINCT c.deviceId FROM ControlCommand c WHERE c.isActive = true AND c.state = :leased AND c.leaseUntil < :now")
+	List<Long> findDevicesWithLapsedLeases(@Param("now") LocalDateTime now, @Param("leased") CommandState leased);
+
+	@Modifying
+	@Query("UPDATE ControlCommand c SET c.state = :expired, c.isActive = false WHERE c.isActive = true AND c.state = :leased"
+			+ " AND c.leaseUntil < :now AND c.deliveryCount >= :maxDeliveries")
+	int expireLapsed(@Param("now") LocalDateTime now, @Param("maxDeliveries") int maxDeliveries,
+			@Param("leased") CommandState leased, @Param("expired") CommandState expired);
 
 }
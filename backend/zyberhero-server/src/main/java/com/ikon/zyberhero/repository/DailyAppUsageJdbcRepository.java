@@ -0,0 +1,104 @@
+package com.ikon.zyberhero.repository;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import com.ikon.zyberhero.config.IngestProperties;
+
+@Repository
+@RequiredArgsConstructor
+public class DailyAppUsageJdbcRepository {
+
+    // Adds to the existing totals. The title is only replaced while it is still
+    // empty or just the app name, same as the in-memory summary did.
+    private static final String UPSERT_ADD_SQL = "INSERT INTO daily_app_usage "
+            + "(device_id, usage_date, app, focused_seconds, screen_seconds, window_title, updated_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?) "
+            + "ON CONFLICT (device_id, usage_date, app) DO UPDATE SET "
+            + "focused_seconds = daily_app_usage.focused_seconds + EXCLUDED.focused_seconds, "
+            + "screen_seconds = daily_app_usage.screen_seconds + EXCLUDED.screen_seconds, "
+            + "window_title = CASE WHEN daily_app_usage.window_title IS NULL OR daily_app_usage.window_title = daily_app_usage.app "
+            + "THEN EXCLUDED.window_title ELSE daily_app_usage.window_title END, "
+            + "updated_at = EXCLUDED.updated_at";
+
+    private static final String SELECT_BY_DATE_SQL = "SELECT app, SUM(focused_seconds) AS focused, SUM(screen_seconds) AS screen, "
+            + "MIN(window_title) AS window_title FROM daily_app_usage WHERE usage_date = ? ";
+
+    private static final RowMapper<AppUsageRow> APP_USAGE_ROW = (rs, i) -> new AppUsageRow(
+            rs.getString("app"), rs.getLong("focused"), rs.getLong("screen"), rs.getString("window_title"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final IngestProperties ingestProperties;
+
+    public record UsageDelta(Long deviceId, LocalDate usageDate, String app, long focusedSeconds, long screenSeconds, String windowTitle) {}
+
+    public record AppUsageRow(String app, long focusedSeconds, long screenSeconds, String windowTitle) {}
+
+    // Deltas must be unique per (device, date, app). They are written in key order
+    // so concurrent writers lock rows in the same order.
+    public void upsertAdd(List<UsageDelta> deltas) {
+        if (deltas == null || deltas.isEmpty()) return;
+        List<UsageDelta> sorted = new ArrayList<>(deltas);
+        sorted.sort(Comparator.comparing(UsageDelta::deviceId).thenComparing(UsageDelta::usageDate).thenComparing(UsageDelta::app));
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(UPSERT_ADD_SQL, sorted, ingestProperties.getJdbcBatchSize(), (ps, d) -> {
+            ps.setLong(1, d.deviceId());
+            ps.setDate(2, Date.valueOf(d.usageDate()));
+            ps.setString(3, d.app());
+            ps.setLong(4, d.focusedSeconds());
+            ps.setLong(5, d.screenSeconds());
+            ps.setString(6, d.windowTitle());
+            ps.setTimestamp(7, now);
+        });
+    }
+
+    public int deleteByDate(LocalDate date) {
+        return jdbcTemplate.update("DELETE FROM daily_app_usage WHERE usage_date = ?", Date.valueOf(date));
+    }
+
+    public boolean isEmpty() {
+        return jdbcTemplate.queryForList("SELECT 1 FROM daily_app_usage LIMIT 1").isEmpty();
+    }
+
+    // Most recent day with usage for the given devices (all devices when empty), or null.
+    public LocalDate findLatestDate(List<Long> deviceIds) {
+        Date latest;
+        if (deviceIds == null || deviceIds.isEmpty()) {
+            latest = jdbcTemplate.queryForObject("SELECT MAX(usage_date) FROM daily_app_usage", Date.class);
+        } else {
+            Long[] ids = deviceIds.toArray(new Long[0]);
+            latest = jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement("SELECT MAX(usage_date) FROM daily_app_usage WHERE device_id = ANY(?)");
+                ps.setArray(1, con.createArrayOf("bigint", ids));
+                return ps;
+            }, rs -> rs.next() ? rs.getDate(1) : null);
+        }
+        return latest == null ? null : latest.toLocalDate();
+    }
+
+    // One row per app for the day, summed over the given devices (all devices when empty).
+    public List<AppUsageRow> findByDate(LocalDate date, List<Long> deviceIds) {
+        if (deviceIds == null || deviceIds.isEmpty()) {
+            return jdbcTemplate.query(SELECT_BY_DATE_SQL + "GROUP BY app", APP_USAGE_ROW, Date.valueOf(date));
+        }
+        Long[] ids = deviceIds.toArray(new Long[0]);
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(SELECT_BY_DATE_SQL + "AND device_id = ANY(?) GROUP BY app");
+            ps.setDate(1, Date.valueOf(date));
+            ps.setArray(2, con.createArrayOf("bigint", ids));
+            return ps;
+        }, APP_USAGE_ROW);
+    }
+
+}
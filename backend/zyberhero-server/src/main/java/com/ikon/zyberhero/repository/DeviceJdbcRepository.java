@@ -0,0 +1,41 @@
+package com.ikon.zyberhero.repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+@Repository
+@RequiredArgsConstructor
+public class DeviceJdbcRepository {
+
+    // One statement for the whole set; never moves last_seen backwards.
+    private static final String UPDATE_LAST_SEEN_SQL = "UPDATE device d SET last_seen = v.last_seen "
+            + "FROM unnest(?::bigint[], ?::timestamp[]) AS v(id, last_seen) "
+            + "WHERE d.id = v.id AND (d.last_seen IS NULL OR d.last_seen < v.last_seen)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public int updateLastSeen(Map<Long, LocalDateTime> lastSeenById) {
+        if (lastSeenById == null || lastSeenById.isEmpty()) return 0;
+        Long[] ids = new Long[lastSeenById.size()];
+        Timestamp[] times = new Timestamp[lastSeenById.size()];
+        int i = 0;
+        for (Map.Entry<Long, LocalDateTime> e : lastSeenById.entrySet()) {
+            ids[i] = e.getKey();
+            times[i] = Timestamp.valueOf(e.getValue());
+            i++;
+        }
+        return jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(UPDATE_LAST_SEEN_SQL);
+            ps.setArray(1, con.createArrayOf("bigint", ids));
+            ps.setArray(2, con.createArrayOf("timestamp", times));
+            return ps;
+        });
+    }
+
+}
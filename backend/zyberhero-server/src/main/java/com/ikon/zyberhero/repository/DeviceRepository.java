@@ -4,6 +4,7 @@ import java.util.Optional;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import com.ikon.zyberhero.entity.Device;
@@ -14,4 +15,7 @@ public interface DeviceRepository extends JpaRepository<Device, Long> {
     Optional<Device> findFirstByMacAddress(String macAddress);
     Optional<Device> findFirstByMachineName(String machineName);
     List<Device> findByChildId(Integer childId);
+
+    @Query("SELECT d.id FROM Device d ORDER BY d.id")
+    List<Long> findAllIds();
 }
@@ -0,0 +1,76 @@
+package com.ikon.zyberhero.repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import com.ikon.zyberhero.config.IngestProperties;
+
+@Repository
+@RequiredArgsConstructor
+public class HourlyAppUsageJdbcRepository {
+
+    private static final String UPSERT_ADD_SQL = "INSERT INTO hourly_app_usage "
+            + "(device_id, usage_hour, app, focused_seconds, screen_seconds) VALUES (?, ?, ?, ?, ?) "
+            + "ON CONFLICT (device_id, usage_hour, app) DO UPDATE SET "
+            + "focused_seconds = hourly_app_usage.focused_seconds + EXCLUDED.focused_seconds, "
+            + "screen_seconds = hourly_app_usage.screen_seconds + EXCLUDED.screen_seconds";
+
+    // devices are summed together; one row per (hour, app)
+    private static final String SELECT_RANGE_SQL = "SELECT usage_hour, app, SUM(focused_seconds) AS focused, SUM(screen_seconds) AS screen "
+            + "FROM hourly_app_usage WHERE usage_hour >= ? AND usage_hour < ? ";
+
+    private static final RowMapper<HourUsageRow> HOUR_USAGE_ROW = (rs, i) -> new HourUsageRow(
+            rs.getTimestamp("usage_hour").toLocalDateTime(), rs.getString("app"), rs.getLong("focused"), rs.getLong("screen"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final IngestProperties ingestProperties;
+
+    public record HourDelta(Long deviceId, LocalDateTime usageHour, String app, long focusedSeconds, long screenSeconds) {}
+
+    public record HourUsageRow(LocalDateTime usageHour, String app, long focusedSeconds, long screenSeconds) {}
+
+    // Deltas must be unique per (device, hour, app); written in key order like the daily rollup.
+    public void upsertAdd(List<HourDelta> deltas) {
+        if (deltas == null || deltas.isEmpty()) return;
+        List<HourDelta> sorted = new ArrayList<>(deltas);
+        sorted.sort(Comparator.comparing(HourDelta::deviceId).thenComparing(HourDelta::usageHour).thenComparing(HourDelta::app));
+        jdbcTemplate.batchUpdate(UPSERT_ADD_SQL, sorted, ingestProperties.getJdbcBatchSize(), (ps, d) -> {
+            ps.setLong(1, d.deviceId());
+            ps.setTimestamp(2, Timestamp.valueOf(d.usageHour()));
+            ps.setString(3, d.app());
+            ps.setLong(4, d.focusedSeconds());
+            ps.setLong(5, d.screenSeconds());
+        });
+    }
+
+    public int deleteBetween(LocalDateTime start, LocalDateTime end) {
+        return jdbcTemplate.update("DELETE FROM hourly_app_usage WHERE usage_hour >= ? AND usage_hour < ?",
+                Timestamp.valueOf(start), Timestamp.valueOf(end));
+    }
+
+    public boolean isEmpty() {
+        return jdbcTemplate.queryForList("SELECT 1 FROM hourly_app_usage LIMIT 1").isEmpty();
+    }
+
+    public List<HourUsageRow> findBetween(LocalDateTime start, LocalDateTime end, List<Long> deviceIds) {
+        boolean allDevices = deviceIds == null || deviceIds.isEmpty();
+        String sql = SELECT_RANGE_SQL + (allDevices ? "" : "AND device_id = ANY(?) ") + "GROUP BY usage_hour, app";
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setTimestamp(1, Timestamp.valueOf(start));
+            ps.setTimestamp(2, Timestamp.valueOf(end));
+            if (!allDevices) ps.setArray(3, con.createArrayOf("bigint", deviceIds.toArray()));
+            return ps;
+        }, HOUR_USAGE_ROW);
+    }
+
+}
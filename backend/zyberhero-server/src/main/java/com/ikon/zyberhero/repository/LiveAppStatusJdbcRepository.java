@@ -0,0 +1,69 @@
+package com.ikon.zyberhero.repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+@Repository
+@RequiredArgsConstructor
+public class LiveAppStatusJdbcRepository {
+
+    // One statement for every reported app; the id comes from the column default
+    // (live_app_status_seq). Relies on the (device_id, app_name) unique constraint,
+    // so concurrent heartbeats for one device can no longer collide on insert.
+    private static final String UPSERT_RUNNING_SQL = "INSERT INTO live_app_status (device_id, app_name, window_title, is_running, last_seen) "
+            + "SELECT ?, v.app_name, v.window_title, true, v.last_seen "
+            + "FROM unnest(?::varchar[], ?::varchar[], ?::timestamp[]) AS v(app_name, window_title, last_seen) "
+            + "ON CONFLICT (device_id, app_name) DO UPDATE SET "
+            + "window_title = EXCLUDED.window_title, is_running = true, last_seen = EXCLUDED.last_seen";
+
+    private static final String STOP_OTHERS_SQL = "UPDATE live_app_status SET is_running = false "
+            + "WHERE device_id = ? AND is_running AND app_name <> ALL(?::varchar[])";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public record RunningApp(String appName, String windowTitle, LocalDateTime lastSeen) {}
+
+    // Makes apps the device's complete running set in two statements.
+    public void replaceRunning(Long deviceId, Collection<RunningApp> apps) {
+        // ON CONFLICT cannot touch the same row twice in one statement, so last report wins
+        Map<String, RunningApp> byName = new LinkedHashMap<>();
+        for (RunningApp a : apps) byName.put(a.appName(), a);
+
+        String[] names = new String[byName.size()];
+        String[] titles = new String[byName.size()];
+        Timestamp[] seen = new Timestamp[byName.size()];
+        int i = 0;
+        for (RunningApp a : byName.values()) {
+            names[i] = a.appName();
+            titles[i] = a.windowTitle();
+            seen[i] = Timestamp.valueOf(a.lastSeen() == null ? LocalDateTime.now() : a.lastSeen());
+            i++;
+        }
+
+        if (names.length > 0) {
+            jdbcTemplate.update(con -> {
+                PreparedStatement ps = con.prepareStatement(UPSERT_RUNNING_SQL);
+                ps.setLong(1, deviceId);
+                ps.setArray(2, con.createArrayOf("varchar", names));
+                ps.setArray(3, con.createArrayOf("varchar", titles));
+                ps.setArray(4, con.createArrayOf("timestamp", seen));
+                return ps;
+            });
+        }
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(STOP_OTHERS_SQL);
+            ps.setLong(1, deviceId);
+            ps.setArray(2, con.createArrayOf("varchar", names));
+            return ps;
+        });
+    }
+
+}
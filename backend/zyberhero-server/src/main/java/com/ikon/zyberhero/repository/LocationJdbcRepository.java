@@ -0,0 +1,186 @@
+package com.ikon.zyberhero.repository;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import com.ikon.zyberhero.config.IngestProperties;
+import com.ikon.zyberhero.entity.Location;
+
+@Repository
+@RequiredArgsConstructor
+public class LocationJdbcRepository {
+
+    private static final String INSERT_SQL = "INSERT INTO locations "
+            + "(timestamp, latitude, longitude, accuracy, altitude, device_id) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String SELECT_COLUMNS = "SELECT id, timestamp, latitude, longitude, accuracy, altitude, device_id FROM locations ";
+
+    private static final RowMapper<Location> LOCATION_ROW = (rs, i) -> {
+        Location l = new Location();
+        l.setId(rs.getLong("id"));
+        l.setTimestamp(rs.getTimestamp("timestamp").toLocalDateTime());
+        l.setLatitude(getDouble(rs, "latitude"));
+        l.setLongitude(getDouble(rs, "longitude"));
+        l.setAccuracy(getDouble(rs, "accuracy"));
+        l.setAltitude(getDouble(rs, "altitude"));
+        l.setDeviceId(rs.getLong("device_id"));
+        return l;
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final IngestProperties ingestProperties;
+
+    // (timestamp, id) position of a row in a device's history
+    public record Cursor(LocalDateTime timestamp, long id) {}
+
+    // JDBC batches of jdbcBatchSize rows; the ids the column default generated are
+    // read back (in batch order) and set on the given entities.
+    public void batchInsert(List<Location> locations) {
+        if (locations == null || locations.isEmpty()) return;
+        int chunk = Math.max(1, ingestProperties.getJdbcBatchSize());
+        jdbcTemplate.execute((ConnectionCallback<Void>) con -> {
+            try (PreparedStatement ps = con.prepareStatement(INSERT_SQL, new String[] { "id" })) {
+                for (int from = 0; from < locations.size(); from += chunk) {
+                    List<Location> part = locations.subList(from, Math.min(from + chunk, locations.size()));
+                    for (Location l : part) {
+                        ps.setTimestamp(1, l.getTimestamp() == null ? null : Timestamp.valueOf(l.getTimestamp()));
+                        setDouble(ps, 2, l.getLatitude());
+                        setDouble(ps, 3, l.getLongitude());
+                        setDouble(ps, 4, l.getAccuracy());
+                        setDouble(ps, 5, l.getAltitude());
+                        ps.setLong(6, l.getDeviceId());
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                    try (ResultSet keys = ps.getGeneratedKeys()) {
+                        for (Location l : part) {
+                            if (!keys.next()) throw new SQLException("Missing generated id for location batch row");
+                            l.setId(keys.getLong(1));
+                        }
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    // One page of a device's history, newest first, walking idx_locations_device_ts_id.
+    // before: rows strictly older than the cursor; after: rows strictly newer (the page
+    // nearest to the cursor). from/to optionally bound the timestamp, to exclusive.
+    public List<Location> findPage(Long deviceId, LocalDateTime from, LocalDateTime to, Cursor before, Cursor after, int limit) {
+        StringBuilder sql = new StringBuilder(SELECT_COLUMNS).append("WHERE device_id = ?");
+        List<Object> args = new ArrayList<>();
+        args.add(deviceId);
+        if (from != null) {
+            sql.append(" AND timestamp >= ?");
+            args.add(Timestamp.valueOf(from));
+        }
+        if (to != null) {
+            sql.append(" AND timestamp < ?");
+            args.add(Timestamp.valueOf(to));
+        }
+        if (before != null) {
+            sql.append(" AND (timestamp, id) < (?, ?)");
+            args.add(Timestamp.valueOf(before.timestamp()));
+            args.add(before.id());
+        }
+        if (after != null) {
+            sql.append(" AND (timestamp, id) > (?, ?)");
+            args.add(Timestamp.valueOf(after.timestamp()));
+            args.add(after.id());
+        }
+        // walking forward from an after cursor, then flipped so every page reads newest first
+        sql.append(after != null ? " ORDER BY timestamp ASC, id ASC" : " ORDER BY timestamp DESC, id DESC");
+        sql.append(" LIMIT ?");
+        args.add(limit);
+        List<Location> rows = jdbcTemplate.query(sql.toString(), LOCATION_ROW, args.toArray());
+        if (after != null) Collections.reverse(rows);
+        return rows;
+    }
+
+    // Newest fix of each given device, one index probe per device.
+    public Map<Long, Location> findLatest(Collection<? extends Long> deviceIds) {
+        Map<Long, Location> out = new HashMap<>();
+        if (deviceIds == null || deviceIds.isEmpty()) return out;
+        Long[] ids = deviceIds.toArray(new Long[0]);
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement("SELECT DISTINCT ON (device_id) id, timestamp, latitude, longitude, accuracy, altitude, device_id "
+                    + "FROM locations WHERE device_id = ANY(?) ORDER BY device_id, timestamp DESC, id DESC");
+            ps.setArray(1, con.createArrayOf("bigint", ids));
+            return ps;
+        }, rs -> {
+            Location l = LOCATION_ROW.mapRow(rs, 0);
+            out.put(l.getDeviceId(), l);
+        });
+        return out;
+    }
+
+    // Devices with fixes in [from, to).
+    public List<Long> findDeviceIdsBetween(LocalDateTime from, LocalDateTime to) {
+        return jdbcTemplate.queryForList("SELECT DISTINCT device_id FROM locations WHERE timestamp >= ? AND timestamp < ? AND device_id IS NOT NULL",
+                Long.class, Timestamp.valueOf(from), Timestamp.valueOf(to));
+    }
+
+    // A device's fixes in [from, to), oldest first.
+    // devices whose track for the day LocationCompactionJob has already simplified
+    public Set<Long> findCompactedDeviceIds(LocalDate day) {
+        return new HashSet<>(jdbcTemplate.queryForList("SELECT device_id FROM location_compaction_marks WHERE day = ?",
+                Long.class, Date.valueOf(day)));
+    }
+
+    public void markCompacted(Long deviceId, LocalDate day) {
+        jdbcTemplate.update("INSERT INTO location_compaction_marks (device_id, day) VALUES (?, ?) ON CONFLICT DO NOTHING",
+                deviceId, Date.valueOf(day));
+    }
+
+    public List<Location> findTrack(Long deviceId, LocalDateTime from, LocalDateTime to) {
+        return jdbcTemplate.query(SELECT_COLUMNS + "WHERE device_id = ? AND timestamp >= ? AND timestamp < ? ORDER BY timestamp, id",
+                LOCATION_ROW, deviceId, Timestamp.valueOf(from), Timestamp.valueOf(to));
+    }
+
+    // The timestamp range lets Postgres prune to the partitions holding the rows.
+    public int deleteByIds(Long deviceId, LocalDateTime from, LocalDateTime to, Collection<Long> ids) {
+        if (ids == null || ids.isEmpty()) return 0;
+        Long[] idArray = ids.toArray(new Long[0]);
+        return jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "DELETE FROM locations WHERE device_id = ? AND timestamp >= ? AND timestamp < ? AND id = ANY(?)");
+            ps.setLong(1, deviceId);
+            ps.setTimestamp(2, Timestamp.valueOf(from));
+            ps.setTimestamp(3, Timestamp.valueOf(to));
+            ps.setArray(4, con.createArrayOf("bigint", idArray));
+            return ps;
+        });
+    }
+
+    private static Double getDouble(ResultSet rs, String column) throws SQLException {
+        double v = rs.getDouble(column);
+        return rs.wasNull() ? null : v;
+    }
+
+    private static void setDouble(PreparedStatement ps, int index, Double value) throws java.sql.SQLException {
+        if (value != null) ps.setDouble(index, value);
+        else ps.setNull(index, Types.DOUBLE);
+    }
+
+}
@@ -1,63 +1,182 @@
 package com.ikon.zyberhero.service;
 
-import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.ikon.zyberhero.config.IngestProperties;
+import com.ikon.zyberhero.dto.request.ActivityBatchRequestDto;
 import com.ikon.zyberhero.dto.request.ActivityCreateRequestDto;
 import com.ikon.zyberhero.dto.response.ActivityResponseDto;
+import com.ikon.zyberhero.dto.response.BatchResultResponseDto;
 import com.ikon.zyberhero.entity.ActivityLog;
-import com.ikon.zyberhero.entity.Device;
 import com.ikon.zyberhero.mapper.ActivityMapper;
+import com.ikon.zyberhero.repository.ActivityLogJdbcRepository;
 import com.ikon.zyberhero.repository.ActivityLogRepository;
-import com.ikon.zyberhero.repository.DeviceRepository;
 
 @Service
 @RequiredArgsConstructor
 public class ActivityService {
 
+    private static final Logger log = LoggerFactory.getLogger(ActivityService.class);
+
+    // activity_logs text columns are varchar(255)
+    private static final int MAX_TEXT = 255;
+
     private final ActivityLogRepository activityLogRepository;
-    private final DeviceRepository deviceRepository;
+    private final ActivityLogJdbcRepository activityLogJdbcRepository;
+    private final DeviceResolver deviceResolver;
     private final ActivityMapper activityMapper;
+    private final DeviceHeartbeatTracker heartbeatTracker;
+    private final IngestProperties ingestProperties;
+    private final UsageRollupService usageRollupService;
 
     @Transactional
     public Long createActivity(ActivityCreateRequestDto req) {
-        if (req.getAppName() == null || req.getAppName().trim().isEmpty()) {
-            throw new IllegalArgumentException("Missing required field: appName");
-        }
+        String error = invalid(req);
+        if (error != null) throw new IllegalArgumentException(error);
 
-        Long resolvedDeviceId = null;
-        if (req.getDeviceId() != null) resolvedDeviceId = req.getDeviceId();
-        else if (req.getDeviceUuid() != null) {
-            Device d = deviceRepository.findByDeviceUuid(req.getDeviceUuid()).orElseThrow(() -> new IllegalArgumentException("Device not registered"));
-            resolvedDeviceId = d.getId();
-        } else {
-            throw new IllegalArgumentException("deviceUuid or deviceId required");
-        }
+        Long resolvedDeviceId = deviceResolver.requireId(req.getDeviceId(), req.getDeviceUuid());
 
-    ActivityLog log = activityMapper.mapFromDto(req);
+    ActivityLog log = toLog(req);
     log.setDeviceId(resolvedDeviceId);
     ActivityLog saved = activityLogRepository.save(log);
+        usageRollupService.record(List.of(saved));
 
-        // update device lastSeen
-        deviceRepository.findById(resolvedDeviceId).ifPresent(d -> {
-            d.setLastSeen(LocalDateTime.now());
-            deviceRepository.save(d);
-        });
+        heartbeatTracker.touch(resolvedDeviceId);
 
         return saved.getId();
     }
 
+    @Transactional
+    public BatchResultResponseDto createActivityBatch(ActivityBatchRequestDto req) {
+        List<ActivityCreateRequestDto> items = req.getActivities();
+        if (items == null || items.isEmpty()) {
+            throw new IllegalArgumentException("Missing required field: activities");
+        }
+        if (items.size() > ingestProperties.getBatchMaxItems()) {
+            throw new IllegalArgumentException("Too many activities in batch (max " + ingestProperties.getBatchMaxItems() + ")");
+        }
+
+        // the whole batch belongs to one device, resolved once
+        Long deviceId = req.getDeviceId();
+        String deviceUuid = req.getDeviceUuid();
+        if (deviceId == null && deviceUuid == null) {
+            deviceId = items.get(0).getDeviceId();
+            deviceUuid = items.get(0).getDeviceUuid();
+        }
+        Long resolvedDeviceId = deviceResolver.requireId(deviceId, deviceUuid);
+
+        List<ActivityLog> logs = new ArrayList<>(items.size());
+        List<BatchResultResponseDto.ItemResultDto> results = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            ActivityCreateRequestDto item = items.get(i);
+            // checked per item: one row the table rejects would fail the whole JDBC batch
+            String error = item == null ? "Empty entry" : invalid(item);
+
+            if (error == null) {
+                ActivityLog l = toLog(item);
+                l.setDeviceId(resolvedDeviceId);
+                logs.add(l);
+            }
+            results.add(itemResult(i, error));
+        }
+
+        activityLogJdbcRepository.batchInsert(logs);
+        usageRollupService.record(logs);
+
+        if (!logs.isEmpty()) heartbeatTracker.touch(resolvedDeviceId);
+
+        BatchResultResponseDto res = new BatchResultResponseDto();
+        res.setAccepted(logs.size());
+        res.setRejected(items.size() - logs.size());
+        res.setResults(results);
+        return res;
+    }
+
+    // Group commit for the async ingest pipeline: one transaction per drained batch,
+    // device lookups done once per distinct device in the batch.
+    @Transactional
+    public void ingestQueued(List<ActivityCreateRequestDto> items) {
+        Map<String, Long> resolved = new HashMap<>();
+        List<ActivityLog> logs = new ArrayList<>(items.size());
+        for (ActivityCreateRequestDto item : items) {
+            String key = item.getDeviceId() != null ? "id:" + item.getDeviceId() : "uuid:" + item.getDeviceUuid();
+            Long deviceId;
+            if (resolved.containsKey(key)) {
+                deviceId = resolved.get(key);
+            } else {
+                try {
+                    deviceId = deviceResolver.requireId(item.getDeviceId(), item.getDeviceUuid());
+                } catch (IllegalArgumentException ex) {
+                    log.warn("Dropping queued activity for {}: {}", key, ex.getMessage());
+                    deviceId = null;
+                }
+                resolved.put(key, deviceId);
+            }
+            if (deviceId == null) continue;
+            String error = invalid(item);
+            if (error != null) {
+                log.warn("Dropping queued activity for {}: {}", key, error);
+                continue;
+            }
+            ActivityLog l = toLog(item);
+            l.setDeviceId(deviceId);
+            logs.add(l);
+        }
+
+        activityLogJdbcRepository.batchInsert(logs);
+        usageRollupService.record(logs);
+        logs.stream().map(ActivityLog::getDeviceId).distinct().forEach(heartbeatTracker::touch);
+    }
+
     @Transactional(readOnly = true)
     public List<ActivityResponseDto> listRecent() {
         var page = activityLogRepository.findAll(PageRequest.of(0, 100, Sort.by(Sort.Direction.DESC, "timestamp")));
         return page.stream().map(activityMapper::mapToDto).collect(Collectors.toList());
     }
 
+    private static String invalid(ActivityCreateRequestDto item) {
+        if (item.getAppName() == null || item.getAppName().trim().isEmpty()) return "Missing required field: appName";
+        if (item.getAppName().length() > MAX_TEXT) return "appName longer than " + MAX_TEXT + " characters";
+        if (item.getDurationSeconds() != null && item.getDurationSeconds() < 0) return "durationSeconds must not be negative";
+        return null;
+    }
+
+    // Window titles and paths are descriptive, so overlong ones are cut to the column
+    // instead of rejecting the item; NUL characters, which Postgres rejects, are dropped.
+    private ActivityLog toLog(ActivityCreateRequestDto item) {
+        ActivityLog l = activityMapper.mapFromDto(item);
+        l.setAppName(fit(l.getAppName()));
+        l.setWindowTitle(fit(l.getWindowTitle()));
+        l.setExecutablePath(fit(l.getExecutablePath()));
+        return l;
+    }
+
+    private static String fit(String s) {
+        if (s == null) return null;
+        if (s.indexOf('\0') >= 0) s = s.replace("\0", "");
+        if (s.length() <= MAX_TEXT) return s;
+        // do not split a surrogate pair
+        return s.substring(0, Character.isHighSurrogate(s.charAt(MAX_TEXT - 1)) ? MAX_TEXT - 1 : MAX_TEXT);
+    }
+
+    private BatchResultResponseDto.ItemResultDto itemResult(int index, String error) {
+        BatchResultResponseDto.ItemResultDto r = new BatchResultResponseDto.ItemResultDto();
+        r.setIndex(index);
+        r.setStatus(error == null ? "accepted" : "rejected");
+        r.setError(error);
+        return r;
+    }
+
 }
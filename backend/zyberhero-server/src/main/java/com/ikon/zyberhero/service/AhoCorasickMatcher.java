@@ -0,0 +1,81 @@
+package com.ikon.zyberhero.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Multi-pattern substring matcher: one pass over the text finds every pattern.
+// Patterns are given in priority order and match() reports the best-ranked one.
+final class AhoCorasickMatcher {
+
+    private final List<Map<Character, Integer>> next = new ArrayList<>();
+    private final int[] fail;
+    // best-ranked pattern ending at each node, following failure links; -1 for none
+    private final int[] best;
+
+    AhoCorasickMatcher(List<String> patterns) {
+        List<Integer> own = new ArrayList<>();
+        next.add(new HashMap<>());
+        own.add(-1);
+        for (int i = 0; i < patterns.size(); i++) {
+            String p = patterns.get(i);
+            if (p == null || p.isEmpty()) continue;
+            int node = 0;
+            for (int c = 0; c < p.length(); c++) {
+                char ch = p.charAt(c);
+                Integer n = next.get(node).get(ch);
+                if (n == null) {
+                    n = next.size();
+                    next.add(new HashMap<>());
+                    own.add(-1);
+                    next.get(node).put(ch, n);
+                }
+                node = n;
+            }
+            if (own.get(node) < 0) own.set(node, i);
+        }
+
+        fail = new int[next.size()];
+        best = new int[next.size()];
+        for (int i = 0; i < best.length; i++) best[i] = own.get(i);
+
+        // breadth-first so a node's failure target is final before its children use it
+        ArrayDeque<Integer> queue = new ArrayDeque<>(next.get(0).values());
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            for (Map.Entry<Character, Integer> e : next.get(node).entrySet()) {
+                int child = e.getValue();
+                int f = fail[node];
+                while (f > 0 && !next.get(f).containsKey(e.getKey())) f = fail[f];
+                Integer target = next.get(f).get(e.getKey());
+                fail[child] = target == null ? 0 : target;
+                best[child] = better(best[child], best[fail[child]]);
+                queue.add(child);
+            }
+        }
+    }
+
+    // index of the best-ranked pattern contained in text, or -1
+    int match(String text) {
+        int node = 0;
+        int found = -1;
+        for (int i = 0; i < text.length(); i++) {
+            char ch = text.charAt(i);
+            while (node > 0 && !next.get(node).containsKey(ch)) node = fail[node];
+            Integer n = next.get(node).get(ch);
+            node = n == null ? 0 : n;
+            found = better(found, best[node]);
+            if (found == 0) break;
+        }
+        return found;
+    }
+
+    private static int better(int a, int b) {
+        if (a < 0) return b;
+        if (b < 0) return a;
+        return Math.min(a, b);
+    }
+
+}
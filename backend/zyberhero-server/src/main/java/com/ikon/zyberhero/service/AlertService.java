@@ -8,23 +8,31 @@ import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.ikon.zyberhero.dto.request.AlertCreateRequestDto;
 import com.ikon.zyberhero.dto.response.AlertResponseDto;
 import com.ikon.zyberhero.entity.Alert;
-import com.ikon.zyberhero.entity.Device;
 import com.ikon.zyberhero.mapper.AlertMapper;
 import com.ikon.zyberhero.repository.AlertRepository;
-import com.ikon.zyberhero.repository.DeviceRepository;
 
 @Service
 @RequiredArgsConstructor
 public class AlertService {
 
     private final AlertRepository alertRepository;
-    private final DeviceRepository deviceRepository;
+    private final DeviceResolver deviceResolver;
     private final AlertMapper alertMapper;
+    private final EventStreamBroadcaster broadcaster;
+    private final ResourceVersions versions;
+
+    // For alerts raised from another transaction's afterCommit callback (where a
+    // REQUIRED call would join the finished transaction) or that must not roll it back.
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public Long createAlertInNewTransaction(AlertCreateRequestDto req) throws Exception {
+        return createAlert(req);
+    }
 
     @Transactional
     public Long createAlert(AlertCreateRequestDto req) throws Exception {
@@ -32,18 +40,13 @@ public class AlertService {
             throw new IllegalArgumentException("Missing required field: type");
         }
 
-        Long resolvedDeviceId = null;
-        if (req.getDeviceId() != null) resolvedDeviceId = req.getDeviceId();
-        else if (req.getDeviceUuid() != null) {
-            Device d = deviceRepository.findByDeviceUuid(req.getDeviceUuid()).orElseThrow(() -> new IllegalArgumentException("Device not registered"));
-            resolvedDeviceId = d.getId();
-        } else {
-            throw new IllegalArgumentException("deviceUuid or deviceId required");
-        }
+        Long resolvedDeviceId = deviceResolver.requireId(req.getDeviceId(), req.getDeviceUuid());
 
         Alert a = alertMapper.mapFromDto(req);
         a.setDeviceId(resolvedDeviceId);
         Alert saved = alertRepository.save(a);
+        broadcaster.publish("alert", resolvedDeviceId, toDto(saved));
+        versions.bump(ResourceVersions.Kind.ALERTS, resolvedDeviceId);
         return saved.getId();
     }
 
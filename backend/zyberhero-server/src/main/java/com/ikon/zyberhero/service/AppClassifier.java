@@ -0,0 +1,131 @@
+package com.ikon.zyberhero.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ikon.zyberhero.entity.AppClassificationRule;
+import com.ikon.zyberhero.repository.AppClassificationRuleRepository;
+
+// Maps a raw (appName, windowTitle) pair to the app key shown in summaries,
+// e.g. a chrome window titled "... - YouTube" counts as "youtube".
+// Rules come from app_classification_rules; all patterns of an app are compiled
+// into one matcher, and results for repeated pairs are cached until the next reload.
+@Component
+public class AppClassifier {
+
+    private static final Logger log = LoggerFactory.getLogger(AppClassifier.class);
+
+    private final AppClassificationRuleRepository ruleRepository;
+    private final long cacheSize;
+
+    private volatile Compiled compiled;
+
+    private record Rule(String appName, String pattern, String target) {}
+
+    private static final class Compiled {
+        final List<Rule> rules;
+        final Map<String, AhoCorasickMatcher> matchers = new LinkedHashMap<>();
+        final Map<String, List<String>> targets = new LinkedHashMap<>();
+        final Cache<String, String> results;
+
+        Compiled(List<Rule> rules, long cacheSize) {
+            this.rules = rules;
+            Map<String, List<String>> patterns = new LinkedHashMap<>();
+            for (Rule r : rules) {
+                patterns.computeIfAbsent(r.appName(), k -> new ArrayList<>()).add(r.pattern());
+                targets.computeIfAbsent(r.appName(), k -> new ArrayList<>()).add(r.target());
+            }
+            patterns.forEach((app, list) -> matchers.put(app, new AhoCorasickMatcher(list)));
+            this.results = Caffeine.newBuilder().maximumSize(cacheSize).build();
+        }
+    }
+
+    public AppClassifier(AppClassificationRuleRepository ruleRepository,
+            @Value("${zyberhero.classifier.cache-size:100000}") long cacheSize) {
+        this.ruleRepository = ruleRepository;
+        this.cacheSize = cacheSize;
+        this.compiled = new Compiled(defaultRules(), cacheSize);
+    }
+
+    @PostConstruct
+    public void init() {
+        try {
+            if (ruleRepository.count() == 0) {
+                List<AppClassificationRule> seed = new ArrayList<>();
+                int priority = 10;
+                for (Rule r : defaultRules()) {
+                    seed.add(new AppClassificationRule(null, r.appName(), r.pattern(), r.target(), priority, true));
+                    priority += 10;
+                }
+                ruleRepository.saveAll(seed);
+                log.info("Seeded {} default app classification rules", seed.size());
+            }
+        } catch (Exception ex) {
+            log.warn("Could not seed app classification rules: {}", ex.getMessage());
+        }
+        reload();
+    }
+
+    @Scheduled(fixedDelayString = "${zyberhero.classifier.reload-interval-ms:60000}", initialDelayString = "${zyberhero.classifier.reload-interval-ms:60000}")
+    public void reload() {
+        List<Rule> rules;
+        try {
+            rules = new ArrayList<>();
+            for (AppClassificationRule r : ruleRepository.findByEnabledTrueOrderByPriorityAscIdAsc()) {
+                if (r.getAppName() == null || r.getPattern() == null || r.getPattern().isEmpty() || r.getTarget() == null) continue;
+                rules.add(new Rule(r.getAppName(), r.getPattern().toLowerCase(Locale.ROOT), r.getTarget()));
+            }
+        } catch (Exception ex) {
+            log.warn("App classification rules not reloaded: {}", ex.getMessage());
+            return;
+        }
+        if (rules.equals(compiled.rules)) return;
+        compiled = new Compiled(rules, cacheSize);
+        log.info("Loaded {} app classification rules", rules.size());
+    }
+
+    public String classify(String appName, String windowTitle) {
+        String app = appName == null ? "unknown" : appName;
+        Compiled c = compiled;
+        AhoCorasickMatcher matcher = c.matchers.get(app);
+        if (matcher == null) return app;
+
+        String title = windowTitle == null ? "" : windowTitle;
+        return c.results.get(app + '\n' + title, k -> {
+            int i = matcher.match(title.toLowerCase(Locale.ROOT));
+            return i < 0 ? app : c.targets.get(app).get(i);
+        });
+    }
+
+    // apps whose activity is split by window title; everything else keeps its app name
+    public Set<String> appsWithRules() {
+        return compiled.matchers.keySet();
+    }
+
+    // the mapping summaries used before rules became configurable
+    private static List<Rule> defaultRules() {
+        return List.of(
+                new Rule("chrome", "google chat", "google-chat"),
+                new Rule("chrome", "chat.google.com", "google-chat"),
+                new Rule("chrome", "whatsapp", "whatsapp"),
+                new Rule("chrome", "youtube", "youtube"),
+                new Rule("chrome", "gmail", "gmail"),
+                new Rule("chrome", "netflix", "netflix"),
+                new Rule("msedge", "youtube", "youtube-edge"),
+                new Rule("msedge", "netflix", "netflix-edge"));
+    }
+
+}
@@ -23,6 +23,7 @@ public class ChildService {
     private final ChildRepository childRepository;
     private final DeviceRepository deviceRepository;
     private final ChildMapper childMapper;
+    private final DeviceResolver deviceResolver;
 
     @Transactional
     public ChildResponseDto createChild(ChildCreateRequestDto req) {
@@ -37,6 +38,7 @@ public class ChildService {
                     Device d = dev.get();
                     d.setChildId(saved.getId().intValue());
                     deviceRepository.save(d);
+                    deviceResolver.evict(d);
                 } else {
                     // device not found — log warning and continue
                     System.out.println("Warning: Device ID " + req.getDeviceId() + " not found. Skipping assignment.");
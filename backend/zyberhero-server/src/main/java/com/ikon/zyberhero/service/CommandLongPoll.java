@@ -0,0 +1,78 @@
+package com.ikon.zyberhero.service;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import com.ikon.zyberhero.dto.response.CommandResponseDto;
+
+// Long-poll variant of /api/commands/pending. The ETag from the previous answer
+// says what the agent already has: if it is still current the request is parked
+// (no thread, no DB connection) until a new command for the device commits or the
+// timeout passes (304). Without a current ETag it is answered straight away.
+@Service
+public class CommandLongPoll {
+
+    private static final Logger log = LoggerFactory.getLogger(CommandLongPoll.class);
+
+    private final CommandsService commandsService;
+    private final CommandWaiters waiters;
+    private final ResourceVersions versions;
+    private final long timeoutMs;
+
+    public CommandLongPoll(CommandsService commandsService, CommandWaiters waiters, ResourceVersions versions,
+            @Value("${zyberhero.commands.long-poll.timeout-ms:30000}") long timeoutMs) {
+        this.commandsService = commandsService;
+        this.waiters = waiters;
+        this.versions = versions;
+        this.timeoutMs = timeoutMs;
+    }
+
+    public DeferredResult<ResponseEntity<List<CommandResponseDto>>> await(Long deviceId, String ifNoneMatch) {
+        DeferredResult<ResponseEntity<List<CommandResponseDto>>> result = new DeferredResult<>(timeoutMs);
+        String etag = versions.etag(ResourceVersions.Kind.COMMANDS, deviceId);
+        if (!ResourceVersions.matches(ifNoneMatch, etag)) {
+            deliver(deviceId, result);
+            return result;
+        }
+
+        CommandWaiters.Waiter w = waiters.park(deviceId, () -> deliver(deviceId, result));
+        if (w == null) {
+            // too many parked requests: answer as the plain conditional poll would
+            result.setResult(notModified(etag));
+            return result;
+        }
+        result.onTimeout(() -> {
+            if (w.leave()) result.setResult(notModified(etag));
+        });
+        result.onCompletion(w::leave);
+
+        // a command committed between reading the ETag and parking would not wake us
+        if (!etag.equals(versions.etag(ResourceVersions.Kind.COMMANDS, deviceId))) w.wake();
+        return result;
+    }
+
+    private void deliver(Long deviceId, DeferredResult<ResponseEntity<List<CommandResponseDto>>> result) {
+        try {
+            // read before the query: a concurrent write then shows up as a newer ETag next time
+            String etag = versions.etag(ResourceVersions.Kind.COMMANDS, deviceId);
+            List<CommandResponseDto> commands = commandsService.pending(null, deviceId, null);
+            result.setResult(ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(commands));
+        } catch (Exception ex) {
+            log.warn("Long-poll delivery failed for deviceId={}: {}", deviceId, ex.getMessage());
+            result.setResult(ResponseEntity.status(500).build());
+        }
+    }
+
+    private static ResponseEntity<List<CommandResponseDto>> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+    }
+
+}
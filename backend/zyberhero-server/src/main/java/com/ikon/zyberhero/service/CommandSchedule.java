@@ -0,0 +1,148 @@
+package com.ikon.zyberhero.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+// Compiled form of ControlCommand.schedule: the weekly windows in which the app is
+// blocked. Grammar, rules separated by ';':
+//   <days> [<HH:MM>-<HH:MM>]
+//   days: DAILY | * | WEEKDAYS | WEEKENDS | comma list of MON..SUN or ranges like MON-FRI, FRI-MON
+// e.g. "MON-FRI 08:00-15:00; SAT,SUN 22:00-07:00". A window whose end is not after its
+// start runs past midnight into the next day; days without times block the whole day.
+// Times are wall-clock in the engine's zone.
+public final class CommandSchedule {
+
+    public static final int MINUTES_PER_WEEK = 7 * 24 * 60;
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final List<String> DAYS = List.of("MON", "TUE", "WED", "THU", "FRI", "SAT", "SUN");
+
+    private final String text;
+    // minute-of-week points (Monday 00:00 = 0) at which blocked/allowed flips, ascending
+    private final int[] transitions;
+    private final int[] starts;
+    private final int[] ends;
+
+    private CommandSchedule(String text, int[] starts, int[] ends, int[] transitions) {
+        this.text = text;
+        this.starts = starts;
+        this.ends = ends;
+        this.transitions = transitions;
+    }
+
+    public static CommandSchedule parse(String text) {
+        if (text == null || text.trim().isEmpty()) throw new IllegalArgumentException("Empty schedule");
+        List<int[]> intervals = new ArrayList<>();
+        for (String rawRule : text.split(";")) {
+            String rule = rawRule.trim().toUpperCase(Locale.ROOT);
+            if (rule.isEmpty()) continue;
+            String[] parts = rule.split("\\s+");
+            if (parts.length > 2) throw new IllegalArgumentException("Invalid schedule rule: " + rawRule.trim());
+            boolean[] days = parseDays(parts[0], rawRule);
+            int from = 0;
+            int to = MINUTES_PER_DAY;
+            if (parts.length == 2) {
+                String[] range = parts[1].split("-");
+                if (range.length != 2) throw new IllegalArgumentException("Invalid time range: " + parts[1]);
+                from = parseTime(range[0]);
+                to = parseTime(range[1]);
+                if (from == MINUTES_PER_DAY) throw new IllegalArgumentException("Invalid time range: " + parts[1]);
+                if (to <= from) to += MINUTES_PER_DAY;
+            }
+            for (int d = 0; d < 7; d++) {
+                if (!days[d]) continue;
+                int s = d * MINUTES_PER_DAY + from;
+                int e = d * MINUTES_PER_DAY + to;
+                if (e <= MINUTES_PER_WEEK) {
+                    intervals.add(new int[] {s, e});
+                } else {
+                    intervals.add(new int[] {s, MINUTES_PER_WEEK});
+                    intervals.add(new int[] {0, e - MINUTES_PER_WEEK});
+                }
+            }
+        }
+        if (intervals.isEmpty()) throw new IllegalArgumentException("Empty schedule");
+
+        intervals.sort((a, b) -> Integer.compare(a[0], b[0]));
+        List<int[]> merged = new ArrayList<>();
+        for (int[] iv : intervals) {
+            int[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && iv[0] <= last[1]) last[1] = Math.max(last[1], iv[1]);
+            else merged.add(new int[] {iv[0], iv[1]});
+        }
+        int[] starts = merged.stream().mapToInt(iv -> iv[0]).toArray();
+        int[] ends = merged.stream().mapToInt(iv -> iv[1]).toArray();
+
+        // a window ending at the week's end and one starting at Monday 00:00 are one window
+        List<Integer> points = new ArrayList<>();
+        for (int i = 0; i < starts.length; i++) {
+            if (!(starts[i] == 0 && ends[ends.length - 1] == MINUTES_PER_WEEK)) points.add(starts[i]);
+            if (!(ends[i] == MINUTES_PER_WEEK && starts[0] == 0)) points.add(ends[i] % MINUTES_PER_WEEK);
+        }
+        int[] transitions = points.stream().mapToInt(Integer::intValue).distinct().sorted().toArray();
+        return new CommandSchedule(text.trim(), starts, ends, transitions);
+    }
+
+    public boolean isBlockedAt(int minuteOfWeek) {
+        int i = Arrays.binarySearch(starts, minuteOfWeek);
+        if (i >= 0) return true;
+        i = -i - 2; // last window starting before minuteOfWeek
+        return i >= 0 && minuteOfWeek < ends[i];
+    }
+
+    // minutes from minuteOfWeek to the next flip; -1 when the schedule never flips
+    public int minutesUntilNextTransition(int minuteOfWeek) {
+        if (transitions.length == 0) return -1;
+        for (int t : transitions) {
+            if (t > minuteOfWeek) return t - minuteOfWeek;
+        }
+        return transitions[0] + MINUTES_PER_WEEK - minuteOfWeek;
+    }
+
+    public String text() {
+        return text;
+    }
+
+    private static boolean[] parseDays(String spec, String rule) {
+        boolean[] days = new boolean[7];
+        switch (spec) {
+            case "DAILY", "*" -> Arrays.fill(days, true);
+            case "WEEKDAYS" -> Arrays.fill(days, 0, 5, true);
+            case "WEEKENDS" -> Arrays.fill(days, 5, 7, true);
+            default -> {
+                for (String item : spec.split(",")) {
+                    String[] range = item.split("-");
+                    int from = day(range[0], rule);
+                    int to = range.length == 2 ? day(range[1], rule) : from;
+                    if (range.length > 2) throw new IllegalArgumentException("Invalid days in schedule rule: " + rule.trim());
+                    for (int d = from; ; d = (d + 1) % 7) {
+                        days[d] = true;
+                        if (d == to) break;
+                    }
+                }
+            }
+        }
+        return days;
+    }
+
+    private static int day(String name, String rule) {
+        int d = DAYS.indexOf(name);
+        if (d < 0) throw new IllegalArgumentException("Invalid days in schedule rule: " + rule.trim());
+        return d;
+    }
+
+    private static int parseTime(String hhmm) {
+        String[] p = hhmm.split(":");
+        try {
+            if (p.length != 2) throw new NumberFormatException();
+            int h = Integer.parseInt(p[0]);
+            int m = Integer.parseInt(p[1]);
+            if (h < 0 || m < 0 || m > 59 || h > 24 || (h == 24 && m != 0)) throw new NumberFormatException();
+            return h * 60 + m;
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid time: " + hhmm);
+        }
+    }
+
+}
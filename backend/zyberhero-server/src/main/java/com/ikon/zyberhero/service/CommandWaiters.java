@@ -0,0 +1,122 @@
+package com.ikon.zyberhero.service;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Parked long-poll requests per device. CommandsService wakes a device after it
+// commits a new command; each parked waiter runs its callback exactly once, on a
+// small worker pool, whether it is woken, times out or is cancelled. Connected
+// device channels register a listener instead, which runs on every wake.
+@Component
+public class CommandWaiters {
+
+    public final class Waiter {
+        final Long deviceId;
+        final Runnable onWake;
+        final AtomicBoolean done = new AtomicBoolean(false);
+
+        Waiter(Long deviceId, Runnable onWake) {
+            this.deviceId = deviceId;
+            this.onWake = onWake;
+        }
+
+        // true for the one caller that removed the waiter; later calls are no-ops
+        public boolean leave() {
+            if (!done.compareAndSet(false, true)) return false;
+            // atomic with park(): a set is only dropped from the map while no waiter is being added to it
+            waiters.computeIfPresent(deviceId, (id, set) -> {
+                set.remove(this);
+                return set.isEmpty() ? null : set;
+            });
+            parked.decrementAndGet();
+            return true;
+        }
+
+        public void wake() {
+            if (leave()) workers.execute(onWake);
+        }
+    }
+
+    private final Map<Long, Set<Waiter>> waiters = new ConcurrentHashMap<>();
+    private final Map<Long, Runnable> listeners = new ConcurrentHashMap<>();
+    private final AtomicInteger parked = new AtomicInteger();
+    private final ExecutorService workers;
+    private final int maxWaiters;
+
+    public CommandWaiters(@Value("${zyberhero.commands.long-poll.max-waiters:10000}") int maxWaiters,
+            @Value("${zyberhero.commands.long-poll.worker-threads:4}") int workerThreads) {
+        this.maxWaiters = maxWaiters;
+        AtomicInteger n = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(Math.max(1, workerThreads), r -> {
+            Thread t = new Thread(r, "command-wake-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // null when the limit of parked requests is reached
+    public Waiter park(Long deviceId, Runnable onWake) {
+        if (parked.incrementAndGet() > maxWaiters) {
+            parked.decrementAndGet();
+            return null;
+        }
+        Waiter w = new Waiter(deviceId, onWake);
+        waiters.compute(deviceId, (id, set) -> {
+            Set<Waiter> out = set != null ? set : ConcurrentHashMap.newKeySet();
+            out.add(w);
+            return out;
+        });
+        return w;
+    }
+
+    public void listen(Long deviceId, Runnable onWake) {
+        listeners.put(deviceId, onWake);
+    }
+
+    public void unlisten(Long deviceId, Runnable onWake) {
+        listeners.remove(deviceId, onWake);
+    }
+
+    // Wakes after the surrounding transaction commits, so the woken request sees the new command.
+    public void wake(Long deviceId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    wakeNow(deviceId);
+                }
+            });
+        } else {
+            wakeNow(deviceId);
+        }
+    }
+
+    private void wakeNow(Long deviceId) {
+        Runnable listener = listeners.get(deviceId);
+        if (listener != null) workers.execute(listener);
+        Set<Waiter> set = waiters.get(deviceId);
+        if (set == null) return;
+        for (Waiter w : set) w.wake();
+    }
+
+    public int parkedCount() {
+        return parked.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+}
@@ -1,28 +1,75 @@
 package com.ikon.zyberhero.service;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
-import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.ikon.zyberhero.dto.request.BulkCommandRequestDto;
 import com.ikon.zyberhero.dto.request.CommandRequestDto;
+import com.ikon.zyberhero.dto.response.BulkCommandResponseDto;
 import com.ikon.zyberhero.dto.response.CommandResponseDto;
+import com.ikon.zyberhero.entity.CommandState;
 import com.ikon.zyberhero.entity.ControlCommand;
-import com.ikon.zyberhero.entity.Device;
 import com.ikon.zyberhero.mapper.CommandMapper;
+import com.ikon.zyberhero.repository.ControlCommandJdbcRepository;
 import com.ikon.zyberhero.repository.ControlCommandRepository;
 import com.ikon.zyberhero.repository.DeviceRepository;
 
 @Service
-@RequiredArgsConstructor
 public class CommandsService {
 
+    private static final Logger log = LoggerFactory.getLogger(CommandsService.class);
+
     private final ControlCommandRepository commandRepository;
+    private final ControlCommandJdbcRepository commandJdbcRepository;
     private final DeviceRepository deviceRepository;
+    private final DeviceResolver deviceResolver;
     private final CommandMapper commandMapper;
+    private final EventStreamBroadcaster broadcaster;
+    private final ResourceVersions versions;
+    private final CommandWaiters waiters;
+    private final ScheduleEngine scheduleEngine;
+    // one-time commands are redelivered when not acked within the lease, up to maxDeliveries times
+    private final long leaseSeconds;
+    private final int maxDeliveries;
+    private final int maxAckIds;
+    private final int maxBulkDevices;
+
+    public CommandsService(ControlCommandRepository commandRepository, ControlCommandJdbcRepository commandJdbcRepository,
+            DeviceRepository deviceRepository, DeviceResolver deviceResolver,
+            CommandMapper commandMapper, EventStreamBroadcaster broadcaster, ResourceVersions versions,
+            CommandWaiters waiters, ScheduleEngine scheduleEngine,
+            @Value("${zyberhero.commands.lease-seconds:60}") long leaseSeconds,
+            @Value("${zyberhero.commands.max-deliveries:5}") int maxDeliveries,
+            @Value("${zyberhero.commands.max-ack-ids:1000}") int maxAckIds,
+            @Value("${zyberhero.commands.max-bulk-devices:5000}") int maxBulkDevices) {
+        this.commandRepository = commandRepository;
+        this.commandJdbcRepository = commandJdbcRepository;
+        this.deviceRepository = deviceRepository;
+        this.deviceResolver = deviceResolver;
+        this.commandMapper = commandMapper;
+        this.broadcaster = broadcaster;
+        this.versions = versions;
+        this.waiters = waiters;
+        this.scheduleEngine = scheduleEngine;
+        this.leaseSeconds = leaseSeconds;
+        this.maxDeliveries = maxDeliveries;
+        this.maxAckIds = maxAckIds;
+        this.maxBulkDevices = maxBulkDevices;
+    }
 
     @Transactional
     public void kill(CommandRequestDto req) {
@@ -34,6 +81,7 @@ public class CommandsService {
             ControlCommand c = found.get();
             c.setIsActive(true);
             c.setCreatedAt(LocalDateTime.now());
+            requeue(c);
             commandRepository.save(c);
         } else {
             ControlCommand c = new ControlCommand();
@@ -42,8 +90,11 @@ public class CommandsService {
             c.setAction("kill");
             c.setIsActive(true);
             c.setCreatedAt(LocalDateTime.now());
+            requeue(c);
             commandRepository.save(c);
         }
+        versions.bump(ResourceVersions.Kind.COMMANDS, deviceId);
+        waiters.wake(deviceId);
     }
 
     @Transactional
@@ -51,9 +102,11 @@ public class CommandsService {
         Long deviceId = resolveDeviceId(req);
         String app = req.getAppName() == null ? "" : req.getAppName().toLowerCase();
 
-        // deactivate kill commands
-        var kills = commandRepository.findFirstByDeviceIdAndAppNameAndAction(deviceId, app, "kill");
-        kills.ifPresent(c -> { c.setIsActive(false); commandRepository.save(c); });
+        // deactivate kill commands, including a schedule's until its next window opens
+        for (String kill : List.of("kill", ScheduleEngine.KILL_ACTION)) {
+            var kills = commandRepository.findFirstByDeviceIdAndAppNameAndAction(deviceId, app, kill);
+            kills.ifPresent(c -> { c.setIsActive(false); commandRepository.save(c); });
+        }
 
         // upsert relaunch
         var foundR = commandRepository.findFirstByDeviceIdAndAppNameAndAction(deviceId, app, "relaunch");
@@ -61,6 +114,7 @@ public class CommandsService {
             ControlCommand c = foundR.get();
             c.setIsActive(true);
             c.setCreatedAt(LocalDateTime.now());
+            requeue(c);
             commandRepository.save(c);
         } else {
             ControlCommand c = new ControlCommand();
@@ -69,65 +123,233 @@ public class CommandsService {
             c.setAction("relaunch");
             c.setIsActive(true);
             c.setCreatedAt(LocalDateTime.now());
+            requeue(c);
             commandRepository.save(c);
         }
+        versions.bump(ResourceVersions.Kind.COMMANDS, deviceId);
+        waiters.wake(deviceId);
     }
 
+    // Stores the device's block window for the app (one row per device and app) and hands
+    // it to the schedule engine; a blank schedule cancels it and lifts the block.
     @Transactional
     public void schedule(CommandRequestDto req) {
         Long deviceId = resolveDeviceId(req);
         String app = req.getAppName() == null ? "" : req.getAppName().toLowerCase();
+        boolean cancel = req.getSchedule() == null || req.getSchedule().trim().isEmpty();
+        CommandSchedule compiled = cancel ? null : scheduleEngine.tryCompile(req.getSchedule());
 
-        ControlCommand c = new ControlCommand();
+        var found = commandRepository.findFirstByDeviceIdAndAppNameAndAction(deviceId, app, "schedule");
+        if (cancel) {
+            found.ifPresent(c -> {
+                c.setIsActive(false);
+                commandRepository.save(c);
+                scheduleEngine.unregister(c.getId());
+            });
+            versions.bump(ResourceVersions.Kind.COMMANDS, deviceId);
+            return;
+        }
+        ControlCommand c = found.orElseGet(ControlCommand::new);
         c.setDeviceId(deviceId);
         c.setAppName(app);
         c.setAction("schedule");
-        c.setSchedule(req.getSchedule());
+        c.setSchedule(compiled != null ? compiled.text() : req.getSchedule());
+        c.setServerEvaluated(compiled != null);
         c.setIsActive(true);
         c.setCreatedAt(LocalDateTime.now());
+        requeue(c);
         commandRepository.save(c);
+        if (compiled != null) {
+            scheduleEngine.register(c.getId(), deviceId, app, compiled);
+        } else {
+            // left to the agent; stops any evaluation of the schedule this replaces
+            scheduleEngine.unregister(c.getId());
+            waiters.wake(deviceId);
+        }
+        versions.bump(ResourceVersions.Kind.COMMANDS, deviceId);
     }
 
-    @Transactional(readOnly = true)
-    public List<CommandResponseDto> pending(String deviceUuid, Long deviceId, String machineName) {
-    Long resolved = resolveDeviceId(deviceUuid, deviceId, machineName);
-    var active = commandRepository.findByDeviceIdAndIsActiveTrue(resolved);
-    var commands = active.stream().map(commandMapper::mapToDto).collect(Collectors.toList());
+    // One command for many devices: targets are resolved through the device caches and
+    // all rows are upserted with one INSERT ... ON CONFLICT.
+    @Transactional
+    public BulkCommandResponseDto bulk(BulkCommandRequestDto req) {
+        String action = req.getAction() == null ? "" : req.getAction().trim().toLowerCase();
+        if (!List.of("kill", "relaunch", "schedule").contains(action)) {
+            throw new IllegalArgumentException("action must be kill, relaunch or schedule");
+        }
+        if (req.getAppName() == null || req.getAppName().trim().isEmpty()) {
+            throw new IllegalArgumentException("Missing required field: appName");
+        }
+        if ("schedule".equals(action) && (req.getSchedule() == null || req.getSchedule().trim().isEmpty())) {
+            throw new IllegalArgumentException("Missing required field: schedule");
+        }
+        String schedule = "schedule".equals(action) ? req.getSchedule() : null;
+        CommandSchedule compiled = schedule != null ? scheduleEngine.tryCompile(schedule) : null;
+        boolean all = Boolean.TRUE.equals(req.getAllDevices());
+        boolean hasIds = req.getDeviceIds() != null && !req.getDeviceIds().isEmpty();
+        boolean hasUuids = req.getDeviceUuids() != null && !req.getDeviceUuids().isEmpty();
+        if (!all && req.getChildId() == null && !hasIds && !hasUuids) {
+            throw new IllegalArgumentException("childId, deviceIds, deviceUuids or allDevices required");
+        }
+        String app = req.getAppName().toLowerCase();
+
+        List<BulkCommandResponseDto.DeviceResultDto> results = new ArrayList<>();
+        Map<Long, BulkCommandResponseDto.DeviceResultDto> targets = new LinkedHashMap<>();
+        if (all) deviceRepository.findAllIds().forEach(id -> target(targets, results, id, null));
+        if (req.getChildId() != null) deviceResolver.deviceIdsForChild(req.getChildId()).forEach(id -> target(targets, results, id, null));
+        if (hasIds) {
+            for (Long id : req.getDeviceIds()) {
+                if (deviceResolver.exists(id)) target(targets, results, id, null);
+                else results.add(deviceResult(id, null, "Device not found"));
+            }
+        }
+        if (hasUuids) {
+            for (String uuid : req.getDeviceUuids()) {
+                Long id = deviceResolver.findIdByUuid(uuid).orElse(null);
+                if (id != null) target(targets, results, id, uuid);
+                else results.add(deviceResult(null, uuid, "Device not registered"));
+            }
+        }
+        if (targets.size() > maxBulkDevices) {
+            throw new IllegalArgumentException("Too many devices (max " + maxBulkDevices + ")");
+        }
 
-    // deactivate one-time commands (relaunch/schedule)
-    active.stream().filter(c -> !"kill".equals(c.getAction())).forEach(c -> { c.setIsActive(false); commandRepository.save(c); });
+        if (!targets.isEmpty()) {
+            // relaunch lifts the kill order, as in relaunch()
+            if ("relaunch".equals(action)) {
+                commandJdbcRepository.deactivate(targets.keySet(), app, "kill");
+                commandJdbcRepository.deactivate(targets.keySet(), app, ScheduleEngine.KILL_ACTION);
+            }
+            Map<Long, Long> commandIds = commandJdbcRepository.upsertActive(targets.keySet(), app, action,
+                    compiled != null ? compiled.text() : schedule, compiled != null, LocalDateTime.now());
+            targets.forEach((deviceId, r) -> {
+                r.setCommandId(commandIds.get(deviceId));
+                if (r.getCommandId() == null) {
+                    r.setStatus("rejected");
+                    r.setError("Not applied");
+                    return;
+                }
+                if (compiled != null) scheduleEngine.register(r.getCommandId(), deviceId, app, compiled);
+                else if (schedule != null) scheduleEngine.unregister(r.getCommandId());
+                versions.bump(ResourceVersions.Kind.COMMANDS, deviceId);
+                waiters.wake(deviceId);
+            });
+        }
 
-    return commands;
+        BulkCommandResponseDto res = new BulkCommandResponseDto();
+        res.setAction(action);
+        res.setAppName(app);
+        res.setApplied((int) results.stream().filter(r -> "applied".equals(r.getStatus())).count());
+        res.setRejected(results.size() - res.getApplied());
+        res.setResults(results);
+        return res;
+    }
+
+    // Delivers active kill orders and leases the deliverable one-time commands: an
+    // unlocked read of the kills, one skip-locked select of the one-time commands plus
+    // one bulk UPDATE. Leased commands come back after the lease unless acked, so a
+    // crash between fetch and execution does not lose them.
+    @Transactional
+    public List<CommandResponseDto> pending(String deviceUuid, Long deviceId, String machineName) {
+        Long resolved = resolveDeviceId(deviceUuid, deviceId, machineName);
+        LocalDateTime now = LocalDateTime.now();
+        List<ControlCommand> oneTime = commandRepository.lockDeliverable(resolved, now, maxDeliveries,
+                CommandState.QUEUED, CommandState.LEASED);
+        List<ControlCommand> deliverable = new ArrayList<>(commandRepository.findActiveKills(resolved));
+        deliverable.addAll(oneTime);
+        deliverable.sort(Comparator.comparing(ControlCommand::getId));
+        var commands = deliverable.stream().map(commandMapper::mapToDto).collect(Collectors.toList());
+
+        if (!oneTime.isEmpty()) {
+            commandRepository.lease(oneTime.stream().map(ControlCommand::getId).toList(), now.plusSeconds(leaseSeconds),
+                    CommandState.LEASED);
+            versions.bump(ResourceVersions.Kind.COMMANDS, resolved);
+        }
+        return commands;
     }
 
     @Transactional
     public void ack(Long id) {
-        commandRepository.findById(id).ifPresent(c -> {
-            if (Boolean.TRUE.equals(c.getIsActive())) {
-                c.setIsActive(false);
-                commandRepository.save(c);
-            }
-        });
+        ack(List.of(id));
+    }
+
+    // Acks any number of commands with one bulk UPDATE; returns how many were still active.
+    @Transactional
+    public int ack(Collection<Long> ids) {
+        if (ids == null || ids.isEmpty()) throw new IllegalArgumentException("Missing required field: ids");
+        if (ids.size() > maxAckIds) throw new IllegalArgumentException("Too many ids (max " + maxAckIds + ")");
+        var distinct = new LinkedHashSet<>(ids);
+        distinct.remove(null);
+        if (distinct.isEmpty()) return 0;
+        var active = commandRepository.findByIdInAndIsActiveTrue(distinct);
+        if (active.isEmpty()) return 0;
+
+        int acked = commandRepository.ack(active.stream().map(ControlCommand::getId).toList(), LocalDateTime.now(), CommandState.ACKED);
+        for (ControlCommand c : active) broadcaster.publish("command-ack", c.getDeviceId(), commandMapper.mapToDto(c));
+        active.stream().map(ControlCommand::getDeviceId).distinct()
+                .forEach(d -> versions.bump(ResourceVersions.Kind.COMMANDS, d));
+        return acked;
+    }
+
+    // Retires commands that used up their deliveries and wakes devices whose leases
+    // ran out, so long-poll and channel clients get the redelivery without polling.
+    @Scheduled(fixedDelayString = "${zyberhero.commands.lease-sweep-interval-ms:15000}")
+    @Transactional
+    public void sweepLeases() {
+        LocalDateTime now = LocalDateTime.now();
+        int expired = commandRepository.expireLapsed(now, maxDeliveries, CommandState.LEASED, CommandState.EXPIRED);
+        if (expired > 0) log.info("Expired {} commands after {} unacknowledged deliveries", expired, maxDeliveries);
+
+        for (Long deviceId : commandRepository.findDevicesWithLapsedLeases(now, CommandState.LEASED)) {
+            versions.bump(ResourceVersions.Kind.COMMANDS, deviceId);
+            waiters.wake(deviceId);
+        }
+    }
+
+    private static void target(Map<Long, BulkCommandResponseDto.DeviceResultDto> targets,
+            List<BulkCommandResponseDto.DeviceResultDto> results, Long deviceId, String deviceUuid) {
+        if (targets.containsKey(deviceId)) return;
+        BulkCommandResponseDto.DeviceResultDto r = deviceResult(deviceId, deviceUuid, null);
+        targets.put(deviceId, r);
+        results.add(r);
+    }
+
+    private static BulkCommandResponseDto.DeviceResultDto deviceResult(Long deviceId, String deviceUuid, String error) {
+        BulkCommandResponseDto.DeviceResultDto r = new BulkCommandResponseDto.DeviceResultDto();
+        r.setDeviceId(deviceId);
+        r.setDeviceUuid(deviceUuid);
+        r.setStatus(error == null ? "applied" : "rejected");
+        r.setError(error);
+        return r;
+    }
+
+    private static void requeue(ControlCommand c) {
+        c.setState(CommandState.QUEUED);
+        c.setLeaseUntil(null);
+        c.setDeliveryCount(0);
+        c.setAckedAt(null);
     }
 
     private Long resolveDeviceId(CommandRequestDto req) {
         if (req.getDeviceId() != null && req.getDeviceId() > 0) return req.getDeviceId();
         if (req.getDeviceUuid() != null) {
-            Device d = deviceRepository.findByDeviceUuid(req.getDeviceUuid()).orElseThrow(() -> new IllegalArgumentException("Device not registered"));
-            return d.getId();
+            return deviceResolver.findIdByUuid(req.getDeviceUuid()).orElseThrow(() -> new IllegalArgumentException("Device not registered"));
         }
         throw new IllegalArgumentException("deviceUuid or deviceId required");
     }
 
+    public Long findDeviceId(String deviceUuid, Long deviceId, String machineName) {
+        return resolveDeviceId(deviceUuid, deviceId, machineName);
+    }
+
     private Long resolveDeviceId(String deviceUuid, Long deviceId, String machineName) {
         if (deviceId != null && deviceId > 0) return deviceId;
         if (deviceUuid != null) {
-            Device d = deviceRepository.findByDeviceUuid(deviceUuid).orElseThrow(() -> new IllegalArgumentException("Device not registered"));
-            return d.getId();
+            return deviceResolver.findIdByUuid(deviceUuid).orElseThrow(() -> new IllegalArgumentException("Device not registered"));
         }
         if (machineName != null) {
-            Device d = deviceRepository.findFirstByMacAddress(machineName).orElseThrow(() -> new IllegalArgumentException("Device not registered"));
-            return d.getId();
+            // agents send their MAC address in the machineName parameter
+            return deviceResolver.findIdByMac(machineName).orElseThrow(() -> new IllegalArgumentException("Device not registered"));
         }
         throw new IllegalArgumentException("deviceUuid or deviceId or machineName required");
     }
@@ -0,0 +1,97 @@
+package com.ikon.zyberhero.service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.ikon.zyberhero.entity.Device;
+import com.ikon.zyberhero.repository.DeviceJdbcRepository;
+
+// Coalesces device lastSeen bumps in memory and writes the changed devices to
+// device.last_seen in one batched UPDATE per flush interval.
+@Component
+public class DeviceHeartbeatTracker {
+
+    private static final Logger log = LoggerFactory.getLogger(DeviceHeartbeatTracker.class);
+
+    private final DeviceJdbcRepository deviceJdbcRepository;
+
+    // device id -> newest heartbeat, epoch millis
+    private final Map<Long, AtomicLong> lastSeen = new ConcurrentHashMap<>();
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+
+    public DeviceHeartbeatTracker(DeviceJdbcRepository deviceJdbcRepository) {
+        this.deviceJdbcRepository = deviceJdbcRepository;
+    }
+
+    public void touch(Long deviceId) {
+        touch(deviceId, LocalDateTime.now());
+    }
+
+    public void touch(Long deviceId, LocalDateTime at) {
+        if (deviceId == null || at == null) return;
+        long millis = toMillis(at);
+        AtomicLong slot = lastSeen.computeIfAbsent(deviceId, k -> new AtomicLong(Long.MIN_VALUE));
+        long prev = slot.getAndAccumulate(millis, Math::max);
+        if (millis > prev) dirty.add(deviceId);
+    }
+
+    // Newest of the tracked heartbeat and the persisted value.
+    public LocalDateTime lastSeen(Long deviceId, LocalDateTime persisted) {
+        AtomicLong slot = deviceId == null ? null : lastSeen.get(deviceId);
+        if (slot == null || slot.get() == Long.MIN_VALUE) return persisted;
+        LocalDateTime tracked = fromMillis(slot.get());
+        return persisted == null || tracked.isAfter(persisted) ? tracked : persisted;
+    }
+
+    public Device applyTo(Device device) {
+        if (device != null) device.setLastSeen(lastSeen(device.getId(), device.getLastSeen()));
+        return device;
+    }
+
+    @Scheduled(fixedDelayString = "${zyberhero.heartbeat.flush-interval-ms:5000}")
+    public void flush() {
+        if (dirty.isEmpty()) return;
+        Map<Long, LocalDateTime> batch = new HashMap<>();
+        Iterator<Long> it = dirty.iterator();
+        while (it.hasNext()) {
+            Long id = it.next();
+            // clear the flag before reading, so a concurrent touch re-marks the device
+            it.remove();
+            batch.put(id, fromMillis(lastSeen.get(id).get()));
+        }
+        try {
+            int updated = deviceJdbcRepository.updateLastSeen(batch);
+            log.debug("Heartbeat flush: {} devices pending, {} rows updated", batch.size(), updated);
+        } catch (Exception ex) {
+            dirty.addAll(batch.keySet());
+            log.warn("Heartbeat flush failed for {} devices, will retry: {}", batch.size(), ex.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private static long toMillis(LocalDateTime t) {
+        return t.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static LocalDateTime fromMillis(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+
+}
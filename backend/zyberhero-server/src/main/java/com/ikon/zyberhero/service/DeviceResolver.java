@@ -0,0 +1,130 @@
+package com.ikon.zyberhero.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ikon.zyberhero.entity.Device;
+import com.ikon.zyberhero.repository.DeviceRepository;
+
+// Shared device identity lookups (uuid / mac / machine name -> id, id -> child)
+// behind bounded caches. DeviceService and ChildService evict on every device write
+// (again after commit).
+@Component
+public class DeviceResolver {
+
+    public record DeviceRef(Long id, String deviceUuid, Long childId) {}
+
+    private final DeviceRepository deviceRepository;
+
+    private final Cache<String, Long> idByKey;
+    private final Cache<Long, DeviceRef> refById;
+    private final Cache<Long, List<Long>> idsByChild;
+
+    public DeviceResolver(DeviceRepository deviceRepository,
+            @Value("${zyberhero.device-cache.max-size:50000}") long maxSize,
+            @Value("${zyberhero.device-cache.expire-after-write-minutes:60}") long expireMinutes) {
+        this.deviceRepository = deviceRepository;
+        this.idByKey = Caffeine.newBuilder().maximumSize(maxSize).expireAfterWrite(Duration.ofMinutes(expireMinutes)).build();
+        this.refById = Caffeine.newBuilder().maximumSize(maxSize).expireAfterWrite(Duration.ofMinutes(expireMinutes)).build();
+        this.idsByChild = Caffeine.newBuilder().maximumSize(maxSize).expireAfterWrite(Duration.ofMinutes(expireMinutes)).build();
+    }
+
+    public Optional<Long> findIdByUuid(String deviceUuid) {
+        if (deviceUuid == null) return Optional.empty();
+        return Optional.ofNullable(idByKey.get(uuidKey(deviceUuid),
+                k -> deviceRepository.findByDeviceUuid(deviceUuid).map(this::remember).orElse(null)));
+    }
+
+    public Optional<Long> findIdByMac(String macAddress) {
+        if (macAddress == null) return Optional.empty();
+        return Optional.ofNullable(idByKey.get(macKey(macAddress),
+                k -> deviceRepository.findFirstByMacAddress(macAddress).map(this::remember).orElse(null)));
+    }
+
+    public Optional<Long> findIdByMachineName(String machineName) {
+        if (machineName == null) return Optional.empty();
+        return Optional.ofNullable(idByKey.get(machineNameKey(machineName),
+                k -> deviceRepository.findFirstByMachineName(machineName).map(this::remember).orElse(null)));
+    }
+
+    public Optional<DeviceRef> findById(Long deviceId) {
+        if (deviceId == null) return Optional.empty();
+        return Optional.ofNullable(refById.get(deviceId,
+                k -> deviceRepository.findById(deviceId).map(this::toRef).orElse(null)));
+    }
+
+    public boolean exists(Long deviceId) {
+        return findById(deviceId).isPresent();
+    }
+
+    public Optional<Long> childIdOf(Long deviceId) {
+        return findById(deviceId).map(DeviceRef::childId);
+    }
+
+    public List<Long> deviceIdsForChild(Long childId) {
+        if (childId == null) return List.of();
+        return idsByChild.get(childId,
+                k -> deviceRepository.findByChildId(childId.intValue()).stream().map(Device::getId).toList());
+    }
+
+    // deviceId is trusted as-is; otherwise the uuid must belong to a registered device
+    public Long requireId(Long deviceId, String deviceUuid) {
+        if (deviceId != null) return deviceId;
+        if (deviceUuid != null) {
+            return findIdByUuid(deviceUuid).orElseThrow(() -> new IllegalArgumentException("Device not registered"));
+        }
+        throw new IllegalArgumentException("deviceUuid or deviceId required");
+    }
+
+    // The device's current identifiers are captured now and invalidated again once the
+    // caller's transaction commits: a lookup running concurrently with the write could
+    // otherwise reload the old row and keep it cached until expiry.
+    public void evict(Device device) {
+        if (device == null) return;
+        List<String> keys = new ArrayList<>(3);
+        if (device.getDeviceUuid() != null) keys.add(uuidKey(device.getDeviceUuid()));
+        if (device.getMacAddress() != null) keys.add(macKey(device.getMacAddress()));
+        if (device.getMachineName() != null) keys.add(machineNameKey(device.getMachineName()));
+        Long id = device.getId();
+        Runnable invalidate = () -> {
+            idByKey.invalidateAll(keys);
+            if (id != null) refById.invalidate(id);
+            // child assignment may have moved the device between children
+            idsByChild.invalidateAll();
+        };
+        invalidate.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidate.run();
+                }
+            });
+        }
+    }
+
+    private Long remember(Device device) {
+        refById.put(device.getId(), toRef(device));
+        return device.getId();
+    }
+
+    private DeviceRef toRef(Device d) {
+        return new DeviceRef(d.getId(), d.getDeviceUuid(), d.getChildId() == null ? null : d.getChildId().longValue());
+    }
+
+    private static String uuidKey(String v) { return "uuid:" + v; }
+
+    private static String macKey(String v) { return "mac:" + v; }
+
+    private static String machineNameKey(String v) { return "name:" + v; }
+
+}
@@ -21,6 +21,8 @@ public class DeviceService {
 
     private final DeviceRepository deviceRepository;
     private final DeviceMapper deviceMapper;
+    private final DeviceHeartbeatTracker heartbeatTracker;
+    private final DeviceResolver deviceResolver;
 
     @Transactional
     public DeviceResponseDto registerOrUpdate(DeviceRegisterRequestDto req) {
@@ -33,6 +35,8 @@ public class DeviceService {
 
         if (existing.isPresent()) {
             device = existing.get();
+            // drop cached lookups for the identifiers the device had before this update
+            deviceResolver.evict(device);
             // prefer existing deviceUuid unless request explicitly provides one
             if (req.getDeviceUuid() != null && !req.getDeviceUuid().isEmpty()) {
                 device.setDeviceUuid(req.getDeviceUuid());
@@ -52,6 +56,7 @@ public class DeviceService {
             device = deviceRepository.save(device);
         }
 
+        deviceResolver.evict(device);
         return deviceMapper.mapToDto(device);
     }
 
@@ -64,16 +69,16 @@ public class DeviceService {
 
     @Transactional(readOnly = true)
     public List<Device> listAll() {
-        return deviceRepository.findAll();
+        return deviceRepository.findAll().stream().map(heartbeatTracker::applyTo).toList();
     }
 
     @Transactional(readOnly = true)
     public List<Device> listUnassigned() {
-        return deviceRepository.findAll().stream().filter(d -> d.getChildId() == null).toList();
+        return deviceRepository.findAll().stream().filter(d -> d.getChildId() == null).map(heartbeatTracker::applyTo).toList();
     }
 
     @Transactional(readOnly = true)
     public Optional<Device> findByUuid(String deviceUuid) {
-        return deviceRepository.findByDeviceUuid(deviceUuid);
+        return deviceRepository.findByDeviceUuid(deviceUuid).map(heartbeatTracker::applyTo);
     }
 }
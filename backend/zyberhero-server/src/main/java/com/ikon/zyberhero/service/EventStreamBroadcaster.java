@@ -0,0 +1,274 @@
+package com.ikon.zyberhero.service;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+// Fans ingest events out to /api/stream subscribers. Publishing never blocks:
+// each event is rendered once and queued per subscriber in a small bounded queue
+// that a shared sender pool drains. A subscriber whose queue is full is too slow
+// and gets disconnected (EventSource clients reconnect on their own). Idle
+// subscribers hold no threads. A send that has not returned after send-timeout-ms
+// (a client that stopped reading) disconnects its subscriber, and the pool gets a
+// replacement thread while the stuck one waits for the socket, so one slow client
+// cannot hold the senders every other subscriber depends on.
+@Component
+public class EventStreamBroadcaster {
+
+    private static final Logger log = LoggerFactory.getLogger(EventStreamBroadcaster.class);
+
+    private final DeviceResolver deviceResolver;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ThreadPoolExecutor senders;
+    private final int senderThreads;
+    private final int maxStalledSenders;
+    private final int bufferSize;
+    private final int maxSubscribers;
+    private final long timeoutMs;
+    private final long sendTimeoutNanos;
+    private int stalledSenders; // guarded by senders
+
+    private final class Subscriber {
+        final SseEmitter emitter;
+        final Long childId;
+        final Long deviceId;
+        final Queue<Set<DataWithMediaType>> queue;
+        final AtomicBoolean draining = new AtomicBoolean(false);
+        volatile boolean closed = false;
+        volatile long sendStarted; // System.nanoTime() of the send in progress, 0 when none
+        volatile Thread sender;
+        volatile boolean stalled = false;
+        boolean replaced = false; // guarded by this; the pool got a thread in place of the sender
+
+        Subscriber(SseEmitter emitter, Long childId, Long deviceId) {
+            this.emitter = emitter;
+            this.childId = childId;
+            this.deviceId = deviceId;
+            this.queue = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        boolean wants(Long eventDeviceId, Long eventChildId) {
+            if (deviceId != null) return deviceId.equals(eventDeviceId);
+            if (childId != null) return childId.equals(eventChildId);
+            return true;
+        }
+
+        void enqueue(Set<DataWithMediaType> event) {
+            if (closed) return;
+            if (!queue.offer(event)) {
+                log.debug("Stream subscriber too slow (child={} device={}), disconnecting", childId, deviceId);
+                close();
+                return;
+            }
+            if (draining.compareAndSet(false, true)) senders.execute(this::drain);
+        }
+
+        void drain() {
+            sender = Thread.currentThread();
+            try {
+                Set<DataWithMediaType> event;
+                while (!closed && (event = queue.poll()) != null) {
+                    sendStarted = System.nanoTime();
+                    emitter.send(event);
+                    sendStarted = 0;
+                }
+            } catch (IOException | IllegalStateException ex) {
+                // client went away
+                close();
+            } finally {
+                synchronized (this) {
+                    sendStarted = 0;
+                    sender = null;
+                    if (replaced) releaseSender();
+                    replaced = false;
+                }
+                // an interrupt from stall() is meant for the send only
+                Thread.interrupted();
+                draining.set(false);
+            }
+            if (closed) {
+                complete();
+                return;
+            }
+            // an event may have arrived between the last poll and releasing the flag
+            if (!queue.isEmpty() && draining.compareAndSet(false, true)) senders.execute(this::drain);
+        }
+
+        // the send in progress has not returned within the send timeout
+        synchronized void stall() {
+            if (stalled || sendStarted == 0) return;
+            stalled = true;
+            log.debug("Stream subscriber stopped reading (child={} device={}), disconnecting", childId, deviceId);
+            close();
+            Thread t = sender;
+            if (t != null) t.interrupt();
+            replaced = addSender();
+        }
+
+        void close() {
+            if (closed) return;
+            closed = true;
+            subscribers.remove(this);
+            queue.clear();
+            // with a send in progress, completing would wait on the emitter's write lock;
+            // the sender completes the emitter once its send returns
+            if (draining.compareAndSet(false, true)) complete();
+        }
+
+        void complete() {
+            try {
+                emitter.complete();
+            } catch (Exception ignored) {
+                // already completed by the container
+            }
+        }
+    }
+
+    public EventStreamBroadcaster(DeviceResolver deviceResolver,
+            @Value("${zyberhero.stream.buffer-size:64}") int bufferSize,
+            @Value("${zyberhero.stream.max-subscribers:10000}") int maxSubscribers,
+            @Value("${zyberhero.stream.timeout-ms:1800000}") long timeoutMs,
+            @Value("${zyberhero.stream.sender-threads:4}") int senderThreads,
+            @Value("${zyberhero.stream.send-timeout-ms:10000}") long sendTimeoutMs,
+            @Value("${zyberhero.stream.max-stalled-senders:16}") int maxStalledSenders) {
+        this.deviceResolver = deviceResolver;
+        this.bufferSize = Math.max(1, bufferSize);
+        this.maxSubscribers = maxSubscribers;
+        this.timeoutMs = timeoutMs;
+        this.senderThreads = Math.max(1, senderThreads);
+        this.maxStalledSenders = Math.max(0, maxStalledSenders);
+        this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, sendTimeoutMs));
+        AtomicInteger n = new AtomicInteger();
+        this.senders = new ThreadPoolExecutor(this.senderThreads, this.senderThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, "stream-sender-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    // childId / deviceId narrow the events delivered; both null means everything
+    public SseEmitter subscribe(Long childId, Long deviceId) {
+        if (subscribers.size() >= maxSubscribers) {
+            throw new IllegalStateException("Too many stream subscribers");
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber s = new Subscriber(emitter, childId, deviceId);
+        emitter.onCompletion(s::close);
+        emitter.onTimeout(s::close);
+        emitter.onError(e -> s.close());
+        subscribers.add(s);
+        s.enqueue(SseEmitter.event().name("ready").data(Map.of("subscribed", true), MediaType.APPLICATION_JSON).build());
+        return emitter;
+    }
+
+    // Sends after the surrounding transaction commits, so subscribers never see
+    // data that is later rolled back.
+    public void publish(String type, Long deviceId, Object payload) {
+        if (subscribers.isEmpty()) return;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dispatch(type, deviceId, payload);
+                }
+            });
+        } else {
+            dispatch(type, deviceId, payload);
+        }
+    }
+
+    private void dispatch(String type, Long deviceId, Object payload) {
+        Long childId = deviceResolver.childIdOf(deviceId).orElse(null);
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("deviceId", deviceId);
+        body.put("childId", childId);
+        body.put("data", payload);
+        Set<DataWithMediaType> event = SseEmitter.event().name(type).data(body, MediaType.APPLICATION_JSON).build();
+        for (Subscriber s : subscribers) {
+            if (s.wants(deviceId, childId)) s.enqueue(event);
+        }
+    }
+
+    // keeps idle connections open through proxies and detects dead clients
+    @Scheduled(fixedDelayString = "${zyberhero.stream.heartbeat-interval-ms:20000}")
+    public void heartbeat() {
+        Set<DataWithMediaType> ping = SseEmitter.event().comment("ping").build();
+        for (Subscriber s : subscribers) s.enqueue(ping);
+    }
+
+    // disconnects subscribers whose current send has run past the send timeout
+    @Scheduled(fixedDelayString = "${zyberhero.stream.send-check-interval-ms:1000}")
+    public void checkSends() {
+        long now = System.nanoTime();
+        for (Subscriber s : subscribers) {
+            long started = s.sendStarted;
+            if (started != 0 && now - started > sendTimeoutNanos) s.stall();
+        }
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    // Stalled senders are replaced, up to maxStalledSenders at a time; beyond that the
+    // pool runs short until the container's socket write timeout frees them.
+    private boolean addSender() {
+        synchronized (senders) {
+            if (stalledSenders >= maxStalledSenders) {
+                log.warn("Stream: {} senders stalled on unresponsive clients, not adding more", stalledSenders);
+                return false;
+            }
+            stalledSenders++;
+            resizeSenders();
+            return true;
+        }
+    }
+
+    private void releaseSender() {
+        synchronized (senders) {
+            stalledSenders--;
+            resizeSenders();
+        }
+    }
+
+    // caller holds the senders lock
+    private void resizeSenders() {
+        int size = senderThreads + stalledSenders;
+        if (size > senders.getMaximumPoolSize()) {
+            senders.setMaximumPoolSize(size);
+            senders.setCorePoolSize(size);
+        } else {
+            senders.setCorePoolSize(size);
+            senders.setMaximumPoolSize(size);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Subscriber s : subscribers) s.close();
+        senders.shutdownNow();
+    }
+
+}
@@ -0,0 +1,299 @@
+package com.ikon.zyberhero.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.ikon.zyberhero.entity.SafeZone;
+import com.ikon.zyberhero.repository.SafeZoneRepository;
+
+// Checks location fixes against the child's safe zones. Zones live in memory in one
+// grid per child (cells of cell-degrees, a zone is listed in every cell its circle's
+// bounding box touches), so a fix only tests the zones of its own cell. A child's grid
+// is rebuilt on its own when one of its zones is created or deleted. Per device the
+// engine remembers which zones the last fix was inside; evaluate() returns only the
+// enter/exit transitions. The first fix seen for a device (e.g. after a restart) only
+// seeds that state. Inside a transaction the new state is kept with the transaction
+// (so several fixes of one batch chain correctly) and only becomes the device's
+// state once it commits; a rolled-back fix leaves the state as it was.
+@Component
+public class GeofenceEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(GeofenceEngine.class);
+
+    private static final double METERS_PER_DEGREE = 111_320d;
+    // zones covering more cells than this are tested on every fix of the child instead
+    private static final int MAX_CELLS_PER_ZONE = 64;
+    private static final Zone[] NO_ZONES = new Zone[0];
+
+    public record Transition(boolean entered, Long zoneId, String zoneName, double latitude, double longitude, int radius) {}
+
+    private final SafeZoneRepository safeZoneRepository;
+    private final DeviceResolver deviceResolver;
+    private final boolean enabled;
+    private final double cellDegrees;
+    private final double maxAccuracyMeters;
+
+    private final Map<Long, Zone> zones = new ConcurrentHashMap<>();
+    private final Map<Long, Map<Long, Zone>> zonesByChild = new ConcurrentHashMap<>();
+    private final Map<Long, ChildGrid> grids = new ConcurrentHashMap<>();
+    private final Map<Long, DeviceState> states = new ConcurrentHashMap<>();
+    // key of the per-transaction map of uncommitted device states
+    private final Object pendingKey = new Object();
+
+    private static final class Zone {
+        final Long id;
+        final Long childId;
+        final Long deviceId; // null: applies to all of the child's devices
+        final String name;
+        final double latitude;
+        final double longitude;
+        final int radius;
+        final double cosLat;
+
+        Zone(SafeZone z) {
+            this.id = z.getId();
+            this.childId = z.getChildId();
+            this.deviceId = z.getDeviceId();
+            this.name = z.getName();
+            this.latitude = z.getLatitude();
+            this.longitude = z.getLongitude();
+            this.radius = z.getRadius() == null ? 0 : z.getRadius();
+            this.cosLat = Math.cos(Math.toRadians(latitude));
+        }
+
+        // equirectangular distance, accurate to well under a metre at safe-zone radii
+        boolean contains(double lat, double lon) {
+            double dy = (lat - latitude) * METERS_PER_DEGREE;
+            double dx = (lon - longitude) * METERS_PER_DEGREE * cosLat;
+            return dx * dx + dy * dy <= (double) radius * radius;
+        }
+    }
+
+    // immutable; replaced as a whole when the child's zones change
+    private static final class ChildGrid {
+        final Map<Long, Zone[]> cells;
+        final Zone[] large;
+
+        ChildGrid(Map<Long, Zone[]> cells, Zone[] large) {
+            this.cells = cells;
+            this.large = large;
+        }
+    }
+
+    // inside: sorted zone ids
+    private record DeviceState(long[] inside, LocalDateTime lastFix) {}
+
+    public GeofenceEngine(SafeZoneRepository safeZoneRepository, DeviceResolver deviceResolver,
+            @Value("${zyberhero.geofence.enabled:true}") boolean enabled,
+            @Value("${zyberhero.geofence.cell-degrees:0.01}") double cellDegrees,
+            @Value("${zyberhero.geofence.max-accuracy-meters:500}") double maxAccuracyMeters) {
+        this.safeZoneRepository = safeZoneRepository;
+        this.deviceResolver = deviceResolver;
+        this.enabled = enabled;
+        this.cellDegrees = cellDegrees;
+        this.maxAccuracyMeters = maxAccuracyMeters;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) return;
+        synchronized (zonesByChild) {
+            for (SafeZone z : safeZoneRepository.findAll()) {
+                if (z.getLatitude() == null || z.getLongitude() == null) continue;
+                Zone zone = new Zone(z);
+                zones.put(zone.id, zone);
+                zonesByChild.computeIfAbsent(zone.childId, k -> new HashMap<>()).put(zone.id, zone);
+            }
+            zonesByChild.forEach((childId, byId) -> grids.put(childId, build(byId.values())));
+        }
+        log.info("Geofence: indexed {} safe zones for {} children", zones.size(), zonesByChild.size());
+    }
+
+    // Both take effect once the caller's transaction commits.
+    public void zoneSaved(SafeZone z) {
+        if (!enabled || z.getLatitude() == null || z.getLongitude() == null) return;
+        Zone zone = new Zone(z);
+        afterCommit(() -> {
+            synchronized (zonesByChild) {
+                Zone previous = zones.put(zone.id, zone);
+                if (previous != null && !previous.childId.equals(zone.childId)) remove(previous);
+                zonesByChild.computeIfAbsent(zone.childId, k -> new HashMap<>()).put(zone.id, zone);
+                rebuild(zone.childId);
+            }
+        });
+    }
+
+    public void zoneDeleted(SafeZone z) {
+        if (!enabled) return;
+        afterCommit(() -> {
+            synchronized (zonesByChild) {
+                Zone removed = zones.remove(z.getId());
+                if (removed != null) remove(removed);
+            }
+        });
+    }
+
+    public List<Transition> evaluate(Long deviceId, Double latitude, Double longitude, Double accuracy, LocalDateTime timestamp) {
+        if (!enabled || deviceId == null || latitude == null || longitude == null) return List.of();
+        // too coarse to place the device on either side of a boundary
+        if (accuracy != null && accuracy > maxAccuracyMeters) return List.of();
+        Long childId = deviceResolver.childIdOf(deviceId).orElse(null);
+        ChildGrid grid = childId == null ? null : grids.get(childId);
+
+        long[] now = insideOf(grid, deviceId, latitude, longitude);
+        LocalDateTime at = timestamp == null ? LocalDateTime.now() : timestamp;
+        Map<Long, DeviceState> pending = pendingStates();
+        DeviceState before = pending != null && pending.containsKey(deviceId) ? pending.get(deviceId) : states.get(deviceId);
+        // late fixes (queued or batched uploads) do not move the state backwards
+        if (before != null && at.isBefore(before.lastFix())) return List.of();
+        DeviceState next = new DeviceState(now, at);
+        if (pending != null) pending.put(deviceId, next);
+        else advance(deviceId, next);
+        if (before == null || Arrays.equals(before.inside(), now)) return List.of();
+
+        List<Transition> out = new ArrayList<>();
+        for (long id : now) {
+            if (Arrays.binarySearch(before.inside(), id) < 0) out.add(transition(true, zones.get(id)));
+        }
+        for (long id : before.inside()) {
+            Zone z = zones.get(id);
+            // a deleted zone is forgotten silently
+            if (z != null && Arrays.binarySearch(now, id) < 0) out.add(transition(false, z));
+        }
+        out.removeIf(t -> t == null);
+        return out;
+    }
+
+    public int zoneCount() {
+        return zones.size();
+    }
+
+    private long[] insideOf(ChildGrid grid, Long deviceId, double lat, double lon) {
+        if (grid == null) return new long[0];
+        Zone[] candidates = grid.cells.getOrDefault(cell(lat, lon), NO_ZONES);
+        long[] ids = new long[candidates.length + grid.large.length];
+        int n = 0;
+        for (Zone z : candidates) if (applies(z, deviceId) && z.contains(lat, lon)) ids[n++] = z.id;
+        for (Zone z : grid.large) if (applies(z, deviceId) && z.contains(lat, lon)) ids[n++] = z.id;
+        long[] inside = Arrays.copyOf(ids, n);
+        Arrays.sort(inside);
+        return inside;
+    }
+
+    private static boolean applies(Zone z, Long deviceId) {
+        return z.deviceId == null || z.deviceId.equals(deviceId);
+    }
+
+    private static Transition transition(boolean entered, Zone z) {
+        if (z == null) return null;
+        return new Transition(entered, z.id, z.name, z.latitude, z.longitude, z.radius);
+    }
+
+    // callers hold the zonesByChild lock
+    private void remove(Zone zone) {
+        Map<Long, Zone> byId = zonesByChild.get(zone.childId);
+        if (byId != null) byId.remove(zone.id);
+        rebuild(zone.childId);
+    }
+
+    private void rebuild(Long childId) {
+        Map<Long, Zone> byId = zonesByChild.get(childId);
+        if (byId == null || byId.isEmpty()) {
+            zonesByChild.remove(childId);
+            grids.remove(childId);
+        } else {
+            grids.put(childId, build(byId.values()));
+        }
+    }
+
+    private ChildGrid build(Collection<Zone> list) {
+        Map<Long, List<Zone>> cells = new HashMap<>();
+        List<Zone> large = new ArrayList<>();
+        for (Zone z : list) {
+            double dLat = z.radius / METERS_PER_DEGREE;
+            double dLon = z.radius / (METERS_PER_DEGREE * Math.max(z.cosLat, 0.01));
+            long minY = index(z.latitude - dLat);
+            long maxY = index(z.latitude + dLat);
+            long minX = index(z.longitude - dLon);
+            long maxX = index(z.longitude + dLon);
+            if ((maxY - minY + 1) * (maxX - minX + 1) > MAX_CELLS_PER_ZONE) {
+                large.add(z);
+                continue;
+            }
+            for (long y = minY; y <= maxY; y++) {
+                for (long x = minX; x <= maxX; x++) {
+                    cells.computeIfAbsent(key(y, x), k -> new ArrayList<>()).add(z);
+                }
+            }
+        }
+        Map<Long, Zone[]> frozen = new LinkedHashMap<>();
+        cells.forEach((k, v) -> frozen.put(k, v.toArray(NO_ZONES)));
+        return new ChildGrid(frozen, large.toArray(NO_ZONES));
+    }
+
+    private long cell(double lat, double lon) {
+        return key(index(lat), index(lon));
+    }
+
+    private long index(double degrees) {
+        return (long) Math.floor(degrees / cellDegrees);
+    }
+
+    private static long key(long y, long x) {
+        return (y << 32) ^ (x & 0xffffffffL);
+    }
+
+    // the state never moves back to an older fix, also across concurrent commits
+    private void advance(Long deviceId, DeviceState next) {
+        states.merge(deviceId, next, (current, candidate) -> candidate.lastFix().isBefore(current.lastFix()) ? current : candidate);
+    }
+
+    // Uncommitted states of the current transaction, applied once it commits; null
+    // outside a transaction.
+    @SuppressWarnings("unchecked")
+    private Map<Long, DeviceState> pendingStates() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) return null;
+        Map<Long, DeviceState> pending = (Map<Long, DeviceState>) TransactionSynchronizationManager.getResource(pendingKey);
+        if (pending != null) return pending;
+        Map<Long, DeviceState> created = new HashMap<>();
+        TransactionSynchronizationManager.bindResource(pendingKey, created);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(pendingKey);
+                if (status == STATUS_COMMITTED) created.forEach(GeofenceEngine.this::advance);
+            }
+        });
+        return created;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+}
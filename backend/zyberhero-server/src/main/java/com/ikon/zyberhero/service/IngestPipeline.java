@@ -0,0 +1,114 @@
+package com.ikon.zyberhero.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import com.ikon.zyberhero.config.IngestProperties;
+import com.ikon.zyberhero.dto.request.ActivityCreateRequestDto;
+import com.ikon.zyberhero.dto.request.LiveStatusRequestDto;
+import com.ikon.zyberhero.dto.request.LocationCreateRequestDto;
+
+// Opt-in write-behind path for agent POSTs (zyberhero.ingest.async.enabled).
+// Requests are validated, queued and acknowledged with 202; writers group-commit
+// the queued payloads through the services' batch methods. Transient write failures
+// are retried, others split to isolate bad items (WriteBehindBuffer); retried and
+// dropped counts are exported per buffer as
+// zyberhero.ingest.retried / zyberhero.ingest.dropped.
+@Component
+public class IngestPipeline implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestPipeline.class);
+
+    private final IngestProperties.Async props;
+    private final WriteBehindBuffer<ActivityCreateRequestDto> activityBuffer;
+    private final WriteBehindBuffer<LocationCreateRequestDto> locationBuffer;
+    private final WriteBehindBuffer<LiveStatusRequestDto> liveStatusBuffer;
+
+    private volatile boolean running = false;
+
+    public IngestPipeline(IngestProperties ingestProperties, ActivityService activityService,
+            LocationService locationService, LiveStatusService liveStatusService, MeterRegistry meterRegistry) {
+        this.props = ingestProperties.getAsync();
+        this.activityBuffer = new WriteBehindBuffer<>("activity", props.getQueueCapacity(), props.getFlushSize(),
+                props.getFlushIntervalMs(), props.getRetryAttempts(), props.getRetryBackoffMs(), activityService::ingestQueued,
+                r -> r.getDeviceId() != null ? r.getDeviceId() : r.getDeviceUuid());
+        this.locationBuffer = new WriteBehindBuffer<>("location", props.getQueueCapacity(), props.getFlushSize(),
+                props.getFlushIntervalMs(), props.getRetryAttempts(), props.getRetryBackoffMs(), locationService::ingestQueued,
+                r -> r.getDeviceId() != null ? r.getDeviceId() : r.getDeviceMac());
+        this.liveStatusBuffer = new WriteBehindBuffer<>("live-status", props.getQueueCapacity(), props.getFlushSize(),
+                props.getFlushIntervalMs(), props.getRetryAttempts(), props.getRetryBackoffMs(), liveStatusService::ingestQueued,
+                r -> r.getDeviceId() != null ? r.getDeviceId() : r.getDeviceUuid() != null ? r.getDeviceUuid() : r.getMachineName());
+        for (WriteBehindBuffer<?> b : new WriteBehindBuffer<?>[] { activityBuffer, locationBuffer, liveStatusBuffer }) {
+            FunctionCounter.builder("zyberhero.ingest.retried", b, WriteBehindBuffer::retriedCount)
+                    .tag("buffer", b.name()).register(meterRegistry);
+            FunctionCounter.builder("zyberhero.ingest.dropped", b, WriteBehindBuffer::droppedCount)
+                    .tag("buffer", b.name()).register(meterRegistry);
+        }
+    }
+
+    public boolean isEnabled() {
+        return props.isEnabled() && running;
+    }
+
+    public boolean submitActivity(ActivityCreateRequestDto req) {
+        if (req.getAppName() == null || req.getAppName().trim().isEmpty()) {
+            throw new IllegalArgumentException("Missing required field: appName");
+        }
+        if (req.getDeviceId() == null && req.getDeviceUuid() == null) {
+            throw new IllegalArgumentException("deviceUuid or deviceId required");
+        }
+        return activityBuffer.offer(req);
+    }
+
+    public boolean submitLocation(LocationCreateRequestDto req) {
+        if (req.getDeviceMac() == null && req.getDeviceId() == null) {
+            throw new IllegalArgumentException("Device not found");
+        }
+        return locationBuffer.offer(req);
+    }
+
+    public boolean submitLiveStatus(LiveStatusRequestDto req) {
+        if (req.getDeviceUuid() == null && req.getDeviceId() == null && req.getMachineName() == null) {
+            throw new IllegalArgumentException("Device not found");
+        }
+        return liveStatusBuffer.offer(req);
+    }
+
+    @Override
+    public void start() {
+        if (!props.isEnabled()) return;
+        activityBuffer.start(props.getWriterThreads());
+        locationBuffer.start(props.getWriterThreads());
+        liveStatusBuffer.start(props.getWriterThreads());
+        running = true;
+        log.info("Async ingest enabled: queueCapacity={} flushSize={} flushIntervalMs={}",
+                props.getQueueCapacity(), props.getFlushSize(), props.getFlushIntervalMs());
+    }
+
+    @Override
+    public void stop() {
+        if (!running) return;
+        running = false;
+        activityBuffer.stop(props.getShutdownTimeoutMs());
+        locationBuffer.stop(props.getShutdownTimeoutMs());
+        liveStatusBuffer.stop(props.getShutdownTimeoutMs());
+        log.info("Async ingest drained and stopped");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // stop after the web server so no request can enqueue once draining begins
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+}
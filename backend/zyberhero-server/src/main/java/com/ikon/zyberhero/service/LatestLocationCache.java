@@ -0,0 +1,90 @@
+package com.ikon.zyberhero.service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ikon.zyberhero.entity.Location;
+import com.ikon.zyberhero.repository.LocationJdbcRepository;
+
+// Newest fix per device, so latest-location polls do not hit the locations table.
+// Entries are loaded lazily (one DISTINCT ON query for a whole set of devices) and
+// only move forward in (timestamp, id): ingest offers each fix after commit, and an
+// older, out-of-order fix never replaces a newer one. A newer fix without an id drops
+// the entry instead and the next read reloads it. Devices not cached yet are left
+// alone, so a late fix cannot seed a stale entry.
+@Component
+public class LatestLocationCache {
+
+    private final LocationJdbcRepository locationJdbcRepository;
+    private final Cache<Long, Optional<Location>> latest;
+
+    public LatestLocationCache(LocationJdbcRepository locationJdbcRepository,
+            @Value("${zyberhero.location.latest-cache.max-size:100000}") long maxSize) {
+        this.locationJdbcRepository = locationJdbcRepository;
+        this.latest = Caffeine.newBuilder().maximumSize(maxSize).build();
+    }
+
+    public Optional<Location> get(Long deviceId) {
+        if (deviceId == null) return Optional.empty();
+        return latest.get(deviceId, id -> Optional.ofNullable(locationJdbcRepository.findLatest(List.of(id)).get(id)));
+    }
+
+    // Newest fix of each device that has one, in the order given.
+    public Map<Long, Location> getAll(Collection<Long> deviceIds) {
+        Map<Long, Optional<Location>> found = latest.getAll(deviceIds, missing -> {
+            Map<Long, Location> loaded = locationJdbcRepository.findLatest(missing);
+            Map<Long, Optional<Location>> out = new HashMap<>();
+            for (Long id : missing) out.put(id, Optional.ofNullable(loaded.get(id)));
+            return out;
+        });
+        Map<Long, Location> out = new LinkedHashMap<>();
+        for (Long id : deviceIds) {
+            Optional<Location> l = found.get(id);
+            if (l != null && l.isPresent()) out.put(id, l.get());
+        }
+        return out;
+    }
+
+    // Applied once the caller's transaction commits.
+    public void offer(Location fix) {
+        if (fix == null || fix.getDeviceId() == null || fix.getTimestamp() == null) return;
+        Location copy = new Location(fix.getId(), fix.getTimestamp(), fix.getLatitude(), fix.getLongitude(),
+                fix.getAccuracy(), fix.getAltitude(), fix.getDeviceId());
+        afterCommit(() -> latest.asMap().computeIfPresent(copy.getDeviceId(), (id, current) -> {
+            if (current.isPresent() && !isNewer(copy, current.get())) return current;
+            // without an id the row cannot be served as-is; reload on the next read
+            return copy.getId() == null ? null : Optional.of(copy);
+        }));
+    }
+
+    private static boolean isNewer(Location candidate, Location current) {
+        int byTime = candidate.getTimestamp().compareTo(current.getTimestamp());
+        if (byTime != 0) return byTime > 0;
+        return candidate.getId() == null || current.getId() == null || candidate.getId() > current.getId();
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+}
@@ -1,19 +1,32 @@
 package com.ikon.zyberhero.service;
 
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.ikon.zyberhero.dto.request.LiveStatusRequestDto;
 import com.ikon.zyberhero.dto.response.LiveAppResponseDto;
-import com.ikon.zyberhero.entity.Device;
 import com.ikon.zyberhero.entity.LiveAppStatus;
 import com.ikon.zyberhero.mapper.LiveStatusMapper;
-import com.ikon.zyberhero.repository.DeviceRepository;
+import com.ikon.zyberhero.repository.LiveAppStatusJdbcRepository;
 import com.ikon.zyberhero.repository.LiveAppStatusRepository;
 
 @Service
@@ -21,102 +34,264 @@ public class LiveStatusService {
 
     private static final Logger log = LoggerFactory.getLogger(LiveStatusService.class);
 
-    private final DeviceRepository deviceRepository;
+    private final DeviceResolver deviceResolver;
     private final LiveAppStatusRepository liveAppStatusRepository;
+    private final LiveAppStatusJdbcRepository liveAppStatusJdbcRepository;
     private final LiveStatusMapper mapper;
+    private final DeviceHeartbeatTracker heartbeatTracker;
+    private final LiveStatusStore liveStatusStore;
+    private final EventStreamBroadcaster broadcaster;
+    private final ResourceVersions versions;
+    private final TransactionTemplate tx;
+    // "memory": heartbeats update LiveStatusStore and live_app_status is a periodic snapshot;
+    // "database": every heartbeat is written through to live_app_status
+    private final boolean memoryMode;
+    // lastSeen is served floored to this many seconds in both modes, so in memory mode the
+    // LIVE_STATUS version (ETag) moves when the app set changes or a beat crosses into the
+    // next step, not on every beat; database mode cannot tell a repeated full beat apart
+    // and bumps on each one
+    private final long lastSeenGranularitySeconds;
+    // database mode: when each device's set was last confirmed by an unchanged sync beat,
+    // which does not rewrite live_app_status
+    private final Map<Long, LocalDateTime> confirmedAt = new ConcurrentHashMap<>();
 
-    public LiveStatusService(DeviceRepository deviceRepository,
-            LiveAppStatusRepository liveAppStatusRepository, LiveStatusMapper mapper) {
-        this.deviceRepository = deviceRepository;
+    public LiveStatusService(DeviceResolver deviceResolver,
+            LiveAppStatusRepository liveAppStatusRepository, LiveAppStatusJdbcRepository liveAppStatusJdbcRepository,
+            LiveStatusMapper mapper,
+            DeviceHeartbeatTracker heartbeatTracker, LiveStatusStore liveStatusStore, EventStreamBroadcaster broadcaster,
+            ResourceVersions versions, PlatformTransactionManager transactionManager,
+            @Value("${zyberhero.live-status.mode:memory}") String mode,
+            @Value("${zyberhero.live-status.last-seen-granularity-seconds:30}") long lastSeenGranularitySeconds) {
+        this.deviceResolver = deviceResolver;
         this.liveAppStatusRepository = liveAppStatusRepository;
+        this.liveAppStatusJdbcRepository = liveAppStatusJdbcRepository;
         this.mapper = mapper;
+        this.heartbeatTracker = heartbeatTracker;
+        this.liveStatusStore = liveStatusStore;
+        this.broadcaster = broadcaster;
+        this.versions = versions;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.memoryMode = !"database".equalsIgnoreCase(mode);
+        this.lastSeenGranularitySeconds = Math.max(1, lastSeenGranularitySeconds);
     }
 
     @Transactional
     public List<LiveAppResponseDto> upsertLiveStatus(LiveStatusRequestDto req) {
-        // resolve device: prefer deviceUuid, then deviceId, then mac
-        Device device = null;
-        if (req.getDeviceUuid() != null) {
-            device = deviceRepository.findByDeviceUuid(req.getDeviceUuid()).orElse(null);
+        Long deviceId = resolveDeviceId(req.getDeviceUuid(), req.getDeviceId(), req.getMachineName());
+
+        log.debug("LiveStatus upsert: resolved device id={} uuid={}", deviceId, req.getDeviceUuid());
+
+        LocalDateTime now = LocalDateTime.now();
+        List<LiveStatusStore.LiveApp> reported = new ArrayList<>();
+        if (req.getApps() != null) {
+            for (LiveStatusRequestDto.LiveAppDto a : req.getApps()) {
+                if (a == null || a.getAppName() == null) continue;
+                reported.add(new LiveStatusStore.LiveApp(a.getAppName(), a.getWindowTitle(), now));
+            }
         }
-        if (device == null && req.getDeviceId() != null) {
-            device = deviceRepository.findById(req.getDeviceId()).orElse(null);
+        return replaceApps(deviceId, reported);
+    }
+
+    public Long resolveDeviceId(String deviceUuid, Long deviceId, String machineName) {
+        // resolve device: prefer deviceUuid, then deviceId, then machine name
+        Long resolved = deviceResolver.findIdByUuid(deviceUuid).orElse(null);
+        if (resolved == null && deviceResolver.exists(deviceId)) {
+            resolved = deviceId;
         }
-        if (device == null && req.getMachineName() != null) {
-            device = deviceRepository.findFirstByMachineName(req.getMachineName()).orElse(null);
+        if (resolved == null) {
+            resolved = deviceResolver.findIdByMachineName(machineName).orElse(null);
         }
-        if (device == null) {
-            log.warn("LiveStatus upsert: device not found for request: {}", req);
+        if (resolved == null) {
+            log.warn("LiveStatus: device not found for uuid={} id={} machineName={}", deviceUuid, deviceId, machineName);
             throw new IllegalArgumentException("Device not found");
         }
+        return resolved;
+    }
+
+    // Makes apps the device's complete running set and bumps the device's lastSeen.
+    @Transactional
+    public List<LiveAppResponseDto> replaceApps(Long deviceId, List<LiveStatusStore.LiveApp> reported) {
+        List<LiveAppResponseDto> out = new ArrayList<>();
+        boolean changed = true;
+        boolean nextStep = true;
+        if (memoryMode) {
+            LiveStatusStore.Replaced replaced = liveStatusStore.put(deviceId, reported);
+            Map<String, LiveStatusStore.LiveApp> previous = replaced.previous();
+            Map<String, LiveStatusStore.LiveApp> current = replaced.current();
+            changed = !sameApps(previous, current);
+            nextStep = !current.isEmpty() && !sameStep(lastSeenOf(previous), lastSeenOf(current));
+            for (LiveStatusStore.LiveApp a : current.values()) out.add(toDto(a));
+        } else {
+            writeHeartbeat(deviceId, reported);
+            for (LiveStatusStore.LiveApp a : reported) out.add(toDto(a));
+        }
+        // dashboards only need to hear about a different app set or titles, not every beat
+        if (changed) broadcaster.publish("live-status", deviceId, out);
+        // polled bodies carry lastSeen at step granularity only
+        if (changed || nextStep) versions.bump(ResourceVersions.Kind.LIVE_STATUS, deviceId);
 
-        log.debug("LiveStatus upsert: resolved device id={} uuid={}", device.getId(), device.getDeviceUuid());
+        // update device last seen
+        heartbeatTracker.touch(deviceId);
 
-        // mark existing apps for device as not running
-        java.util.List<LiveAppStatus> running = liveAppStatusRepository.findByDeviceIdAndIsRunningTrue(device.getId());
-        if (running != null && !running.isEmpty()) {
-            for (LiveAppStatus r : running) {
-                r.setIsRunning(false);
+        return out;
+    }
+
+    // A sync beat reporting the same set as before (hash match): refreshes lastSeen in
+    // memory and the device heartbeat without rewriting the set or live_app_status.
+    public void touchApps(Long deviceId) {
+        LocalDateTime now = LocalDateTime.now();
+        if (memoryMode) {
+            Map<String, LiveStatusStore.LiveApp> previous = liveStatusStore.touch(deviceId, now);
+            if (previous != null && !previous.isEmpty() && !sameStep(lastSeenOf(previous), now)) {
+                versions.bump(ResourceVersions.Kind.LIVE_STATUS, deviceId);
+            }
+        } else {
+            LocalDateTime previous = confirmedAt.get(deviceId);
+            confirmedAt.merge(deviceId, now, (a, b) -> a.isAfter(b) ? a : b);
+            if (!sameStep(previous, now)) versions.bump(ResourceVersions.Kind.LIVE_STATUS, deviceId);
+        }
+        heartbeatTracker.touch(deviceId, now);
+    }
+
+    // Group commit for the async ingest pipeline. Heartbeats replace each other, so
+    // only the newest queued heartbeat per device is applied.
+    @Transactional
+    public void ingestQueued(List<LiveStatusRequestDto> items) {
+        Map<String, LiveStatusRequestDto> latest = new LinkedHashMap<>();
+        for (LiveStatusRequestDto req : items) {
+            latest.put(req.getDeviceUuid() + "|" + req.getDeviceId() + "|" + req.getMachineName(), req);
+        }
+        for (LiveStatusRequestDto req : latest.values()) {
+            try {
+                upsertLiveStatus(req);
+            } catch (IllegalArgumentException ex) {
+                log.warn("Dropping queued live status: {}", ex.getMessage());
             }
-            liveAppStatusRepository.saveAll(running);
         }
+    }
 
+    public List<LiveAppResponseDto> getRunningAppsForDevice(Long deviceId) {
         List<LiveAppResponseDto> out = new ArrayList<>();
-        if (req.getApps() != null) {
-            for (LiveStatusRequestDto.LiveAppDto a : req.getApps()) {
-                LiveAppStatus e = mapper.mapFromDto(a);
-                e.setDeviceId(device.getId());
-                // try to find existing by device+appName
-                LiveAppStatus existing = liveAppStatusRepository.findFirstByDeviceIdAndAppName(device.getId(), e.getAppName()).orElse(null);
-                if (existing != null) {
-                    existing.setIsRunning(true);
-                    existing.setWindowTitle(e.getWindowTitle());
-                    existing.setLastSeen(e.getLastSeen());
-                    e = liveAppStatusRepository.save(existing);
-                } else {
-                    e = liveAppStatusRepository.save(e);
+        if (memoryMode) {
+            for (LiveStatusStore.LiveApp a : liveStatusStore.get(deviceId, this::loadRunning).values()) out.add(toDto(a));
+            return out;
+        }
+        return runningFromDatabase(deviceId, null);
+    }
+
+    public List<LiveAppResponseDto> getRunningApps(String deviceUuid, Long deviceId, Integer staleSeconds) {
+        Long resolved = findDeviceId(deviceUuid, deviceId);
+        if (resolved == null) return new ArrayList<>();
+
+        if (staleSeconds != null && staleSeconds > 0) {
+            LocalDateTime cutoff = LocalDateTime.now().minusSeconds(staleSeconds);
+            List<LiveAppResponseDto> out = new ArrayList<>();
+            if (memoryMode) {
+                for (LiveStatusStore.LiveApp a : liveStatusStore.get(resolved, this::loadRunning).values()) {
+                    if (a.lastSeen() != null && !a.lastSeen().isBefore(cutoff)) out.add(toDto(a));
                 }
-                out.add(mapper.mapToDto(e));
+                return out;
             }
+            return runningFromDatabase(resolved, cutoff);
         }
 
-        // log how many running apps now exist for device
-        List<LiveAppStatus> nowRunning = liveAppStatusRepository.findByDeviceIdAndIsRunningTrue(device.getId());
-        log.debug("LiveStatus upsert: after save running apps count={} for deviceId={}", nowRunning.size(), device.getId());
+        return getRunningAppsForDevice(resolved);
+    }
 
-        // update device last seen
-        device.setLastSeen(java.time.LocalDateTime.now());
-        deviceRepository.save(device);
+    public Long findDeviceId(String deviceUuid, Long deviceId) {
+        Long resolved = deviceResolver.findIdByUuid(deviceUuid).orElse(null);
+        if (resolved == null && deviceResolver.exists(deviceId)) {
+            resolved = deviceId;
+        }
+        return resolved;
+    }
 
-        return out;
+    // Persists the in-memory state of devices that changed since the last run, so
+    // restarts warm from a recent state and live_app_status keeps its history.
+    @Scheduled(fixedDelayString = "${zyberhero.live-status.snapshot-interval-ms:10000}")
+    public void snapshot() {
+        if (!memoryMode) return;
+        Map<Long, Map<String, LiveStatusStore.LiveApp>> changed = liveStatusStore.drainDirty();
+        for (Map.Entry<Long, Map<String, LiveStatusStore.LiveApp>> e : changed.entrySet()) {
+            try {
+                tx.executeWithoutResult(status -> writeHeartbeat(e.getKey(), e.getValue().values()));
+            } catch (Exception ex) {
+                liveStatusStore.markDirty(e.getKey());
+                log.warn("LiveStatus snapshot failed for deviceId={}: {}", e.getKey(), ex.getMessage());
+            }
+        }
+        if (!changed.isEmpty()) log.debug("LiveStatus snapshot: wrote {} devices", changed.size());
     }
 
-    public List<LiveAppResponseDto> getRunningAppsForDevice(Long deviceId) {
-        List<LiveAppStatus> apps = liveAppStatusRepository.findByDeviceIdAndIsRunningTrue(deviceId);
+    @PreDestroy
+    public void flushOnShutdown() {
+        snapshot();
+    }
+
+    // Writes one device's full running set: reported apps become running, all others stop.
+    private void writeHeartbeat(Long deviceId, Collection<LiveStatusStore.LiveApp> apps) {
+        List<LiveAppStatusJdbcRepository.RunningApp> rows = new ArrayList<>(apps.size());
+        for (LiveStatusStore.LiveApp a : apps) {
+            rows.add(new LiveAppStatusJdbcRepository.RunningApp(a.appName(), a.windowTitle(), a.lastSeen()));
+        }
+        liveAppStatusJdbcRepository.replaceRunning(deviceId, rows);
+    }
+
+    // Database mode: the running rows, with lastSeen taken from the newest unchanged
+    // sync beat when that is newer; cutoff (optional) drops apps not seen since.
+    private List<LiveAppResponseDto> runningFromDatabase(Long deviceId, LocalDateTime cutoff) {
+        LocalDateTime confirmed = confirmedAt.get(deviceId);
         List<LiveAppResponseDto> out = new ArrayList<>();
-        for (LiveAppStatus s : apps) out.add(mapper.mapToDto(s));
+        for (LiveAppStatus s : liveAppStatusRepository.findByDeviceIdAndIsRunningTrue(deviceId)) {
+            LocalDateTime seen = s.getLastSeen();
+            if (confirmed != null && (seen == null || confirmed.isAfter(seen))) seen = confirmed;
+            if (cutoff != null && (seen == null || seen.isBefore(cutoff))) continue;
+            LiveAppResponseDto d = mapper.mapToDto(s);
+            d.setLastSeen(seen == null ? null : step(seen));
+            out.add(d);
+        }
         return out;
     }
 
-    public List<LiveAppResponseDto> getRunningApps(String deviceUuid, Long deviceId, Integer staleSeconds) {
-        com.ikon.zyberhero.entity.Device device = null;
-        if (deviceUuid != null) {
-            device = deviceRepository.findByDeviceUuid(deviceUuid).orElse(null);
-        }
-        if (device == null && deviceId != null) {
-            device = deviceRepository.findById(deviceId).orElse(null);
+    private Map<String, LiveStatusStore.LiveApp> loadRunning(Long deviceId) {
+        Map<String, LiveStatusStore.LiveApp> apps = new LinkedHashMap<>();
+        for (LiveAppStatus s : liveAppStatusRepository.findByDeviceIdAndIsRunningTrue(deviceId)) {
+            apps.put(s.getAppName(), new LiveStatusStore.LiveApp(s.getAppName(), s.getWindowTitle(), s.getLastSeen()));
         }
-        if (device == null) return new ArrayList<>();
+        return apps;
+    }
 
-        if (staleSeconds != null && staleSeconds > 0) {
-            java.time.LocalDateTime cutoff = java.time.LocalDateTime.now().minusSeconds(staleSeconds);
-            List<LiveAppStatus> apps = liveAppStatusRepository.findByDeviceIdAndIsRunningTrueAndLastSeenGreaterThanEqual(device.getId(), cutoff);
-            List<LiveAppResponseDto> out = new ArrayList<>();
-            for (LiveAppStatus s : apps) out.add(mapper.mapToDto(s));
-            return out;
+    private static boolean sameApps(Map<String, LiveStatusStore.LiveApp> a, Map<String, LiveStatusStore.LiveApp> b) {
+        if (a == null || b == null || a.size() != b.size()) return false;
+        for (LiveStatusStore.LiveApp app : b.values()) {
+            LiveStatusStore.LiveApp other = a.get(app.appName());
+            if (other == null || !Objects.equals(other.windowTitle(), app.windowTitle())) return false;
         }
+        return true;
+    }
+
+    // apps of one heartbeat share their lastSeen
+    private static LocalDateTime lastSeenOf(Map<String, LiveStatusStore.LiveApp> apps) {
+        if (apps == null) return null;
+        for (LiveStatusStore.LiveApp a : apps.values()) if (a.lastSeen() != null) return a.lastSeen();
+        return null;
+    }
+
+    private boolean sameStep(LocalDateTime a, LocalDateTime b) {
+        return a != null && b != null && step(a).equals(step(b));
+    }
+
+    private Instant step(LocalDateTime t) {
+        long seconds = t.atZone(ZoneId.systemDefault()).toEpochSecond();
+        return Instant.ofEpochSecond(seconds - Math.floorMod(seconds, lastSeenGranularitySeconds));
+    }
 
-        return getRunningAppsForDevice(device.getId());
+    private LiveAppResponseDto toDto(LiveStatusStore.LiveApp a) {
+        LiveAppResponseDto d = new LiveAppResponseDto();
+        d.setAppName(a.appName());
+        d.setWindowTitle(a.windowTitle());
+        d.setLastSeen(a.lastSeen() == null ? null : step(a.lastSeen()));
+        return d;
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,73 @@
+package com.ikon.zyberhero.service;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.springframework.stereotype.Component;
+
+// Current running apps per device, kept in memory. Each heartbeat replaces the
+// device's whole app map (readers always see a complete, immutable map); devices
+// changed since the last snapshot are tracked so LiveStatusService can persist them.
+@Component
+public class LiveStatusStore {
+
+    public record LiveApp(String appName, String windowTitle, LocalDateTime lastSeen) {}
+
+    private final ConcurrentHashMap<Long, Map<String, LiveApp>> appsByDevice = new ConcurrentHashMap<>();
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+
+    // previous is null for a device not in memory
+    public record Replaced(Map<String, LiveApp> previous, Map<String, LiveApp> current) {}
+
+    // The swap is atomic, so of two concurrent beats each sees the map the other replaced.
+    public Replaced put(Long deviceId, List<LiveApp> apps) {
+        Map<String, LiveApp> next = new LinkedHashMap<>();
+        for (LiveApp a : apps) next.put(a.appName(), a);
+        Map<String, LiveApp> snapshot = Collections.unmodifiableMap(next);
+        Map<String, LiveApp> previous = appsByDevice.put(deviceId, snapshot);
+        dirty.add(deviceId);
+        return new Replaced(previous, snapshot);
+    }
+
+    // Moves every app's lastSeen to at, keeping the set; returns the previous map, null
+    // for a device not in memory. Not marked dirty: the snapshot only tracks set changes.
+    public Map<String, LiveApp> touch(Long deviceId, LocalDateTime at) {
+        @SuppressWarnings("unchecked")
+        Map<String, LiveApp>[] before = new Map[1];
+        appsByDevice.computeIfPresent(deviceId, (id, apps) -> {
+            before[0] = apps;
+            Map<String, LiveApp> next = new LinkedHashMap<>();
+            for (LiveApp a : apps.values()) next.put(a.appName(), new LiveApp(a.appName(), a.windowTitle(), at));
+            return Collections.unmodifiableMap(next);
+        });
+        return before[0];
+    }
+
+    // loader warms devices not seen since startup (from the last snapshot in the database)
+    public Map<String, LiveApp> get(Long deviceId, Function<Long, Map<String, LiveApp>> loader) {
+        return appsByDevice.computeIfAbsent(deviceId, id -> Collections.unmodifiableMap(new LinkedHashMap<>(loader.apply(id))));
+    }
+
+    public Map<Long, Map<String, LiveApp>> drainDirty() {
+        Map<Long, Map<String, LiveApp>> out = new HashMap<>();
+        for (Long id : dirty) {
+            // remove before reading: a put racing with us re-marks the device for the next round
+            dirty.remove(id);
+            Map<String, LiveApp> apps = appsByDevice.get(id);
+            if (apps != null) out.put(id, apps);
+        }
+        return out;
+    }
+
+    public void markDirty(Long deviceId) {
+        dirty.add(deviceId);
+    }
+
+}
@@ -0,0 +1,192 @@
+package com.ikon.zyberhero.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import com.ikon.zyberhero.dto.request.LiveStatusRequestDto;
+import com.ikon.zyberhero.dto.request.LiveStatusSyncRequestDto;
+import com.ikon.zyberhero.dto.response.LiveStatusSyncResponseDto;
+
+// Sequenced live status protocol (see LiveStatusSyncRequestDto). The server keeps
+// the last applied seq, the hash and the set itself per device; anything it cannot
+// verify (unknown device state, seq gap, hash mismatch) is answered with "resync" so
+// the agent falls back to a full report. State is in memory only, in a bounded cache
+// that forgets idle devices, so after a restart or eviction the agent resyncs once.
+// A report is checked and applied to the state under the device's lock; the write
+// through LiveStatusService happens after the lock is released. A matching hash
+// writes nothing: it only refreshes lastSeen (LiveStatusService.touchApps).
+@Service
+public class LiveStatusSyncService {
+
+    private static final Logger log = LoggerFactory.getLogger(LiveStatusSyncService.class);
+
+    private final LiveStatusService liveStatusService;
+    private final Cache<Long, SyncState> states;
+
+    private static final class SyncState {
+        long seq;
+        String hash;
+        Map<String, LiveStatusStore.LiveApp> apps = Map.of();
+        long applied; // reports applied to this state
+        long written; // newest of them handed to LiveStatusService
+    }
+
+    // write is null when nothing is to be written
+    private record Outcome(String status, long seq, String hash, List<LiveStatusStore.LiveApp> write, long version) {}
+
+    public LiveStatusSyncService(LiveStatusService liveStatusService,
+            @Value("${zyberhero.live-status.sync.max-devices:100000}") long maxDevices,
+            @Value("${zyberhero.live-status.sync.idle-minutes:60}") long idleMinutes) {
+        this.liveStatusService = liveStatusService;
+        this.states = Caffeine.newBuilder()
+                .maximumSize(maxDevices)
+                .expireAfterAccess(Duration.ofMinutes(idleMinutes))
+                .build();
+    }
+
+    public LiveStatusSyncResponseDto sync(LiveStatusSyncRequestDto req) {
+        if (req.getSeq() == null) throw new IllegalArgumentException("Missing required field: seq");
+        String mode = req.getMode() == null ? "full" : req.getMode().toLowerCase();
+        if (!List.of("full", "delta", "hash").contains(mode)) {
+            throw new IllegalArgumentException("mode must be full, delta or hash");
+        }
+        Long deviceId = liveStatusService.resolveDeviceId(req.getDeviceUuid(), req.getDeviceId(), req.getMachineName());
+
+        SyncState state = states.get(deviceId, id -> new SyncState());
+        Outcome outcome;
+        // reports of one device are checked one at a time, in arrival order
+        synchronized (state) {
+            outcome = switch (mode) {
+                case "delta" -> applyDelta(deviceId, state, req);
+                case "hash" -> applyHash(state, req);
+                default -> applyFull(state, req);
+            };
+        }
+        if (outcome.write() != null) write(deviceId, state, outcome);
+        else if ("unchanged".equals(outcome.status())) liveStatusService.touchApps(deviceId);
+        return response(outcome);
+    }
+
+    private Outcome applyFull(SyncState state, LiveStatusSyncRequestDto req) {
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, LiveStatusStore.LiveApp> apps = new LinkedHashMap<>();
+        put(apps, req.getApps(), now);
+        return commit(state, req.getSeq(), apps);
+    }
+
+    private Outcome applyDelta(Long deviceId, SyncState state, LiveStatusSyncRequestDto req) {
+        if (state.hash == null || req.getBaseSeq() == null || req.getBaseSeq() != state.seq) {
+            log.debug("LiveStatus sync: seq gap for deviceId={} (server {} agent base {})", deviceId, state.seq, req.getBaseSeq());
+            return resync(state);
+        }
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, LiveStatusStore.LiveApp> apps = refreshed(state, now);
+        if (req.getRemoved() != null) req.getRemoved().forEach(apps::remove);
+        put(apps, req.getAdded(), now);
+        put(apps, req.getChanged(), now);
+
+        if (req.getHash() != null && !req.getHash().equalsIgnoreCase(hash(apps.values()))) {
+            log.debug("LiveStatus sync: hash mismatch after delta for deviceId={}", deviceId);
+            return resync(state);
+        }
+        return commit(state, req.getSeq(), apps);
+    }
+
+    private Outcome applyHash(SyncState state, LiveStatusSyncRequestDto req) {
+        if (state.hash == null || req.getHash() == null || !state.hash.equalsIgnoreCase(req.getHash())) {
+            return resync(state);
+        }
+        // same set as before: nothing to write, sync() only refreshes lastSeen
+        state.seq = req.getSeq();
+        return new Outcome("unchanged", state.seq, state.hash, null, 0);
+    }
+
+    private Outcome commit(SyncState state, long seq, Map<String, LiveStatusStore.LiveApp> apps) {
+        state.seq = seq;
+        state.hash = hash(apps.values());
+        state.apps = apps;
+        return new Outcome("ok", state.seq, state.hash, new ArrayList<>(apps.values()), ++state.applied);
+    }
+
+    private Outcome resync(SyncState state) {
+        return new Outcome("resync", state.seq, state.hash, null, 0);
+    }
+
+    // Outside the device lock. A failed write, or one that lands after a newer report's
+    // write, leaves the stored set unverified: the state is dropped to force a resync.
+    private void write(Long deviceId, SyncState state, Outcome outcome) {
+        try {
+            liveStatusService.replaceApps(deviceId, outcome.write());
+        } catch (RuntimeException ex) {
+            synchronized (state) {
+                state.hash = null;
+            }
+            throw ex;
+        }
+        synchronized (state) {
+            if (state.written > outcome.version()) {
+                log.debug("LiveStatus sync: out-of-order write for deviceId={}, forcing resync", deviceId);
+                state.hash = null;
+            } else {
+                state.written = outcome.version();
+            }
+        }
+    }
+
+    private static Map<String, LiveStatusStore.LiveApp> refreshed(SyncState state, LocalDateTime now) {
+        Map<String, LiveStatusStore.LiveApp> apps = new LinkedHashMap<>();
+        for (LiveStatusStore.LiveApp a : state.apps.values()) {
+            apps.put(a.appName(), new LiveStatusStore.LiveApp(a.appName(), a.windowTitle(), now));
+        }
+        return apps;
+    }
+
+    private static LiveStatusSyncResponseDto response(Outcome outcome) {
+        LiveStatusSyncResponseDto r = new LiveStatusSyncResponseDto();
+        r.setStatus(outcome.status());
+        r.setSeq(outcome.seq());
+        r.setHash(outcome.hash());
+        return r;
+    }
+
+    private static void put(Map<String, LiveStatusStore.LiveApp> apps, List<LiveStatusRequestDto.LiveAppDto> list, LocalDateTime now) {
+        if (list == null) return;
+        for (LiveStatusRequestDto.LiveAppDto a : list) {
+            if (a == null || a.getAppName() == null) continue;
+            apps.put(a.getAppName(), new LiveStatusStore.LiveApp(a.getAppName(), a.getWindowTitle(), now));
+        }
+    }
+
+    static String hash(Collection<LiveStatusStore.LiveApp> apps) {
+        TreeMap<String, String> sorted = new TreeMap<>();
+        for (LiveStatusStore.LiveApp a : apps) sorted.put(a.appName(), a.windowTitle() == null ? "" : a.windowTitle());
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            for (Map.Entry<String, String> e : sorted.entrySet()) {
+                sha.update((e.getKey() + "\t" + e.getValue() + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+            return HexFormat.of().formatHex(sha.digest());
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+}
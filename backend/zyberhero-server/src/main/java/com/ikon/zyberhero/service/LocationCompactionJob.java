@@ -0,0 +1,84 @@
+package com.ikon.zyberhero.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.ikon.zyberhero.entity.Location;
+import com.ikon.zyberhero.repository.LocationJdbcRepository;
+
+// Down-samples old location history: once a day has aged past after-days, each
+// device's track for that day is simplified (TrajectorySimplifier, tolerance-meters)
+// and the dropped fixes are deleted, one transaction per device and day. Days from
+// lookback-days before the cutoff are revisited so a missed run catches up, but each
+// device day is simplified once: the error of repeated passes adds up, so a compacted
+// day is marked (location_compaction_marks, V15) together with its delete and skipped.
+@Component
+public class LocationCompactionJob {
+
+    private static final Logger log = LoggerFactory.getLogger(LocationCompactionJob.class);
+
+    private final LocationJdbcRepository locationJdbcRepository;
+    private final TransactionTemplate tx;
+    private final int afterDays;
+    private final int lookbackDays;
+    private final double toleranceMeters;
+
+    public LocationCompactionJob(LocationJdbcRepository locationJdbcRepository, PlatformTransactionManager transactionManager,
+            @Value("${zyberhero.location.compaction.after-days:0}") int afterDays,
+            @Value("${zyberhero.location.compaction.lookback-days:1}") int lookbackDays,
+            @Value("${zyberhero.location.compaction.tolerance-meters:10}") double toleranceMeters) {
+        this.locationJdbcRepository = locationJdbcRepository;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.afterDays = afterDays;
+        this.lookbackDays = Math.max(1, lookbackDays);
+        this.toleranceMeters = toleranceMeters;
+    }
+
+    @Scheduled(cron = "${zyberhero.location.compaction.cron:0 45 3 * * *}")
+    public void run() {
+        if (afterDays <= 0 || toleranceMeters <= 0) return;
+        LocalDate cutoff = LocalDate.now().minusDays(afterDays);
+        for (LocalDate day = cutoff.minusDays(lookbackDays); day.isBefore(cutoff); day = day.plusDays(1)) {
+            try {
+                compactDay(day);
+            } catch (Exception ex) {
+                log.error("Location compaction failed for {}", day, ex);
+            }
+        }
+    }
+
+    private void compactDay(LocalDate day) {
+        LocalDateTime from = day.atStartOfDay();
+        LocalDateTime to = day.plusDays(1).atStartOfDay();
+        int before = 0;
+        int deleted = 0;
+        Set<Long> compacted = locationJdbcRepository.findCompactedDeviceIds(day);
+        for (Long deviceId : locationJdbcRepository.findDeviceIdsBetween(from, to)) {
+            if (compacted.contains(deviceId)) continue;
+            List<Location> track = locationJdbcRepository.findTrack(deviceId, from, to).stream()
+                    .filter(l -> l.getLatitude() != null && l.getLongitude() != null).toList();
+            Set<Long> kept = new HashSet<>();
+            for (Location l : TrajectorySimplifier.simplify(track, toleranceMeters, 0)) kept.add(l.getId());
+            List<Long> drop = track.stream().map(Location::getId).filter(id -> !kept.contains(id)).toList();
+            before += track.size();
+            Integer n = tx.execute(status -> {
+                locationJdbcRepository.markCompacted(deviceId, day);
+                return locationJdbcRepository.deleteByIds(deviceId, from, to, drop);
+            });
+            deleted += n == null ? 0 : n;
+        }
+        if (deleted > 0) log.info("Location compaction: {} kept {} of {} fixes", day, before - deleted, before);
+    }
+
+}
@@ -1,107 +1,333 @@
 package com.ikon.zyberhero.service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
 import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import com.ikon.zyberhero.config.IngestProperties;
+import com.ikon.zyberhero.dto.request.AlertCreateRequestDto;
+import com.ikon.zyberhero.dto.request.LocationBatchRequestDto;
 import com.ikon.zyberhero.dto.request.LocationCreateRequestDto;
+import com.ikon.zyberhero.dto.response.BatchResultResponseDto;
 import com.ikon.zyberhero.dto.response.LocationResponseDto;
-import com.ikon.zyberhero.entity.Device;
 import com.ikon.zyberhero.entity.Location;
-import com.ikon.zyberhero.repository.DeviceRepository;
+import com.ikon.zyberhero.repository.LocationJdbcRepository;
 import com.ikon.zyberhero.repository.LocationRepository;
 
 @Service
 public class LocationService {
 
-    private final DeviceRepository deviceRepository;
+    private static final Logger log = LoggerFactory.getLogger(LocationService.class);
+
+    private final DeviceResolver deviceResolver;
     private final LocationRepository locationRepository;
+    private final LocationJdbcRepository locationJdbcRepository;
+    private final DeviceHeartbeatTracker heartbeatTracker;
+    private final EventStreamBroadcaster broadcaster;
+    private final ResourceVersions versions;
+    private final GeofenceEngine geofenceEngine;
+    private final IngestProperties ingestProperties;
+    private final LatestLocationCache latestLocationCache;
+    private final AlertService alertService;
+    private final int historyDefaultLimit;
+    private final int historyMaxLimit;
+    private final int simplifyMaxInput;
 
-    public LocationService(DeviceRepository deviceRepository, LocationRepository locationRepository) {
-        this.deviceRepository = deviceRepository;
+    public LocationService(DeviceResolver deviceResolver, LocationRepository locationRepository,
+            LocationJdbcRepository locationJdbcRepository, DeviceHeartbeatTracker heartbeatTracker,
+            EventStreamBroadcaster broadcaster, ResourceVersions versions, GeofenceEngine geofenceEngine,
+            AlertService alertService, IngestProperties ingestProperties, LatestLocationCache latestLocationCache,
+            @Value("${zyberhero.location.history.default-limit:100}") int historyDefaultLimit,
+            @Value("${zyberhero.location.history.max-limit:1000}") int historyMaxLimit,
+            @Value("${zyberhero.location.history.simplify-max-input:20000}") int simplifyMaxInput) {
+        this.deviceResolver = deviceResolver;
         this.locationRepository = locationRepository;
+        this.locationJdbcRepository = locationJdbcRepository;
+        this.heartbeatTracker = heartbeatTracker;
+        this.broadcaster = broadcaster;
+        this.versions = versions;
+        this.geofenceEngine = geofenceEngine;
+        this.alertService = alertService;
+        this.ingestProperties = ingestProperties;
+        this.latestLocationCache = latestLocationCache;
+        this.historyDefaultLimit = historyDefaultLimit;
+        this.historyMaxLimit = historyMaxLimit;
+        this.simplifyMaxInput = simplifyMaxInput;
     }
 
     @Transactional
     public LocationResponseDto createLocation(LocationCreateRequestDto req) {
-        Device device = null;
-        if (req.getDeviceMac() != null) {
-            device = deviceRepository.findFirstByMacAddress(req.getDeviceMac()).orElse(null);
+        Long deviceId = resolveDeviceId(req);
+        if (deviceId == null) throw new IllegalArgumentException("Device not found");
+
+        Location loc = toEntity(req, deviceId);
+        loc = locationRepository.save(loc);
+
+        heartbeatTracker.touch(deviceId);
+        checkSafeZones(loc);
+        latestLocationCache.offer(loc);
+
+        LocationResponseDto dto = toDto(loc);
+        broadcaster.publish("location", deviceId, dto);
+        versions.bump(ResourceVersions.Kind.LOCATION, deviceId);
+        return dto;
+    }
+
+    // Group commit for the async ingest pipeline.
+    @Transactional
+    public void ingestQueued(List<LocationCreateRequestDto> items) {
+        List<Location> rows = new ArrayList<>(items.size());
+        for (LocationCreateRequestDto req : items) {
+            Long deviceId = resolveDeviceId(req);
+            if (deviceId == null) {
+                log.warn("Dropping queued location for mac={} deviceId={}: device not found", req.getDeviceMac(), req.getDeviceId());
+                continue;
+            }
+            rows.add(toEntity(req, deviceId));
         }
-        if (device == null && req.getDeviceId() != null) {
-            device = deviceRepository.findById(req.getDeviceId()).orElse(null);
+        if (rows.isEmpty()) return;
+
+        locationJdbcRepository.batchInsert(rows);
+        afterInsert(rows);
+    }
+
+    // Replay of fixes buffered by an offline agent: the device is resolved once, all
+    // valid fixes go in with one JDBC batch, lastSeen is touched once and the safe zone
+    // check runs over the fixes in timestamp order.
+    @Transactional
+    public BatchResultResponseDto createLocationBatch(LocationBatchRequestDto req) {
+        List<LocationCreateRequestDto> items = req.getLocations();
+        if (items == null || items.isEmpty()) {
+            throw new IllegalArgumentException("Missing required field: locations");
+        }
+        if (items.size() > ingestProperties.getBatchMaxItems()) {
+            throw new IllegalArgumentException("Too many locations in batch (max " + ingestProperties.getBatchMaxItems() + ")");
         }
-        if (device == null) throw new IllegalArgumentException("Device not found");
 
-        Location loc = new Location();
-        if (req.getTimestamp() != null) {
-            loc.setTimestamp(LocalDateTime.ofInstant(req.getTimestamp(), ZoneId.systemDefault()));
-        } else {
-            loc.setTimestamp(LocalDateTime.now());
+        // the whole batch belongs to one device, resolved once
+        LocationCreateRequestDto ref = new LocationCreateRequestDto();
+        ref.setDeviceId(req.getDeviceId());
+        ref.setDeviceMac(req.getDeviceMac());
+        if (ref.getDeviceId() == null && ref.getDeviceMac() == null && items.get(0) != null) {
+            ref.setDeviceId(items.get(0).getDeviceId());
+            ref.setDeviceMac(items.get(0).getDeviceMac());
         }
-        loc.setLatitude(req.getLatitude());
-        loc.setLongitude(req.getLongitude());
-        loc.setAccuracy(req.getAccuracy());
-        loc.setAltitude(req.getAltitude());
-        loc.setDeviceId(device.getId());
+        Long deviceId = resolveDeviceId(ref);
+        if (deviceId == null) throw new IllegalArgumentException("Device not found");
 
-        loc = locationRepository.save(loc);
+        List<Location> rows = new ArrayList<>(items.size());
+        List<BatchResultResponseDto.ItemResultDto> results = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            LocationCreateRequestDto item = items.get(i);
+            String error = null;
+            if (item == null) error = "Empty entry";
+            else if (item.getLatitude() == null || item.getLongitude() == null) error = "Missing required field: latitude/longitude";
+            else if (Math.abs(item.getLatitude()) > 90 || Math.abs(item.getLongitude()) > 180) error = "Coordinates out of range";
+
+            if (error == null) rows.add(toEntity(item, deviceId));
+            results.add(itemResult(i, error));
+        }
+
+        if (!rows.isEmpty()) {
+            locationJdbcRepository.batchInsert(rows);
+            afterInsert(rows);
+        }
+
+        BatchResultResponseDto res = new BatchResultResponseDto();
+        res.setAccepted(rows.size());
+        res.setRejected(items.size() - rows.size());
+        res.setResults(results);
+        return res;
+    }
 
-        device.setLastSeen(LocalDateTime.now());
-        deviceRepository.save(device);
+    // Bookkeeping after a multi-row insert: lastSeen once per device, safe zones in fix
+    // order, and one event / version bump per device for its newest fix.
+    private void afterInsert(List<Location> rows) {
+        rows.stream().map(Location::getDeviceId).distinct().forEach(heartbeatTracker::touch);
+        rows.stream().sorted(Comparator.comparing(Location::getTimestamp)).forEach(this::checkSafeZones);
 
-        return toDto(loc);
+        Map<Long, Location> newest = new HashMap<>();
+        for (Location l : rows) newest.merge(l.getDeviceId(), l, (a, b) -> b.getTimestamp().isAfter(a.getTimestamp()) ? b : a);
+        newest.forEach((id, l) -> {
+            latestLocationCache.offer(l);
+            broadcaster.publish("location", id, toDto(l));
+            versions.bump(ResourceVersions.Kind.LOCATION, id);
+        });
     }
 
+    // Served from LatestLocationCache; the locations table is only read on a cache miss.
     public LocationResponseDto latest(String deviceUuid, Long deviceId) {
-        Device device = resolveDevice(deviceUuid, deviceId);
-        if (device == null) return null;
-        return locationRepository.findFirstByDeviceIdOrderByTimestampDesc(device.getId()).map(this::toDto).orElse(null);
+        Long resolved = resolveDeviceId(deviceUuid, deviceId);
+        if (resolved == null) return null;
+        return latestLocationCache.get(resolved).map(this::toDto).orElse(null);
     }
 
     public LocationResponseDto deviceLocationByUuid(String deviceUuid) {
-        Device device = deviceRepository.findByDeviceUuid(deviceUuid).orElse(null);
-        if (device == null) return null;
-        return locationRepository.findFirstByDeviceIdOrderByTimestampDesc(device.getId()).map(this::toDto).orElse(null);
+        Long resolved = deviceResolver.findIdByUuid(deviceUuid).orElse(null);
+        if (resolved == null) return null;
+        return latestLocationCache.get(resolved).map(this::toDto).orElse(null);
+    }
+
+    // Newest fix of every device of the child that has reported one.
+    public List<LocationResponseDto> latestForChild(Long childId) {
+        if (childId == null) throw new IllegalArgumentException("Missing required parameter: childId");
+        List<LocationResponseDto> out = new ArrayList<>();
+        for (Location l : latestLocationCache.getAll(deviceResolver.deviceIdsForChild(childId)).values()) out.add(toDto(l));
+        return out;
     }
 
-    public List<LocationResponseDto> history(String deviceUuid, Long deviceId, String date, Integer limit) {
-        Device device = resolveDevice(deviceUuid, deviceId);
-        if (device == null) return new ArrayList<>();
+    // A page of history plus the cursors around it: before (older page, present when this
+    // page is full) and after (newer rows, also what a client polls with for new fixes).
+    public record HistoryPage(List<LocationResponseDto> items, String before, String after) {}
+
+    // Keyset-paged history, newest first; the optional date limits it to that day.
+    // With tolerance (metres) or maxPoints the page is read raw (up to simplify-max-input
+    // rows, or limit) and returned as a simplified track; the cursors still refer to the
+    // raw rows, so paging continues where the raw read stopped.
+    public HistoryPage history(String deviceUuid, Long deviceId, String date, Integer limit, String before, String after,
+            Double tolerance, Integer maxPoints) {
+        if (before != null && after != null) throw new IllegalArgumentException("Use either before or after, not both");
+        if (tolerance != null && tolerance < 0) throw new IllegalArgumentException("tolerance must not be negative");
+        if (maxPoints != null && maxPoints < 2) throw new IllegalArgumentException("maxPoints must be at least 2");
+        Long resolved = resolveDeviceId(deviceUuid, deviceId);
+        if (resolved == null) return new HistoryPage(new ArrayList<>(), null, null);
+        boolean simplify = tolerance != null || maxPoints != null;
+        int pageSize;
+        if (simplify) pageSize = limit == null || limit <= 0 ? simplifyMaxInput : Math.min(limit, simplifyMaxInput);
+        else pageSize = limit == null || limit <= 0 ? historyDefaultLimit : Math.min(limit, historyMaxLimit);
+
+        LocalDateTime from = null;
+        LocalDateTime to = null;
         if (date != null) {
             LocalDate d = LocalDate.parse(date);
-            LocalDateTime start = LocalDateTime.of(d, LocalTime.MIN);
-            LocalDateTime end = LocalDateTime.of(d, LocalTime.MAX);
-            List<Location> list = locationRepository.findByDeviceIdAndTimestampBetweenOrderByTimestampDesc(device.getId(), start, end);
-            List<LocationResponseDto> out = new ArrayList<>();
-            for (Location l : list) out.add(toDto(l));
-            if (limit != null && out.size() > limit) return out.subList(0, limit);
-            return out;
-        } else {
-            List<Location> list = locationRepository.findByDeviceIdOrderByTimestampDesc(device.getId());
-            List<LocationResponseDto> out = new ArrayList<>();
-            for (Location l : list) out.add(toDto(l));
-            if (limit != null && out.size() > limit) return out.subList(0, limit);
-            return out;
+            from = d.atStartOfDay();
+            to = d.plusDays(1).atStartOfDay();
+        }
+        List<Location> rows = locationJdbcRepository.findPage(resolved, from, to, decodeCursor(before), decodeCursor(after), pageSize);
+        List<Location> points = rows;
+        if (simplify) {
+            List<Location> track = new ArrayList<>(rows.size());
+            for (int i = rows.size() - 1; i >= 0; i--) {
+                Location l = rows.get(i);
+                if (l.getLatitude() != null && l.getLongitude() != null) track.add(l);
+            }
+            points = new ArrayList<>(TrajectorySimplifier.simplify(track, tolerance == null ? 0 : tolerance,
+                    maxPoints == null ? 0 : maxPoints));
+            Collections.reverse(points);
+        }
+        List<LocationResponseDto> out = new ArrayList<>(points.size());
+        for (Location l : points) out.add(toDto(l));
+
+        String olderCursor = rows.size() == pageSize ? encodeCursor(rows.get(rows.size() - 1)) : null;
+        String newerCursor = rows.isEmpty() ? after : encodeCursor(rows.get(0));
+        return new HistoryPage(out, olderCursor, newerCursor);
+    }
+
+    public Long findDeviceId(String deviceUuid, Long deviceId) {
+        return resolveDeviceId(deviceUuid, deviceId);
+    }
+
+    // Raises a safezone_enter / safezone_exit alert when the fix crosses a zone boundary.
+    // Alerts are written once the fix has committed, each in its own transaction, so a
+    // failing alert cannot roll the location back and a rolled-back fix raises none.
+    private void checkSafeZones(Location l) {
+        List<AlertCreateRequestDto> alerts = new ArrayList<>();
+        for (GeofenceEngine.Transition t : geofenceEngine.evaluate(l.getDeviceId(), l.getLatitude(), l.getLongitude(),
+                l.getAccuracy(), l.getTimestamp())) {
+            AlertCreateRequestDto alert = new AlertCreateRequestDto();
+            alert.setDeviceId(l.getDeviceId());
+            alert.setAppName("safezone");
+            alert.setType(t.entered() ? "safezone_enter" : "safezone_exit");
+            alert.setTimestamp(l.getTimestamp().atZone(ZoneId.systemDefault()).toInstant());
+            Map<String, Object> details = new LinkedHashMap<>();
+            details.put("zoneId", t.zoneId());
+            details.put("zoneName", t.zoneName());
+            details.put("latitude", l.getLatitude());
+            details.put("longitude", l.getLongitude());
+            details.put("accuracy", l.getAccuracy());
+            alert.setDetails(details);
+            alerts.add(alert);
         }
+        if (alerts.isEmpty()) return;
+        afterCommit(() -> {
+            for (AlertCreateRequestDto alert : alerts) {
+                try {
+                    alertService.createAlertInNewTransaction(alert);
+                } catch (Exception ex) {
+                    log.warn("Failed to raise {} alert for deviceId={}: {}", alert.getType(), alert.getDeviceId(), ex.getMessage());
+                }
+            }
+        });
+    }
+
+    // opaque to clients: base64url of "<timestamp>|<id>"
+    private static String encodeCursor(Location l) {
+        String raw = l.getTimestamp() + "|" + l.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
     }
 
-    private Device resolveDevice(String deviceUuid, Long deviceId) {
-        Device device = null;
-        if (deviceUuid != null) {
-            device = deviceRepository.findByDeviceUuid(deviceUuid).orElse(null);
+    private static LocationJdbcRepository.Cursor decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) return null;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int sep = raw.indexOf('|');
+            return new LocationJdbcRepository.Cursor(LocalDateTime.parse(raw.substring(0, sep)), Long.parseLong(raw.substring(sep + 1)));
+        } catch (RuntimeException ex) {
+            throw new IllegalArgumentException("Invalid cursor");
         }
-        if (device == null && deviceId != null) {
-            device = deviceRepository.findById(deviceId).orElse(null);
+    }
+
+    private Long resolveDeviceId(String deviceUuid, Long deviceId) {
+        Long resolved = deviceResolver.findIdByUuid(deviceUuid).orElse(null);
+        if (resolved == null && deviceResolver.exists(deviceId)) resolved = deviceId;
+        return resolved;
+    }
+
+    private Long resolveDeviceId(LocationCreateRequestDto req) {
+        Long resolved = deviceResolver.findIdByMac(req.getDeviceMac()).orElse(null);
+        if (resolved == null && deviceResolver.exists(req.getDeviceId())) resolved = req.getDeviceId();
+        return resolved;
+    }
+
+    private BatchResultResponseDto.ItemResultDto itemResult(int index, String error) {
+        BatchResultResponseDto.ItemResultDto r = new BatchResultResponseDto.ItemResultDto();
+        r.setIndex(index);
+        r.setStatus(error == null ? "accepted" : "rejected");
+        r.setError(error);
+        return r;
+    }
+
+    private Location toEntity(LocationCreateRequestDto req, Long deviceId) {
+        Location loc = new Location();
+        if (req.getTimestamp() != null) {
+            loc.setTimestamp(LocalDateTime.ofInstant(req.getTimestamp(), ZoneId.systemDefault()));
+        } else {
+            loc.setTimestamp(LocalDateTime.now());
         }
-        return device;
+        loc.setLatitude(req.getLatitude());
+        loc.setLongitude(req.getLongitude());
+        loc.setAccuracy(req.getAccuracy());
+        loc.setAltitude(req.getAltitude());
+        loc.setDeviceId(deviceId);
+        return loc;
     }
 
     private LocationResponseDto toDto(Location l) {
@@ -116,4 +342,17 @@ public class LocationService {
         return d;
     }
 
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
 }
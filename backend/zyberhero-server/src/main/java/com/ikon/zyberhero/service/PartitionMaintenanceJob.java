@@ -0,0 +1,222 @@
+package com.ikon.zyberhero.service;
+
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import com.ikon.zyberhero.config.PartitioningProperties;
+
+// Keeps the range-partitioned activity_logs / locations tables ready: creates
+// upcoming partitions ahead of time and retires the ones past retention.
+// Partitions are named <table>_p<from>_<to> (yyyyMMdd, upper bound exclusive).
+// Rows that land in the default partition (agents with a skewed clock) are moved
+// into the partition of their range when it is created, and past ranges found only
+// in the default partition get a partition of their own, so retention covers them.
+// Failures are logged as errors and counted (zyberhero.partitioning.failures).
+@Component
+public class PartitionMaintenanceJob {
+
+    private static final Logger log = LoggerFactory.getLogger(PartitionMaintenanceJob.class);
+
+    private static final Pattern PARTITION_NAME = Pattern.compile("_p(\\d{8})_(\\d{8})$");
+    private static final DateTimeFormatter DAY = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate tx;
+    private final PartitioningProperties props;
+    private final MeterRegistry meterRegistry;
+
+    private record Partition(String name, LocalDate from, LocalDate to) {}
+
+    public PartitionMaintenanceJob(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            PartitioningProperties props, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.props = props;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        run();
+    }
+
+    @Scheduled(cron = "${zyberhero.partitioning.cron:0 15 3 * * *}")
+    public void run() {
+        if (!props.isEnabled()) return;
+        maintain("activity_logs", props.getActivityRetentionDays());
+        maintain("locations", props.getLocationRetentionDays());
+    }
+
+    private void maintain(String table, int retentionDays) {
+        try {
+            if (!isPartitioned(table)) {
+                log.debug("Partition maintenance: {} is not partitioned, skipping", table);
+                return;
+            }
+            createUpcoming(table, listPartitions(table));
+            relocatePast(table, listPartitions(table));
+            if (retentionDays > 0) retire(table, listPartitions(table), LocalDate.now().minusDays(retentionDays));
+        } catch (Exception ex) {
+            fail(table, "maintenance", ex);
+        }
+    }
+
+    private void createUpcoming(String table, List<Partition> partitions) {
+        LocalDate current = periodStart(LocalDate.now());
+        LocalDate horizon = current;
+        for (int i = 0; i <= props.getPremake(); i++) horizon = nextPeriod(horizon);
+
+        // continue from the newest existing partition so ranges never overlap
+        LocalDate next = partitions.stream().map(Partition::to).max(LocalDate::compareTo).orElse(current);
+        while (next.isBefore(horizon)) {
+            LocalDate end = nextPeriod(next);
+            try {
+                create(table, next, end);
+            } catch (Exception ex) {
+                fail(table, "creating " + partitionName(table, next, end), ex);
+            }
+            next = end;
+        }
+    }
+
+    // Past periods whose rows only sit in the default partition get a partition of their
+    // own, so retention finds them by range instead of them piling up in the default.
+    // Rows dated ahead of the current period are left there until their partition is
+    // premade (and moved into it then).
+    private void relocatePast(String table, List<Partition> partitions) {
+        String defaultPartition = defaultPartition(table);
+        if (defaultPartition == null) return;
+        LocalDate current = periodStart(LocalDate.now());
+        List<LocalDate> days = jdbcTemplate.queryForList("SELECT DISTINCT CAST(timestamp AS date) FROM " + defaultPartition
+                + " WHERE timestamp < ?", LocalDate.class, Timestamp.valueOf(current.atStartOfDay()));
+        Set<LocalDate> periods = new TreeSet<>();
+        for (LocalDate d : days) periods.add(periodStart(d));
+        for (LocalDate from : periods) {
+            LocalDate to = nextPeriod(from);
+            String name = partitionName(table, from, to);
+            try {
+                if (partitions.stream().anyMatch(p -> p.from().isBefore(to) && from.isBefore(p.to()))) {
+                    throw new IllegalStateException("range overlaps an existing partition (granularity changed?)");
+                }
+                if (jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, name)) {
+                    throw new IllegalStateException(name + " exists outside " + table + " (detached by retention?)");
+                }
+                create(table, from, to);
+            } catch (Exception ex) {
+                fail(table, "moving default partition rows into " + name, ex);
+            }
+        }
+    }
+
+    // One transaction. Rows of the range already in the default partition would make
+    // CREATE ... PARTITION OF fail, so then the partition is built as a plain table, the
+    // rows are moved into it and it is attached.
+    private void create(String table, LocalDate from, LocalDate to) {
+        String name = partitionName(table, from, to);
+        String bounds = " FOR VALUES FROM ('" + from + "') TO ('" + to + "')";
+        String defaultPartition = defaultPartition(table);
+        Integer moved = tx.execute(status -> {
+            Boolean conflicting = defaultPartition != null && jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM "
+                    + defaultPartition + " WHERE timestamp >= ? AND timestamp < ?)", Boolean.class,
+                    Timestamp.valueOf(from.atStartOfDay()), Timestamp.valueOf(to.atStartOfDay()));
+            if (!Boolean.TRUE.equals(conflicting)) {
+                jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + name + " PARTITION OF " + table + bounds);
+                return 0;
+            }
+            jdbcTemplate.execute("CREATE TABLE " + name + " (LIKE " + table + " INCLUDING DEFAULTS)");
+            int n = jdbcTemplate.update("WITH moved AS (DELETE FROM " + defaultPartition
+                    + " WHERE timestamp >= ? AND timestamp < ? RETURNING *) INSERT INTO " + name + " SELECT * FROM moved",
+                    Timestamp.valueOf(from.atStartOfDay()), Timestamp.valueOf(to.atStartOfDay()));
+            jdbcTemplate.execute("ALTER TABLE " + table + " ATTACH PARTITION " + name + bounds);
+            return n;
+        });
+        if (moved != null && moved > 0) {
+            log.info("Partition maintenance: created {} with {} rows moved from {}", name, moved, defaultPartition);
+        } else {
+            log.info("Partition maintenance: created {}", name);
+        }
+    }
+
+    // Loud on purpose: until it is fixed, the range's rows keep landing in the default partition.
+    private void fail(String table, String what, Exception ex) {
+        meterRegistry.counter("zyberhero.partitioning.failures", "table", table).increment();
+        log.error("Partition maintenance: {} failed for {}", what, table, ex);
+    }
+
+    private void retire(String table, List<Partition> partitions, LocalDate cutoff) {
+        boolean drop = "drop".equalsIgnoreCase(props.getRetentionMode());
+        for (Partition p : partitions) {
+            if (p.to().isAfter(cutoff)) continue;
+            jdbcTemplate.execute("ALTER TABLE " + table + " DETACH PARTITION " + p.name());
+            if (drop) jdbcTemplate.execute("DROP TABLE " + p.name());
+            log.info("Partition maintenance: {} {} (older than {})", drop ? "dropped" : "detached", p.name(), cutoff);
+        }
+    }
+
+    private boolean isPartitioned(String table) {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM pg_partitioned_table pt JOIN pg_class c ON c.oid = pt.partrelid "
+                        + "WHERE c.relname = ? AND pg_table_is_visible(c.oid)", Integer.class, table);
+        return count != null && count > 0;
+    }
+
+    private String defaultPartition(String table) {
+        List<String> names = jdbcTemplate.queryForList(
+                "SELECT d.relname FROM pg_partitioned_table pt JOIN pg_class c ON c.oid = pt.partrelid "
+                        + "JOIN pg_class d ON d.oid = pt.partdefid "
+                        + "WHERE c.relname = ? AND pg_table_is_visible(c.oid)", String.class, table);
+        return names.isEmpty() ? null : names.get(0);
+    }
+
+    private List<Partition> listPartitions(String table) {
+        List<String> names = jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid "
+                        + "JOIN pg_class parent ON parent.oid = i.inhparent "
+                        + "WHERE parent.relname = ? AND pg_table_is_visible(parent.oid)", String.class, table);
+        List<Partition> out = new ArrayList<>();
+        for (String name : names) {
+            Matcher m = PARTITION_NAME.matcher(name);
+            if (!name.startsWith(table + "_p") || !m.find()) continue; // default partition and foreign names
+            out.add(new Partition(name, LocalDate.parse(m.group(1), DAY), LocalDate.parse(m.group(2), DAY)));
+        }
+        return out;
+    }
+
+    private static String partitionName(String table, LocalDate from, LocalDate to) {
+        return table + "_p" + DAY.format(from) + "_" + DAY.format(to);
+    }
+
+    private LocalDate periodStart(LocalDate d) {
+        return isWeekly() ? d.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)) : d;
+    }
+
+    private LocalDate nextPeriod(LocalDate d) {
+        return isWeekly() ? d.plusWeeks(1) : d.plusDays(1);
+    }
+
+    private boolean isWeekly() {
+        return !"day".equalsIgnoreCase(props.getGranularity());
+    }
+
+}
@@ -0,0 +1,79 @@
+package com.ikon.zyberhero.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Change counters behind the ETags of the polled read endpoints. Writers bump the
+// counter of the device / child they touched; readers build the ETag from the
+// counter alone, so a matching If-None-Match is answered without loading anything.
+// Counters live in memory and the ETag carries a per-boot epoch, so tags issued
+// before a restart never match. They are per process: valid for a single instance
+// only. Behind a second node a write there does not bump the counters here, and a
+// stale 304 could be served; that needs a shared counter (e.g. in the database).
+@Component
+public class ResourceVersions {
+
+    public enum Kind {
+        LIVE_STATUS("ls"), ALERTS("al"), LOCATION("lo"), SAFEZONES("sz"), COMMANDS("cm");
+
+        final String tag;
+
+        Kind(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    // one global sequence, so a scope's version only ever moves forward
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<String, Long> versions = new ConcurrentHashMap<>();
+
+    // scope null is the "all" view of a kind (e.g. /api/safezones without childId)
+    public String etag(Kind kind, Long scope) {
+        String key = key(kind, scope);
+        return "\"" + key + "-" + epoch + "-" + versions.getOrDefault(key, 0L) + "\"";
+    }
+
+    // Bumps after the surrounding transaction commits: a reader that sees the new
+    // counter is guaranteed to also see the new rows.
+    public void bump(Kind kind, Long scope) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    bumpNow(kind, scope);
+                }
+            });
+        } else {
+            bumpNow(kind, scope);
+        }
+    }
+
+    private void bumpNow(Kind kind, Long scope) {
+        long v = sequence.incrementAndGet();
+        versions.put(key(kind, scope), v);
+        if (scope != null) versions.put(key(kind, null), v);
+    }
+
+    // If-None-Match uses the weak comparison, and may list several tags or "*"
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || etag == null) return false;
+        for (String candidate : ifNoneMatch.split(",")) {
+            String c = candidate.trim();
+            if (c.equals("*")) return true;
+            if (c.startsWith("W/")) c = c.substring(2);
+            if (c.equals(etag)) return true;
+        }
+        return false;
+    }
+
+    private static String key(Kind kind, Long scope) {
+        return kind.tag + "-" + (scope == null ? "all" : scope.toString());
+    }
+
+}
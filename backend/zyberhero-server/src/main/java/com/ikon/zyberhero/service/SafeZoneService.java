@@ -10,10 +10,8 @@ import org.springframework.transaction.annotation.Transactional;
 import com.ikon.zyberhero.dto.request.SafeZoneCreateRequestDto;
 import com.ikon.zyberhero.dto.response.SafeZoneResponseDto;
 import com.ikon.zyberhero.entity.SafeZone;
-import com.ikon.zyberhero.entity.Device;
 import com.ikon.zyberhero.mapper.SafeZoneMapper;
 import com.ikon.zyberhero.repository.SafeZoneRepository;
-import com.ikon.zyberhero.repository.DeviceRepository;
 import com.ikon.zyberhero.repository.ChildRepository;
 
 @Service
@@ -21,9 +19,11 @@ import com.ikon.zyberhero.repository.ChildRepository;
 public class SafeZoneService {
 
     private final SafeZoneRepository safeZoneRepository;
-    private final DeviceRepository deviceRepository;
+    private final DeviceResolver deviceResolver;
     private final ChildRepository childRepository;
     private final SafeZoneMapper safeZoneMapper;
+    private final ResourceVersions versions;
+    private final GeofenceEngine geofenceEngine;
 
     @Transactional
     public Long createSafeZone(SafeZoneCreateRequestDto req) {
@@ -44,20 +44,18 @@ public class SafeZoneService {
 
         // If childId is not provided, try to resolve from device
         if (resolvedChildId == null) {
-            if (req.getDeviceId() != null) {
-                resolvedDeviceId = req.getDeviceId();
-            } else if (req.getDeviceUuid() != null) {
-                Device d = deviceRepository.findByDeviceUuid(req.getDeviceUuid())
-                    .orElseThrow(() -> new IllegalArgumentException("Device not registered"));
-                resolvedDeviceId = d.getId();
-            } else {
+            if (req.getDeviceId() == null && req.getDeviceUuid() == null) {
                 throw new IllegalArgumentException("childId or deviceUuid/deviceId required");
             }
+            resolvedDeviceId = deviceResolver.requireId(req.getDeviceId(), req.getDeviceUuid());
 
             // Get childId from device
-            Device device = deviceRepository.findById(resolvedDeviceId)
+            DeviceResolver.DeviceRef device = deviceResolver.findById(resolvedDeviceId)
                 .orElseThrow(() -> new IllegalArgumentException("Device not found"));
-            resolvedChildId = device.getChildId().longValue();
+            if (device.childId() == null) {
+                throw new IllegalArgumentException("Device is not assigned to a child");
+            }
+            resolvedChildId = device.childId();
         } else {
             // Verify child exists
             if (!childRepository.existsById(resolvedChildId)) {
@@ -65,12 +63,8 @@ public class SafeZoneService {
             }
 
             // If deviceUuid or deviceId is provided, resolve it
-            if (req.getDeviceId() != null) {
-                resolvedDeviceId = req.getDeviceId();
-            } else if (req.getDeviceUuid() != null) {
-                Device d = deviceRepository.findByDeviceUuid(req.getDeviceUuid())
-                    .orElseThrow(() -> new IllegalArgumentException("Device not registered"));
-                resolvedDeviceId = d.getId();
+            if (req.getDeviceId() != null || req.getDeviceUuid() != null) {
+                resolvedDeviceId = deviceResolver.requireId(req.getDeviceId(), req.getDeviceUuid());
             }
         }
 
@@ -79,6 +73,8 @@ public class SafeZoneService {
         safeZone.setDeviceId(resolvedDeviceId);
 
         SafeZone saved = safeZoneRepository.save(safeZone);
+        geofenceEngine.zoneSaved(saved);
+        versions.bump(ResourceVersions.Kind.SAFEZONES, resolvedChildId);
         return saved.getId();
     }
 
@@ -104,9 +100,10 @@ public class SafeZoneService {
 
     @Transactional
     public void deleteSafeZone(Long id) {
-        if (!safeZoneRepository.existsById(id)) {
-            throw new IllegalArgumentException("SafeZone not found");
-        }
-        safeZoneRepository.deleteById(id);
+        SafeZone safeZone = safeZoneRepository.findById(id)
+            .orElseThrow(() -> new IllegalArgumentException("SafeZone not found"));
+        safeZoneRepository.delete(safeZone);
+        geofenceEngine.zoneDeleted(safeZone);
+        versions.bump(ResourceVersions.Kind.SAFEZONES, safeZone.getChildId());
     }
 }
@@ -0,0 +1,326 @@
+package com.ikon.zyberhero.service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.ikon.zyberhero.entity.ControlCommand;
+import com.ikon.zyberhero.repository.ControlCommandJdbcRepository;
+import com.ikon.zyberhero.repository.ControlCommandRepository;
+
+// Evaluates active "schedule" commands on the server. Each schedule is compiled once
+// (CommandSchedule, shared between devices with the same text) and parked in a hashed
+// timer wheel at its next window boundary; a tick only looks at the slots of the
+// minutes that passed. At a boundary the device gets a kill order (window opens) or
+// the kill is lifted and a relaunch queued (window closes), through the same bulk
+// statements, ETag bump and wake-up as any other command. The engine's kill orders
+// are rows of their own (action KILL_ACTION, delivered to agents as "kill"), so
+// lifting them never touches a kill a parent issued by hand. Assumes one instance.
+@Component
+public class ScheduleEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(ScheduleEngine.class);
+
+    public static final String KILL_ACTION = "schedule-kill";
+
+    private final ControlCommandRepository commandRepository;
+    private final ControlCommandJdbcRepository commandJdbcRepository;
+    private final ResourceVersions versions;
+    private final CommandWaiters waiters;
+    private final TransactionTemplate tx;
+    private final ZoneId zone;
+    private final boolean enabled;
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, CommandSchedule> compiled = new ConcurrentHashMap<>();
+    private final Wheel wheel;
+    private long lastTickMinute = -1;
+    // changes whose write failed, retried on the next tick unless a newer change for the
+    // same device and app replaces them (guarded by the wheel lock)
+    private final Map<Target, Change> failed = new LinkedHashMap<>();
+
+    private static final class Entry {
+        final Long commandId;
+        final Long deviceId;
+        final String appName;
+        final CommandSchedule schedule;
+        boolean blocked;
+        long deadlineMinute; // epoch minute of the next boundary, -1 when there is none
+        volatile boolean cancelled;
+
+        Entry(Long commandId, Long deviceId, String appName, CommandSchedule schedule) {
+            this.commandId = commandId;
+            this.deviceId = deviceId;
+            this.appName = appName;
+            this.schedule = schedule;
+        }
+    }
+
+    // Slot = deadline minute modulo the wheel size; entries further away than one
+    // revolution stay in their slot until their deadline comes round.
+    private static final class Wheel {
+        final List<Entry>[] slots;
+
+        @SuppressWarnings("unchecked")
+        Wheel(int size) {
+            slots = new List[size];
+            for (int i = 0; i < size; i++) slots[i] = new ArrayList<>();
+        }
+
+        void add(Entry e) {
+            slots[(int) Math.floorMod(e.deadlineMinute, (long) slots.length)].add(e);
+        }
+
+        // removes and returns the live entries due at minute
+        List<Entry> due(long minute) {
+            List<Entry> slot = slots[(int) Math.floorMod(minute, (long) slots.length)];
+            List<Entry> out = new ArrayList<>();
+            for (Iterator<Entry> it = slot.iterator(); it.hasNext();) {
+                Entry e = it.next();
+                if (e.cancelled) {
+                    it.remove();
+                } else if (e.deadlineMinute <= minute) {
+                    it.remove();
+                    out.add(e);
+                }
+            }
+            return out;
+        }
+    }
+
+    private record Change(Long deviceId, String appName, boolean blocked, boolean relaunch) {
+        Target target() {
+            return new Target(deviceId, appName);
+        }
+    }
+
+    private record Target(Long deviceId, String appName) {}
+
+    public ScheduleEngine(ControlCommandRepository commandRepository, ControlCommandJdbcRepository commandJdbcRepository,
+            ResourceVersions versions, CommandWaiters waiters, PlatformTransactionManager transactionManager,
+            @Value("${zyberhero.schedules.enabled:true}") boolean enabled,
+            @Value("${zyberhero.schedules.zone:}") String zone,
+            @Value("${zyberhero.schedules.wheel-slots:4096}") int wheelSlots) {
+        this.commandRepository = commandRepository;
+        this.commandJdbcRepository = commandJdbcRepository;
+        this.versions = versions;
+        this.waiters = waiters;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.zone = zone == null || zone.isBlank() ? ZoneId.systemDefault() : ZoneId.of(zone);
+        this.enabled = enabled;
+        this.wheel = new Wheel(Math.max(64, wheelSlots));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // The compiled schedule if the engine is enabled and understands the text, else null:
+    // the caller then stores the text as given and it is delivered to the agent, as
+    // load() does for schedules it cannot parse.
+    public CommandSchedule tryCompile(String text) {
+        if (!enabled) return null;
+        try {
+            return compile(text);
+        } catch (IllegalArgumentException ex) {
+            log.info("Schedule is not evaluated on the server, delivering it to the agent: {}", ex.getMessage());
+            return null;
+        }
+    }
+
+    // Compiles (and caches) a schedule; IllegalArgumentException for invalid text.
+    CommandSchedule compile(String text) {
+        CommandSchedule s = compiled.get(text);
+        if (s != null) return s;
+        s = CommandSchedule.parse(text);
+        compiled.putIfAbsent(text, s);
+        return s;
+    }
+
+    // Loads the active schedules and flags those it can evaluate; any it cannot parse
+    // (e.g. written by older clients in another format) stay unflagged and keep being
+    // delivered to the agent. With the engine disabled every schedule goes to the agent.
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        List<ControlCommand> active = commandRepository.findByActionAndIsActiveTrue("schedule");
+        if (!enabled) {
+            commandJdbcRepository.markServerEvaluated(active.stream().map(ControlCommand::getId).toList(), false);
+            return;
+        }
+        List<Change> changes = new ArrayList<>();
+        List<Long> evaluated = new ArrayList<>();
+        List<Long> delivered = new ArrayList<>();
+        synchronized (wheel) {
+            for (ControlCommand c : active) {
+                try {
+                    changes.add(track(c.getId(), c.getDeviceId(), c.getAppName(), compile(c.getSchedule()), false));
+                    evaluated.add(c.getId());
+                } catch (IllegalArgumentException ex) {
+                    delivered.add(c.getId());
+                    log.warn("Schedule command id={} is not evaluated on the server, delivering it to the agent: {}",
+                            c.getId(), ex.getMessage());
+                }
+            }
+        }
+        commandJdbcRepository.markServerEvaluated(evaluated, true);
+        commandJdbcRepository.markServerEvaluated(delivered, false);
+        apply(changes);
+        log.info("Schedule engine: loaded {} active schedules, {} left to agents", evaluated.size(), delivered.size());
+    }
+
+    // Starts (or replaces) evaluation of a schedule command once the caller's transaction
+    // commits. The current state is applied at once: inside a window the app is killed,
+    // outside the schedule's kill order for the app is lifted.
+    public void register(Long commandId, Long deviceId, String appName, CommandSchedule schedule) {
+        if (!enabled) return;
+        afterCommit(() -> {
+            Change change;
+            synchronized (wheel) {
+                change = track(commandId, deviceId, appName, schedule, false);
+            }
+            apply(List.of(change));
+        });
+    }
+
+    // Stops evaluating a schedule command and lifts its kill order.
+    public void unregister(Long commandId) {
+        if (!enabled) return;
+        afterCommit(() -> {
+            Entry e = entries.remove(commandId);
+            if (e == null) return;
+            e.cancelled = true;
+            apply(List.of(new Change(e.deviceId, e.appName, false, false)));
+        });
+    }
+
+    public int activeCount() {
+        return entries.size();
+    }
+
+    @Scheduled(fixedDelayString = "${zyberhero.schedules.tick-ms:1000}")
+    public void tick() {
+        if (!enabled) return;
+        long now = epochMinute(ZonedDateTime.now(zone));
+        Map<Target, Change> changes;
+        synchronized (wheel) {
+            changes = new LinkedHashMap<>(failed);
+            failed.clear();
+            if (lastTickMinute < 0) lastTickMinute = now - 1;
+            // catch up on every minute since the last tick (e.g. after a GC pause)
+            for (long minute = lastTickMinute + 1; minute <= now; minute++) {
+                for (Entry e : wheel.due(minute)) {
+                    if (entries.get(e.commandId) != e) continue;
+                    boolean wasBlocked = e.blocked;
+                    schedule(e);
+                    if (e.blocked != wasBlocked) {
+                        Change c = new Change(e.deviceId, e.appName, e.blocked, !e.blocked);
+                        changes.put(c.target(), c);
+                    }
+                }
+            }
+            lastTickMinute = Math.max(lastTickMinute, now);
+        }
+        apply(List.copyOf(changes.values()));
+    }
+
+    // caller holds the wheel lock
+    private Change track(Long commandId, Long deviceId, String appName, CommandSchedule schedule, boolean relaunch) {
+        Entry e = new Entry(commandId, deviceId, appName, schedule);
+        Entry previous = entries.put(commandId, e);
+        if (previous != null) previous.cancelled = true;
+        schedule(e);
+        return new Change(deviceId, appName, e.blocked, relaunch);
+    }
+
+    // sets the entry's current state and parks it at its next boundary
+    private void schedule(Entry e) {
+        ZonedDateTime now = ZonedDateTime.now(zone).truncatedTo(ChronoUnit.MINUTES);
+        int minuteOfWeek = (now.getDayOfWeek().getValue() - 1) * 24 * 60 + now.getHour() * 60 + now.getMinute();
+        e.blocked = e.schedule.isBlockedAt(minuteOfWeek);
+        int until = e.schedule.minutesUntilNextTransition(minuteOfWeek);
+        if (until < 0) {
+            e.deadlineMinute = -1;
+            return;
+        }
+        // go through wall-clock time so DST shifts land on the local boundary
+        LocalDateTime boundary = now.toLocalDateTime().plusMinutes(until);
+        e.deadlineMinute = Math.max(epochMinute(boundary.atZone(zone)), epochMinute(now) + 1);
+        wheel.add(e);
+    }
+
+    // Writes the resulting command changes: one statement per (app, kind of change).
+    // The entries have already moved on to their next boundary, so changes that fail to
+    // write are kept and retried on the next tick instead of waiting for that boundary.
+    private void apply(List<Change> changes) {
+        if (changes.isEmpty()) return;
+        synchronized (wheel) {
+            for (Change c : changes) failed.remove(c.target());
+        }
+        Map<String, Set<Long>> block = new LinkedHashMap<>();
+        Map<String, Set<Long>> lift = new LinkedHashMap<>();
+        Map<String, Set<Long>> relaunch = new LinkedHashMap<>();
+        for (Change c : changes) {
+            (c.blocked() ? block : lift).computeIfAbsent(c.appName(), k -> new LinkedHashSet<>()).add(c.deviceId());
+            if (c.relaunch()) relaunch.computeIfAbsent(c.appName(), k -> new LinkedHashSet<>()).add(c.deviceId());
+        }
+        try {
+            tx.executeWithoutResult(status -> {
+                LocalDateTime now = LocalDateTime.now();
+                block.forEach((app, devices) -> commandJdbcRepository.upsertActive(devices, app, KILL_ACTION, null, now));
+                lift.forEach((app, devices) -> commandJdbcRepository.deactivate(devices, app, KILL_ACTION));
+                relaunch.forEach((app, devices) -> commandJdbcRepository.upsertActive(devices, app, "relaunch", null, now));
+            });
+        } catch (Exception ex) {
+            synchronized (wheel) {
+                for (Change c : changes) failed.putIfAbsent(c.target(), c);
+            }
+            log.warn("Schedule engine: applying {} changes failed, retrying on the next tick: {}", changes.size(),
+                    ex.getMessage());
+            return;
+        }
+        changes.stream().map(Change::deviceId).distinct().forEach(deviceId -> {
+            versions.bump(ResourceVersions.Kind.COMMANDS, deviceId);
+            waiters.wake(deviceId);
+        });
+        log.debug("Schedule engine: applied {} changes", changes.size());
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static long epochMinute(ZonedDateTime t) {
+        return t.toEpochSecond() / 60;
+    }
+
+}
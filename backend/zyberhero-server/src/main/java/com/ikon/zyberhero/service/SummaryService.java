@@ -2,29 +2,53 @@ package com.ikon.zyberhero.service;
 
 import java.time.LocalDateTime;
 import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.ikon.zyberhero.dto.response.DailyComparisonResponseDto;
 import com.ikon.zyberhero.dto.response.ScreenTimeResponseDto;
-import com.ikon.zyberhero.entity.ActivityLog;
-import com.ikon.zyberhero.entity.Device;
+import com.ikon.zyberhero.dto.response.UsageRangeResponseDto;
+import com.ikon.zyberhero.repository.ActivityLogJdbcRepository;
 import com.ikon.zyberhero.repository.ActivityLogRepository;
-import com.ikon.zyberhero.repository.DeviceRepository;
+import com.ikon.zyberhero.repository.DailyAppUsageJdbcRepository;
+import com.ikon.zyberhero.repository.HourlyAppUsageJdbcRepository;
 
 @Service
-@RequiredArgsConstructor
 public class SummaryService {
 
     private final ActivityLogRepository activityLogRepository;
-    private final DeviceRepository deviceRepository;
+    private final ActivityLogJdbcRepository activityLogJdbcRepository;
+    private final DailyAppUsageJdbcRepository dailyAppUsageJdbcRepository;
+    private final HourlyAppUsageJdbcRepository hourlyAppUsageJdbcRepository;
+    private final DeviceResolver deviceResolver;
+    private final AppClassifier appClassifier;
+    // "rollup" reads daily_app_usage, "raw" aggregates activity_logs per request
+    private final String source;
+    private final int maxRangeDays;
+
+    public SummaryService(ActivityLogRepository activityLogRepository, ActivityLogJdbcRepository activityLogJdbcRepository,
+            DailyAppUsageJdbcRepository dailyAppUsageJdbcRepository, HourlyAppUsageJdbcRepository hourlyAppUsageJdbcRepository,
+            DeviceResolver deviceResolver, AppClassifier appClassifier,
+            @Value("${zyberhero.summary.source:rollup}") String source,
+            @Value("${zyberhero.summary.max-range-days:92}") int maxRangeDays) {
+        this.activityLogRepository = activityLogRepository;
+        this.activityLogJdbcRepository = activityLogJdbcRepository;
+        this.dailyAppUsageJdbcRepository = dailyAppUsageJdbcRepository;
+        this.hourlyAppUsageJdbcRepository = hourlyAppUsageJdbcRepository;
+        this.deviceResolver = deviceResolver;
+        this.appClassifier = appClassifier;
+        this.source = source;
+        this.maxRangeDays = maxRangeDays;
+    }
 
     private static class AppTimes { int focused = 0; int screen = 0; String latestWindowTitle = null; }
 
@@ -36,8 +60,12 @@ public class SummaryService {
         }
 
         // If date is NOT provided, choose the day of the most recent activity for the device(s).
-        // This lets clients call /daily-comparison with only deviceUuid/deviceId.
-        if (deviceIds != null && !deviceIds.isEmpty()) {
+        // This lets clients call /daily-comparison with only deviceUuid/deviceId. In rollup
+        // mode the day comes from daily_app_usage, so activity_logs is not touched.
+        if (useRollup() && !matchesNothing(deviceIds)) {
+            LocalDate latestDay = dailyAppUsageJdbcRepository.findLatestDate(deviceIds);
+            if (latestDay != null) return latestDay.atStartOfDay();
+        } else if (deviceIds != null && !deviceIds.isEmpty()) {
             List<Long> ids = deviceIds;
             int size = ids.size();
             LocalDateTime latestLocal = activityLogRepository.findLatestLocalTimestampForDevices(ids, size);
@@ -59,50 +87,10 @@ public class SummaryService {
         List<Long> deviceIds = resolveDeviceIds(deviceUuid, deviceId, childId);
 
         LocalDateTime start = startOfDay(date, deviceIds);
-        LocalDateTime end = start.plusDays(1);
-
-        // IMPORTANT: use localTimestamp when present; fall back to timestamp.
-        // This avoids "empty summary" when activities are posted with local times
-        // that fall on a different UTC day.
-        List<ActivityLog> rawLogs;
-        if (deviceIds.isEmpty()) {
-            rawLogs = activityLogRepository.findByTimestampBetweenAndDurationSecondsGreaterThan(start, end, 0);
-        } else {
-            rawLogs = activityLogRepository.findByTimestampBetweenAndDeviceIdInAndDurationSecondsGreaterThan(start, end, deviceIds, 0);
-        }
-
-        List<ActivityLog> logs = rawLogs.stream().filter(l -> {
-            LocalDateTime t = l.getLocalTimestamp() != null ? l.getLocalTimestamp() : l.getTimestamp();
-            if (t == null) return false;
-            return !t.isBefore(start) && t.isBefore(end);
-        }).collect(Collectors.toList());
-
-        Map<String, AppTimes> appMap = new HashMap<>();
-
-        for (ActivityLog log : logs) {
-            String app = log.getAppName() == null ? "unknown" : log.getAppName();
-            String title = log.getWindowTitle() == null ? "" : log.getWindowTitle();
-
-            if (app.equals("chrome")) {
-                String t = title.toLowerCase();
-                if (t.contains("google chat") || t.contains("chat.google.com")) app = "google-chat";
-                else if (t.contains("whatsapp")) app = "whatsapp";
-                else if (t.contains("youtube")) app = "youtube";
-                else if (t.contains("gmail")) app = "gmail";
-                else if (t.contains("netflix")) app = "netflix";
-                else app = "chrome";
-            } else if (app.equals("msedge")) {
-                String t = title.toLowerCase();
-                if (t.contains("youtube")) app = "youtube-edge";
-                else if (t.contains("netflix")) app = "netflix-edge";
-                else app = "msedge";
-            }
-
-            AppTimes at = appMap.computeIfAbsent(app, k -> new AppTimes());
-            int duration = log.getDurationSeconds() == null ? 0 : log.getDurationSeconds();
-            if (Boolean.TRUE.equals(log.getScreenTime())) at.screen += duration; else at.focused += duration;
-            if (at.latestWindowTitle == null || at.latestWindowTitle.equals(app)) at.latestWindowTitle = log.getWindowTitle();
-        }
+        Map<String, AppTimes> appMap;
+        if (matchesNothing(deviceIds)) appMap = new HashMap<>();
+        else if (useRollup()) appMap = appTimesFromRollup(start.toLocalDate(), deviceIds);
+        else appMap = appTimesFromRaw(start, deviceIds);
 
         List<DailyComparisonResponseDto.AppSummaryDto> apps = appMap.entrySet().stream().map(e -> {
             DailyComparisonResponseDto.AppSummaryDto dto = new DailyComparisonResponseDto.AppSummaryDto();
@@ -133,12 +121,24 @@ public class SummaryService {
         LocalDateTime start = startOfDay(date, deviceIds);
         LocalDateTime end = start.plusDays(1);
 
-        int size = deviceIds.size();
-        Long screenSum = deviceIds.isEmpty() ? activityLogRepository.sumDurationBetweenForDevice(start, end, true, null) : activityLogRepository.sumDurationBetweenForDevices(start, end, true, deviceIds, size);
-        Long focusedSum = deviceIds.isEmpty() ? activityLogRepository.sumDurationBetweenForDevice(start, end, false, null) : activityLogRepository.sumDurationBetweenForDevices(start, end, false, deviceIds, size);
+        int totalScreen;
+        int totalFocused;
+        if (matchesNothing(deviceIds)) {
+            totalScreen = 0;
+            totalFocused = 0;
+        } else if (useRollup()) {
+            List<DailyAppUsageJdbcRepository.AppUsageRow> rows = dailyAppUsageJdbcRepository.findByDate(start.toLocalDate(), deviceIds);
+            totalScreen = (int) rows.stream().mapToLong(DailyAppUsageJdbcRepository.AppUsageRow::screenSeconds).sum();
+            totalFocused = (int) rows.stream().mapToLong(DailyAppUsageJdbcRepository.AppUsageRow::focusedSeconds).sum();
+        } else {
+            boolean all = deviceIds == null;
+            int size = all ? 0 : deviceIds.size();
+            Long screenSum = all ? activityLogRepository.sumDurationBetweenForDevice(start, end, true, null) : activityLogRepository.sumDurationBetweenForDevices(start, end, true, deviceIds, size);
+            Long focusedSum = all ? activityLogRepository.sumDurationBetweenForDevice(start, end, false, null) : activityLogRepository.sumDurationBetweenForDevices(start, end, false, deviceIds, size);
 
-        int totalScreen = screenSum == null ? 0 : screenSum.intValue();
-        int totalFocused = focusedSum == null ? 0 : focusedSum.intValue();
+            totalScreen = screenSum == null ? 0 : screenSum.intValue();
+            totalFocused = focusedSum == null ? 0 : focusedSum.intValue();
+        }
 
         ScreenTimeResponseDto r = new ScreenTimeResponseDto();
         r.setDate(start.toLocalDate().toString());
@@ -150,15 +150,125 @@ public class SummaryService {
         return r;
     }
 
+    // Series, per-app totals and hour-of-day profile for [from, to] (inclusive local
+    // dates), all from one pass over the hourly rollup.
+    @Transactional(readOnly = true)
+    public UsageRangeResponseDto usageRange(String from, String to, String granularity, String deviceUuid, Long deviceId, Long childId) {
+        if (from == null || to == null) throw new IllegalArgumentException("from and to are required");
+        LocalDate fromDate = LocalDate.parse(from);
+        LocalDate toDate = LocalDate.parse(to);
+        if (toDate.isBefore(fromDate)) throw new IllegalArgumentException("to must not be before from");
+        if (ChronoUnit.DAYS.between(fromDate, toDate) >= maxRangeDays) {
+            throw new IllegalArgumentException("Range too long (max " + maxRangeDays + " days)");
+        }
+        boolean hourly = "hour".equalsIgnoreCase(granularity);
+        if (granularity != null && !hourly && !"day".equalsIgnoreCase(granularity)) {
+            throw new IllegalArgumentException("granularity must be hour or day");
+        }
+
+        List<Long> deviceIds = resolveDeviceIds(deviceUuid, deviceId, childId);
+        LocalDateTime start = fromDate.atStartOfDay();
+        LocalDateTime end = toDate.plusDays(1).atStartOfDay();
+
+        // pre-fill every bucket so the series has no gaps
+        Map<LocalDateTime, long[]> series = new LinkedHashMap<>();
+        for (LocalDateTime b = start; b.isBefore(end); b = hourly ? b.plusHours(1) : b.plusDays(1)) series.put(b, new long[2]);
+        Map<String, long[]> apps = new HashMap<>();
+        long[] hourOfDay = new long[24];
+
+        List<HourlyAppUsageJdbcRepository.HourUsageRow> rows = matchesNothing(deviceIds)
+                ? List.of() : hourlyAppUsageJdbcRepository.findBetween(start, end, deviceIds);
+        for (HourlyAppUsageJdbcRepository.HourUsageRow row : rows) {
+            LocalDateTime bucket = hourly ? row.usageHour() : row.usageHour().toLocalDate().atStartOfDay();
+            long[] s = series.get(bucket);
+            if (s != null) { s[0] += row.focusedSeconds(); s[1] += row.screenSeconds(); }
+            long[] a = apps.computeIfAbsent(row.app(), k -> new long[2]);
+            a[0] += row.focusedSeconds();
+            a[1] += row.screenSeconds();
+            hourOfDay[row.usageHour().getHour()] += row.focusedSeconds() + row.screenSeconds();
+        }
+
+        UsageRangeResponseDto res = new UsageRangeResponseDto();
+        res.setFrom(fromDate.toString());
+        res.setTo(toDate.toString());
+        res.setGranularity(hourly ? "hour" : "day");
+        res.setSeries(series.entrySet().stream().map(e -> {
+            UsageRangeResponseDto.SeriesPointDto p = new UsageRangeResponseDto.SeriesPointDto();
+            p.setBucket(hourly ? e.getKey().toString() : e.getKey().toLocalDate().toString());
+            p.setFocusedSeconds(e.getValue()[0]);
+            p.setScreenSeconds(e.getValue()[1]);
+            p.setTotalSeconds(e.getValue()[0] + e.getValue()[1]);
+            return p;
+        }).collect(Collectors.toList()));
+        res.setApps(apps.entrySet().stream().map(e -> {
+            UsageRangeResponseDto.AppTotalDto a = new UsageRangeResponseDto.AppTotalDto();
+            a.setApp(e.getKey());
+            a.setFocusedSeconds(e.getValue()[0]);
+            a.setScreenSeconds(e.getValue()[1]);
+            a.setTotalSeconds(e.getValue()[0] + e.getValue()[1]);
+            a.setTotalFormatted(formatDuration((int) Math.min(Integer.MAX_VALUE, a.getTotalSeconds())));
+            return a;
+        }).sorted((a,b)->Long.compare(b.getTotalSeconds(), a.getTotalSeconds())).collect(Collectors.toList()));
+        List<Long> heat = new ArrayList<>(24);
+        for (long v : hourOfDay) heat.add(v);
+        res.setHourOfDay(heat);
+        res.setTotalFocusedSeconds(apps.values().stream().mapToLong(v -> v[0]).sum());
+        res.setTotalScreenSeconds(apps.values().stream().mapToLong(v -> v[1]).sum());
+        return res;
+    }
+
+    private Map<String, AppTimes> appTimesFromRaw(LocalDateTime start, List<Long> deviceIds) {
+        LocalDateTime end = start.plusDays(1);
+
+        // IMPORTANT: use localTimestamp when present; fall back to timestamp.
+        // This avoids "empty summary" when activities are posted with local times
+        // that fall on a different UTC day. Grouping happens in the database, so only
+        // one row per app (or per distinct title of apps with rules) comes back.
+        List<ActivityLogJdbcRepository.AppTitleUsageRow> rows =
+                activityLogJdbcRepository.summarizeApps(start, end, deviceIds, appClassifier.appsWithRules());
+
+        Map<String, AppTimes> appMap = new HashMap<>();
+        for (ActivityLogJdbcRepository.AppTitleUsageRow row : rows) {
+            String app = appClassifier.classify(row.appName(), row.title());
+            AppTimes at = appMap.computeIfAbsent(app, k -> new AppTimes());
+            at.focused += (int) row.focusedSeconds();
+            at.screen += (int) row.screenSeconds();
+            if (at.latestWindowTitle == null || at.latestWindowTitle.equals(app)) at.latestWindowTitle = row.windowTitle();
+        }
+        return appMap;
+    }
+
+    private Map<String, AppTimes> appTimesFromRollup(LocalDate day, List<Long> deviceIds) {
+        Map<String, AppTimes> appMap = new HashMap<>();
+        for (DailyAppUsageJdbcRepository.AppUsageRow row : dailyAppUsageJdbcRepository.findByDate(day, deviceIds)) {
+            AppTimes at = new AppTimes();
+            at.focused = (int) row.focusedSeconds();
+            at.screen = (int) row.screenSeconds();
+            at.latestWindowTitle = row.windowTitle();
+            appMap.put(row.app(), at);
+        }
+        return appMap;
+    }
+
+    private boolean useRollup() {
+        return !"raw".equalsIgnoreCase(source);
+    }
+
+    // null: no device filter (all devices); empty: a filter was given but matched no
+    // device, which must yield an empty summary rather than everyone's usage.
     private List<Long> resolveDeviceIds(String deviceUuid, Long deviceId, Long childId) {
         if (deviceId != null) return List.of(deviceId);
         if (deviceUuid != null) {
-            return deviceRepository.findByDeviceUuid(deviceUuid).map(d -> List.of(d.getId())).orElse(new ArrayList<>());
+            return deviceResolver.findIdByUuid(deviceUuid).map(List::of).orElse(List.of());
         }
         if (childId != null) {
-            return deviceRepository.findByChildId(childId.intValue()).stream().map(Device::getId).collect(Collectors.toList());
+            return new ArrayList<>(deviceResolver.deviceIdsForChild(childId));
         }
-        return new ArrayList<>();
+        return null;
+    }
+
+    private static boolean matchesNothing(List<Long> deviceIds) {
+        return deviceIds != null && deviceIds.isEmpty();
     }
 
     private String formatDuration(int seconds) {
@@ -0,0 +1,94 @@
+package com.ikon.zyberhero.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import com.ikon.zyberhero.entity.Location;
+
+// Douglas-Peucker over a time-ordered track, driven by a priority queue instead of
+// recursion: the segment whose farthest point deviates most is split first. That lets
+// one pass stop either at a tolerance (metres off the simplified line) or once
+// maxPoints are kept, whichever comes first. The first and last points always stay.
+// Distances use a local equirectangular projection, fine at street scale.
+public final class TrajectorySimplifier {
+
+    private static final double METERS_PER_DEGREE = 111_320d;
+
+    private record Split(int from, int to, int farthest, double distance) {}
+
+    private TrajectorySimplifier() {
+    }
+
+    // toleranceMeters <= 0: no tolerance limit; maxPoints <= 0: no point limit
+    public static List<Location> simplify(List<Location> track, double toleranceMeters, int maxPoints) {
+        int n = track.size();
+        if (n <= 2 || (toleranceMeters <= 0 && maxPoints <= 0)) return track;
+        if (maxPoints > 0 && maxPoints < 2) maxPoints = 2;
+
+        boolean[] keep = new boolean[n];
+        keep[0] = true;
+        keep[n - 1] = true;
+        int kept = 2;
+
+        PriorityQueue<Split> queue = new PriorityQueue<>((a, b) -> Double.compare(b.distance(), a.distance()));
+        Split first = farthest(track, 0, n - 1);
+        if (first != null) queue.add(first);
+        while (!queue.isEmpty()) {
+            if (maxPoints > 0 && kept >= maxPoints) break;
+            Split s = queue.poll();
+            if (toleranceMeters > 0 && s.distance() <= toleranceMeters) break;
+            keep[s.farthest()] = true;
+            kept++;
+            Split left = farthest(track, s.from(), s.farthest());
+            Split right = farthest(track, s.farthest(), s.to());
+            if (left != null) queue.add(left);
+            if (right != null) queue.add(right);
+        }
+
+        List<Location> out = new ArrayList<>(kept);
+        for (int i = 0; i < n; i++) if (keep[i]) out.add(track.get(i));
+        return out;
+    }
+
+    private static Split farthest(List<Location> track, int from, int to) {
+        if (to - from < 2) return null;
+        Location a = track.get(from);
+        Location b = track.get(to);
+        double cosLat = Math.cos(Math.toRadians(lat(a)));
+        // b relative to a, in metres
+        double bx = (lon(b) - lon(a)) * METERS_PER_DEGREE * cosLat;
+        double by = (lat(b) - lat(a)) * METERS_PER_DEGREE;
+        double len2 = bx * bx + by * by;
+
+        int best = -1;
+        double bestDistance = -1;
+        for (int i = from + 1; i < to; i++) {
+            Location p = track.get(i);
+            double px = (lon(p) - lon(a)) * METERS_PER_DEGREE * cosLat;
+            double py = (lat(p) - lat(a)) * METERS_PER_DEGREE;
+            double d;
+            if (len2 == 0) {
+                d = Math.hypot(px, py);
+            } else {
+                // distance to the segment, not the infinite line, so back-and-forth stays visible
+                double t = Math.max(0, Math.min(1, (px * bx + py * by) / len2));
+                d = Math.hypot(px - t * bx, py - t * by);
+            }
+            if (d > bestDistance) {
+                bestDistance = d;
+                best = i;
+            }
+        }
+        return new Split(from, to, best, bestDistance);
+    }
+
+    private static double lat(Location l) {
+        return l.getLatitude() == null ? 0 : l.getLatitude();
+    }
+
+    private static double lon(Location l) {
+        return l.getLongitude() == null ? 0 : l.getLongitude();
+    }
+
+}
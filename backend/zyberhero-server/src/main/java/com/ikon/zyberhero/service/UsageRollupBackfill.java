@@ -0,0 +1,91 @@
+package com.ikon.zyberhero.service;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.ikon.zyberhero.repository.DailyAppUsageJdbcRepository;
+import com.ikon.zyberhero.repository.HourlyAppUsageJdbcRepository;
+
+// Builds daily_app_usage and hourly_app_usage from historical activity_logs, one
+// day per transaction, on a background thread. Runs automatically when a rollup table is empty, or
+// for an explicit range with --zyberhero.summary.backfill.from=yyyy-MM-dd.
+// Rebuilding a day replaces its rollups, so it must not race the live upserts: the
+// backfill always stops at yesterday and the current day belongs to the ingest path.
+@Component
+public class UsageRollupBackfill implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(UsageRollupBackfill.class);
+
+    private final UsageRollupService usageRollupService;
+    private final DailyAppUsageJdbcRepository dailyAppUsageJdbcRepository;
+    private final HourlyAppUsageJdbcRepository hourlyAppUsageJdbcRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final String from;
+    private final String to;
+    private final boolean whenEmpty;
+
+    public UsageRollupBackfill(UsageRollupService usageRollupService, DailyAppUsageJdbcRepository dailyAppUsageJdbcRepository,
+            HourlyAppUsageJdbcRepository hourlyAppUsageJdbcRepository, JdbcTemplate jdbcTemplate,
+            @Value("${zyberhero.summary.backfill.from:}") String from,
+            @Value("${zyberhero.summary.backfill.to:}") String to,
+            @Value("${zyberhero.summary.backfill.when-empty:true}") boolean whenEmpty) {
+        this.usageRollupService = usageRollupService;
+        this.dailyAppUsageJdbcRepository = dailyAppUsageJdbcRepository;
+        this.hourlyAppUsageJdbcRepository = hourlyAppUsageJdbcRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.from = from;
+        this.to = to;
+        this.whenEmpty = whenEmpty;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        LocalDate start;
+        if (!from.isBlank()) {
+            start = LocalDate.parse(from);
+        } else if (whenEmpty && (dailyAppUsageJdbcRepository.isEmpty() || hourlyAppUsageJdbcRepository.isEmpty())) {
+            Timestamp earliest = jdbcTemplate.queryForObject("SELECT MIN(timestamp) FROM activity_logs", Timestamp.class);
+            if (earliest == null) return;
+            // local days can start up to a day before the stored timestamp
+            start = earliest.toLocalDateTime().toLocalDate().minusDays(1);
+        } else {
+            return;
+        }
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        LocalDate end = to.isBlank() ? yesterday : LocalDate.parse(to);
+        if (end.isAfter(yesterday)) {
+            log.warn("Usage rollup backfill: end {} clamped to {}; the current day is maintained by ingest", end, yesterday);
+            end = yesterday;
+        }
+        if (end.isBefore(start)) return;
+        LocalDate last = end;
+
+        Thread t = new Thread(() -> backfill(start, last), "usage-rollup-backfill");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    public void backfill(LocalDate start, LocalDate end) {
+        log.info("Usage rollup backfill {} .. {} started", start, end);
+        long began = System.currentTimeMillis();
+        int days = 0;
+        for (LocalDate d = start; !d.isAfter(end); d = d.plusDays(1)) {
+            try {
+                usageRollupService.rebuildDay(d);
+                days++;
+            } catch (Exception ex) {
+                log.error("Usage rollup backfill failed for {}", d, ex);
+            }
+        }
+        log.info("Usage rollup backfill rebuilt {} days in {} ms", days, System.currentTimeMillis() - began);
+    }
+
+}
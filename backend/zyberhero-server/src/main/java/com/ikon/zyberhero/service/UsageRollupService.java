@@ -0,0 +1,129 @@
+package com.ikon.zyberhero.service;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.ikon.zyberhero.entity.ActivityLog;
+import com.ikon.zyberhero.repository.DailyAppUsageJdbcRepository;
+import com.ikon.zyberhero.repository.DailyAppUsageJdbcRepository.UsageDelta;
+import com.ikon.zyberhero.repository.HourlyAppUsageJdbcRepository;
+import com.ikon.zyberhero.repository.HourlyAppUsageJdbcRepository.HourDelta;
+
+// Keeps daily_app_usage and hourly_app_usage in step with activity_logs. Ingest calls record() inside
+// its own transaction so raw rows and rollups commit together.
+@Service
+public class UsageRollupService {
+
+    private static final Logger log = LoggerFactory.getLogger(UsageRollupService.class);
+
+    // timestamp is bounded to the neighbouring days so the scan prunes to a few partitions
+    private static final String RAW_DAY_SQL = "SELECT device_id, local_timestamp, timestamp, app_name, window_title, "
+            + "duration_seconds, screen_time FROM activity_logs "
+            + "WHERE timestamp >= ? AND timestamp < ? "
+            + "AND COALESCE(local_timestamp, timestamp) >= ? AND COALESCE(local_timestamp, timestamp) < ? "
+            + "AND duration_seconds > 0 AND device_id IS NOT NULL";
+
+    private final DailyAppUsageJdbcRepository dailyAppUsageJdbcRepository;
+    private final HourlyAppUsageJdbcRepository hourlyAppUsageJdbcRepository;
+    private final AppClassifier appClassifier;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate tx;
+
+    public UsageRollupService(DailyAppUsageJdbcRepository dailyAppUsageJdbcRepository,
+            HourlyAppUsageJdbcRepository hourlyAppUsageJdbcRepository, AppClassifier appClassifier,
+            JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.dailyAppUsageJdbcRepository = dailyAppUsageJdbcRepository;
+        this.hourlyAppUsageJdbcRepository = hourlyAppUsageJdbcRepository;
+        this.appClassifier = appClassifier;
+        this.jdbcTemplate = jdbcTemplate;
+        this.tx = new TransactionTemplate(transactionManager);
+    }
+
+    private record Key(Long deviceId, LocalDate usageDate, String app) {}
+
+    private record HourKey(Long deviceId, LocalDateTime usageHour, String app) {}
+
+    private static class Totals { long focused = 0; long screen = 0; String windowTitle = null; }
+
+    private class Aggregator {
+        private final Map<Key, Totals> totals = new LinkedHashMap<>();
+        private final Map<HourKey, Totals> hourly = new LinkedHashMap<>();
+
+        void add(Long deviceId, LocalDateTime local, LocalDateTime utc, String appName, String windowTitle,
+                Integer durationSeconds, Boolean screenTime) {
+            int duration = durationSeconds == null ? 0 : durationSeconds;
+            LocalDateTime t = local != null ? local : utc;
+            if (deviceId == null || duration <= 0 || t == null) return;
+
+            String app = appClassifier.classify(appName, windowTitle);
+            Totals at = totals.computeIfAbsent(new Key(deviceId, t.toLocalDate(), app), k -> new Totals());
+            if (Boolean.TRUE.equals(screenTime)) at.screen += duration; else at.focused += duration;
+            if (at.windowTitle == null || at.windowTitle.equals(app)) at.windowTitle = windowTitle;
+
+            Totals ht = hourly.computeIfAbsent(new HourKey(deviceId, t.truncatedTo(ChronoUnit.HOURS), app), k -> new Totals());
+            if (Boolean.TRUE.equals(screenTime)) ht.screen += duration; else ht.focused += duration;
+        }
+
+        List<UsageDelta> deltas() {
+            List<UsageDelta> out = new ArrayList<>(totals.size());
+            totals.forEach((k, v) -> out.add(new UsageDelta(k.deviceId(), k.usageDate(), k.app(), v.focused, v.screen, v.windowTitle)));
+            return out;
+        }
+
+        List<HourDelta> hourDeltas() {
+            List<HourDelta> out = new ArrayList<>(hourly.size());
+            hourly.forEach((k, v) -> out.add(new HourDelta(k.deviceId(), k.usageHour(), k.app(), v.focused, v.screen)));
+            return out;
+        }
+
+        void write() {
+            dailyAppUsageJdbcRepository.upsertAdd(deltas());
+            hourlyAppUsageJdbcRepository.upsertAdd(hourDeltas());
+        }
+    }
+
+    public void record(Collection<ActivityLog> logs) {
+        if (logs == null || logs.isEmpty()) return;
+        Aggregator agg = new Aggregator();
+        for (ActivityLog l : logs) {
+            agg.add(l.getDeviceId(), l.getLocalTimestamp(), l.getTimestamp(), l.getAppName(), l.getWindowTitle(),
+                    l.getDurationSeconds(), l.getScreenTime());
+        }
+        agg.write();
+    }
+
+    // Recomputes one local day from the raw logs, replacing whatever rollups exist for it.
+    public void rebuildDay(LocalDate day) {
+        tx.executeWithoutResult(status -> {
+            dailyAppUsageJdbcRepository.deleteByDate(day);
+            hourlyAppUsageJdbcRepository.deleteBetween(day.atStartOfDay(), day.plusDays(1).atStartOfDay());
+            Aggregator agg = new Aggregator();
+            jdbcTemplate.query(RAW_DAY_SQL, rs -> {
+                Timestamp local = rs.getTimestamp("local_timestamp");
+                Timestamp utc = rs.getTimestamp("timestamp");
+                agg.add(rs.getLong("device_id"), local == null ? null : local.toLocalDateTime(),
+                        utc == null ? null : utc.toLocalDateTime(), rs.getString("app_name"), rs.getString("window_title"),
+                        rs.getInt("duration_seconds"), rs.getBoolean("screen_time"));
+            }, Timestamp.valueOf(day.minusDays(1).atStartOfDay()), Timestamp.valueOf(day.plusDays(2).atStartOfDay()),
+                    Timestamp.valueOf(day.atStartOfDay()), Timestamp.valueOf(day.plusDays(1).atStartOfDay()));
+            // only rows whose local day is this day survive the WHERE clause
+            agg.write();
+        });
+        log.debug("Usage rollup rebuilt for {}", day);
+    }
+
+}
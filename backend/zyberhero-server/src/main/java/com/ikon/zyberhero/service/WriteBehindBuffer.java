@@ -0,0 +1,250 @@
+package com.ikon.zyberhero.service;
+
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.NonTransientDataAccessException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+// Bounded queue drained by background writers that hand items to the flusher in
+// groups of up to flushSize, or whatever has arrived once flushInterval elapses.
+// A group that fails transiently (database down, pool exhausted, deadlock) is kept and
+// retried with capped backoff until it goes through; meanwhile the queue fills and
+// offers are refused. Any other failure (a constraint violation, bad data) splits the
+// group in halves, recursively, so one bad item cannot take the rest down. Items that
+// fail on their own are dropped: counted, and logged by device key to the
+// "ingest.dead-letter" logger.
+public class WriteBehindBuffer<T> {
+
+    private static final Logger log = LoggerFactory.getLogger(WriteBehindBuffer.class);
+    private static final Logger deadLetter = LoggerFactory.getLogger("ingest.dead-letter");
+    private static final long MAX_BACKOFF_MS = 30_000;
+
+    private final String name;
+    private final BlockingQueue<T> queue;
+    private final int flushSize;
+    private final long flushIntervalNanos;
+    private final Consumer<List<T>> flusher;
+    private final Function<T, ?> keyOf;
+    private final int retryAttempts;
+    private final long retryBackoffMs;
+    private final List<Thread> writers = new ArrayList<>();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    private volatile boolean running = false;
+
+    public WriteBehindBuffer(String name, int capacity, int flushSize, long flushIntervalMs, Consumer<List<T>> flusher) {
+        this(name, capacity, flushSize, flushIntervalMs, 0, 0, flusher, item -> "?");
+    }
+
+    // keyOf: what the dead-letter log records for a dropped item (a device id, not the payload)
+    public WriteBehindBuffer(String name, int capacity, int flushSize, long flushIntervalMs,
+            int retryAttempts, long retryBackoffMs, Consumer<List<T>> flusher, Function<T, ?> keyOf) {
+        this.name = name;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.flushSize = Math.max(1, flushSize);
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, flushIntervalMs));
+        this.retryAttempts = Math.max(0, retryAttempts);
+        this.retryBackoffMs = Math.max(1, retryBackoffMs);
+        this.flusher = flusher;
+        this.keyOf = keyOf;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public boolean offer(T item) {
+        return running && queue.offer(item);
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    // writes repeated after a transient failure
+    public long retriedCount() {
+        return retried.get();
+    }
+
+    // items given up on: failing on their own, or still unwritten at shutdown
+    public long droppedCount() {
+        return dropped.get();
+    }
+
+    public synchronized void start(int threads) {
+        if (running) return;
+        running = true;
+        for (int i = 0; i < Math.max(1, threads); i++) {
+            Thread t = new Thread(this::runWriter, "ingest-" + name + "-" + i);
+            t.setDaemon(true);
+            t.start();
+            writers.add(t);
+        }
+    }
+
+    // Stops accepting new items and waits for the writers to drain what is queued.
+    public synchronized void stop(long timeoutMs) {
+        if (!running) return;
+        running = false;
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        for (Thread t : writers) {
+            try {
+                t.join(Math.max(1, deadline - System.currentTimeMillis()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        writers.clear();
+        if (!queue.isEmpty()) {
+            log.warn("Ingest buffer {} stopped with {} unwritten items", name, queue.size());
+        }
+    }
+
+    private void runWriter() {
+        List<T> batch = new ArrayList<>(flushSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                T first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (batch.size() < flushSize) {
+                    queue.drainTo(batch, flushSize - batch.size());
+                    if (batch.size() >= flushSize) break;
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) break;
+                    T next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                flush(batch);
+                Thread.currentThread().interrupt();
+                return;
+            }
+            batch = new ArrayList<>(flushSize);
+        }
+    }
+
+    private void flush(List<T> batch) {
+        if (batch.isEmpty()) return;
+        Exception failure = write(batch);
+        if (failure == null) return;
+        if (isTransient(failure)) {
+            // only once stopping: splitting would not get past a database that is down
+            drop(batch, failure);
+            return;
+        }
+        log.warn("Ingest buffer {} failed to write {} items, splitting: {}", name, batch.size(), describe(failure));
+        split(batch, failure);
+    }
+
+    // Transient failures (connection, pool timeout, deadlock, serialization) are waited
+    // out with doubling backoff, capped at MAX_BACKOFF_MS, while the buffer runs; once it
+    // is stopping they get retryAttempts more tries. Returns the failure that ended it.
+    private Exception write(List<T> items) {
+        Exception failure = attempt(items);
+        if (failure == null || !isTransient(failure)) return failure;
+        log.warn("Ingest buffer {} cannot write ({}), holding {} items and retrying", name, describe(failure), items.size());
+        long backoff = retryBackoffMs;
+        int left = retryAttempts;
+        while (failure != null && isTransient(failure)) {
+            if (!running && left-- <= 0) break;
+            if (!sleep(backoff)) break;
+            backoff = Math.min(backoff * 2, MAX_BACKOFF_MS);
+            retried.incrementAndGet();
+            failure = attempt(items);
+        }
+        if (failure == null) log.info("Ingest buffer {} writing again", name);
+        return failure;
+    }
+
+    private void split(List<T> batch, Exception failure) {
+        if (batch.size() == 1) {
+            drop(batch, failure);
+            return;
+        }
+        int mid = batch.size() / 2;
+        for (List<T> half : List.of(batch.subList(0, mid), batch.subList(mid, batch.size()))) {
+            Exception ex = write(half);
+            if (ex == null) continue;
+            if (isTransient(ex)) drop(half, ex);
+            else split(half, ex);
+        }
+    }
+
+    // Payloads carry window titles and coordinates, so only the device key and the
+    // failure type are logged, never the item or the driver message (which can echo it).
+    private void drop(List<T> items, Exception failure) {
+        long total = dropped.addAndGet(items.size());
+        log.error("Ingest buffer {} dropped {} items (dropped so far: {}): {}", name, items.size(), total, describe(failure));
+        for (T item : items) deadLetter.error("{}: device {}: {}", name, keyOf.apply(item), describe(failure));
+    }
+
+    static boolean isTransient(Throwable failure) {
+        for (Throwable t = failure; t != null; t = t.getCause() == t ? null : t.getCause()) {
+            if (t instanceof TransientDataAccessException || t instanceof RecoverableDataAccessException
+                    || t instanceof DataAccessResourceFailureException || t instanceof CannotCreateTransactionException
+                    || t instanceof SQLTransientException || t instanceof SQLRecoverableException
+                    || t instanceof SQLNonTransientConnectionException) {
+                return true;
+            }
+            if (t instanceof SQLException sql && sql.getSQLState() != null) {
+                // 08 connection, 40 rollback (deadlock, serialization), 53 resources, 57 operator intervention
+                String cls = sql.getSQLState().length() >= 2 ? sql.getSQLState().substring(0, 2) : "";
+                if (cls.equals("08") || cls.equals("40") || cls.equals("53") || cls.equals("57")) return true;
+            }
+            if (t instanceof DataIntegrityViolationException || t instanceof NonTransientDataAccessException) return false;
+        }
+        return false;
+    }
+
+    private static String describe(Throwable failure) {
+        String state = null;
+        for (Throwable t = failure; t != null && state == null; t = t.getCause() == t ? null : t.getCause()) {
+            if (t instanceof SQLException sql) state = sql.getSQLState();
+        }
+        return failure.getClass().getSimpleName() + (state == null ? "" : " (SQLState " + state + ")");
+    }
+
+    private Exception attempt(List<T> items) {
+        try {
+            flusher.accept(new ArrayList<>(items));
+            return null;
+        } catch (Exception ex) {
+            return ex;
+        }
+    }
+
+    private static boolean sleep(long ms) {
+        if (Thread.currentThread().isInterrupted()) return false;
+        try {
+            Thread.sleep(ms);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+}
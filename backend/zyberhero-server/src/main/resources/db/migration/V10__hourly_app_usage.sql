@@ -0,0 +1,12 @@
+-- Hour-bucket usage rollup behind /summary/range. Maintained on ingest together
+-- with daily_app_usage and rebuilt by the same backfill.
+CREATE TABLE IF NOT EXISTS hourly_app_usage (
+    id BIGSERIAL PRIMARY KEY,
+    device_id BIGINT NOT NULL,
+    usage_hour TIMESTAMP(6) NOT NULL,
+    app VARCHAR(255) NOT NULL,
+    focused_seconds BIGINT DEFAULT 0,
+    screen_seconds BIGINT DEFAULT 0,
+    CONSTRAINT uk_hourly_app_usage_device_hour_app UNIQUE (device_id, usage_hour, app)
+);
+CREATE INDEX IF NOT EXISTS idx_hourly_app_usage_usage_hour ON hourly_app_usage(usage_hour);
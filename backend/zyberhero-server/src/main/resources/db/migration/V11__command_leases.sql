@@ -0,0 +1,12 @@
+-- Lease-based command delivery (see CommandState). Commands that were still active
+-- become QUEUED; everything else counts as already acknowledged.
+ALTER TABLE control_commands ADD COLUMN IF NOT EXISTS state VARCHAR(16);
+ALTER TABLE control_commands ADD COLUMN IF NOT EXISTS lease_until TIMESTAMP(6);
+ALTER TABLE control_commands ADD COLUMN IF NOT EXISTS delivery_count INTEGER DEFAULT 0;
+ALTER TABLE control_commands ADD COLUMN IF NOT EXISTS acked_at TIMESTAMP(6);
+
+UPDATE control_commands SET state = CASE WHEN is_active THEN 'QUEUED' ELSE 'ACKED' END WHERE state IS NULL;
+UPDATE control_commands SET delivery_count = 0 WHERE delivery_count IS NULL;
+
+-- lease sweep: active leased rows by deadline
+CREATE INDEX IF NOT EXISTS idx_control_commands_lease ON control_commands(lease_until) WHERE is_active AND state = 'LEASED';
@@ -0,0 +1,9 @@
+-- POST /api/commands/bulk upserts with ON CONFLICT (device_id, app_name, action),
+-- which needs the unique key the entity declares. Older databases may lack it or
+-- hold duplicates from before it existed; the newest row of each key is kept.
+DELETE FROM control_commands c
+USING control_commands newer
+WHERE c.device_id = newer.device_id AND c.app_name = newer.app_name AND c.action = newer.action
+  AND c.id < newer.id;
+CREATE UNIQUE INDEX IF NOT EXISTS uk_control_commands_device_app_action
+    ON control_commands(device_id, app_name, action);
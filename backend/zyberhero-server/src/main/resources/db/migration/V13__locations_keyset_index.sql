@@ -0,0 +1,5 @@
+-- Location history is paged by (timestamp, id) newest first per device. The index
+-- replaces idx_locations_device_ts from V7, which it covers. Created on the partitioned
+-- parent, so it cascades to every partition (not CONCURRENTLY; run off-peak).
+CREATE INDEX IF NOT EXISTS idx_locations_device_ts_id ON locations (device_id, timestamp DESC, id DESC);
+DROP INDEX IF EXISTS idx_locations_device_ts;
@@ -0,0 +1,5 @@
+-- Schedules the server's ScheduleEngine evaluates are not delivered to agents. Only
+-- rows the engine could compile carry the flag (set on write and at startup); any
+-- other schedule, e.g. one in a format the engine does not parse, keeps being
+-- delivered to the agent as before.
+ALTER TABLE control_commands ADD COLUMN IF NOT EXISTS server_evaluated BOOLEAN NOT NULL DEFAULT false;
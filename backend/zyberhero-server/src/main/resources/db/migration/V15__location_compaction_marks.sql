@@ -0,0 +1,9 @@
+-- Device days LocationCompactionJob has simplified. Douglas-Peucker error adds up when
+-- an already simplified track is simplified again, so each device day is compacted once;
+-- the mark is written in the same transaction as the delete.
+CREATE TABLE IF NOT EXISTS location_compaction_marks (
+    device_id BIGINT NOT NULL,
+    day DATE NOT NULL,
+    compacted_at TIMESTAMP(6) NOT NULL DEFAULT now(),
+    PRIMARY KEY (day, device_id)
+);
@@ -0,0 +1,3 @@
+-- Agents resolve their device by MAC address or machine name on every call
+CREATE INDEX IF NOT EXISTS idx_device_mac_address ON device(mac_address);
+CREATE INDEX IF NOT EXISTS idx_device_machine_name ON device(machine_name);
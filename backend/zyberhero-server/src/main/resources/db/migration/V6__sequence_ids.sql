@@ -0,0 +1,37 @@
+-- Move high-volume tables from IDENTITY columns to sequences with increment 50,
+-- matching allocationSize on the entities so Hibernate can batch inserts.
+-- Existing ids are kept; each sequence starts past the current maximum.
+-- The column default also draws from the sequence so plain JDBC inserts keep working.
+-- If the entity change was deployed first, ddl-auto has already created the sequences
+-- starting at 1; the setval below moves them past the current maximum either way. The
+-- server refuses to start until the column defaults exist (SchemaCheck).
+
+CREATE SEQUENCE IF NOT EXISTS activity_logs_seq INCREMENT BY 50;
+SELECT setval('activity_logs_seq', COALESCE((SELECT MAX(id) FROM activity_logs), 0) + 50, false);
+ALTER TABLE activity_logs ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE activity_logs ALTER COLUMN id SET DEFAULT nextval('activity_logs_seq');
+ALTER SEQUENCE activity_logs_seq OWNED BY activity_logs.id;
+
+CREATE SEQUENCE IF NOT EXISTS locations_seq INCREMENT BY 50;
+SELECT setval('locations_seq', COALESCE((SELECT MAX(id) FROM locations), 0) + 50, false);
+ALTER TABLE locations ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE locations ALTER COLUMN id SET DEFAULT nextval('locations_seq');
+ALTER SEQUENCE locations_seq OWNED BY locations.id;
+
+CREATE SEQUENCE IF NOT EXISTS alerts_seq INCREMENT BY 50;
+SELECT setval('alerts_seq', COALESCE((SELECT MAX(id) FROM alerts), 0) + 50, false);
+ALTER TABLE alerts ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE alerts ALTER COLUMN id SET DEFAULT nextval('alerts_seq');
+ALTER SEQUENCE alerts_seq OWNED BY alerts.id;
+
+CREATE SEQUENCE IF NOT EXISTS live_app_status_seq INCREMENT BY 50;
+SELECT setval('live_app_status_seq', COALESCE((SELECT MAX(id) FROM live_app_status), 0) + 50, false);
+ALTER TABLE live_app_status ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE live_app_status ALTER COLUMN id SET DEFAULT nextval('live_app_status_seq');
+ALTER SEQUENCE live_app_status_seq OWNED BY live_app_status.id;
+
+CREATE SEQUENCE IF NOT EXISTS control_commands_seq INCREMENT BY 50;
+SELECT setval('control_commands_seq', COALESCE((SELECT MAX(id) FROM control_commands), 0) + 50, false);
+ALTER TABLE control_commands ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE control_commands ALTER COLUMN id SET DEFAULT nextval('control_commands_seq');
+ALTER SEQUENCE control_commands_seq OWNED BY control_commands.id;
@@ -0,0 +1,47 @@
+-- Convert activity_logs and locations into tables range-partitioned by timestamp.
+-- Existing rows are copied into weekly partitions named <table>_p<from>_<to>
+-- (yyyyMMdd, upper bound exclusive); PartitionMaintenanceJob keeps creating
+-- partitions ahead of time and retires old ones. A default partition catches
+-- rows outside any range (e.g. agents with a skewed clock).
+-- The primary key becomes (id, timestamp) because Postgres requires the partition
+-- key in every unique constraint; ids still come from the <table>_seq sequences.
+-- Run with the application stopped.
+
+CREATE FUNCTION pg_temp.partition_by_week(tbl text) RETURNS void AS $$
+DECLARE
+    old_tbl text := tbl || '_unpartitioned';
+    part_start timestamp;
+    upper_limit timestamp := date_trunc('week', localtimestamp) + INTERVAL '5 weeks';
+BEGIN
+    EXECUTE format('ALTER TABLE %I RENAME TO %I', tbl, old_tbl);
+    EXECUTE format('ALTER SEQUENCE %I OWNED BY NONE', tbl || '_seq');
+
+    EXECUTE format('CREATE TABLE %I (LIKE %I INCLUDING DEFAULTS) PARTITION BY RANGE (timestamp)', tbl, old_tbl);
+    EXECUTE format('UPDATE %I SET timestamp = localtimestamp WHERE timestamp IS NULL', old_tbl);
+    EXECUTE format('ALTER TABLE %I ALTER COLUMN timestamp SET NOT NULL', tbl);
+    EXECUTE format('ALTER TABLE %I ADD PRIMARY KEY (id, timestamp)', tbl);
+
+    EXECUTE format('SELECT date_trunc(''week'', COALESCE(MIN(timestamp), localtimestamp)) FROM %I', old_tbl)
+        INTO part_start;
+    WHILE part_start < upper_limit LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+            tbl || '_p' || to_char(part_start, 'YYYYMMDD') || '_' || to_char(part_start + INTERVAL '1 week', 'YYYYMMDD'),
+            tbl, part_start, part_start + INTERVAL '1 week');
+        part_start := part_start + INTERVAL '1 week';
+    END LOOP;
+    EXECUTE format('CREATE TABLE %I PARTITION OF %I DEFAULT', tbl || '_default', tbl);
+
+    EXECUTE format('INSERT INTO %I SELECT * FROM %I', tbl, old_tbl);
+    EXECUTE format('DROP TABLE %I', old_tbl);
+    EXECUTE format('ALTER SEQUENCE %I OWNED BY %I.id', tbl || '_seq', tbl);
+
+    -- indexes on the parent cascade to every partition, present and future
+    EXECUTE format('CREATE INDEX %I ON %I (device_id, timestamp)', 'idx_' || tbl || '_device_ts', tbl);
+    EXECUTE format('CREATE INDEX %I ON %I (timestamp)', 'idx_' || tbl || '_ts', tbl);
+END;
+$$ LANGUAGE plpgsql;
+
+BEGIN;
+SELECT pg_temp.partition_by_week('activity_logs');
+SELECT pg_temp.partition_by_week('locations');
+COMMIT;
@@ -0,0 +1,14 @@
+-- Daily usage rollup read by /summary/daily-comparison and /screen-time/total.
+-- Rows are upserted by ingest; populate history with the backfill (see application.yml).
+CREATE TABLE IF NOT EXISTS daily_app_usage (
+    id BIGSERIAL PRIMARY KEY,
+    device_id BIGINT NOT NULL,
+    usage_date DATE NOT NULL,
+    app VARCHAR(255) NOT NULL,
+    focused_seconds BIGINT DEFAULT 0,
+    screen_seconds BIGINT DEFAULT 0,
+    window_title VARCHAR(255),
+    updated_at TIMESTAMP(6),
+    CONSTRAINT uk_daily_app_usage_device_date_app UNIQUE (device_id, usage_date, app)
+);
+CREATE INDEX IF NOT EXISTS idx_daily_app_usage_usage_date ON daily_app_usage(usage_date);
@@ -0,0 +1,12 @@
+-- Window-title classification rules used by AppClassifier. When the table is
+-- empty the application seeds it with the built-in chrome/msedge rules.
+-- Changes are picked up without a restart (zyberhero.classifier.reload-interval-ms).
+CREATE TABLE IF NOT EXISTS app_classification_rules (
+    id BIGSERIAL PRIMARY KEY,
+    app_name VARCHAR(255) NOT NULL,
+    pattern VARCHAR(255) NOT NULL,
+    target VARCHAR(255) NOT NULL,
+    priority INTEGER DEFAULT 100,
+    enabled BOOLEAN DEFAULT TRUE
+);
+CREATE INDEX IF NOT EXISTS idx_app_classification_rules_app_name ON app_classification_rules(app_name);
@@ -0,0 +1,20 @@
+package com.ikon.zyberhero.benchmark;
+
+import com.ikon.zyberhero.ZyberheroApplication;
+
+// Starts the application from the test classpath with the "benchmark" profile, so the
+// benchmark runners in this package are picked up; they are never packaged with the
+// server. Point the datasource at a scratch database, then e.g.
+//   mvn -pl zyberhero-server spring-boot:test-run \
+//       -Dspring-boot.run.main-class=com.ikon.zyberhero.benchmark.BenchmarkApplication
+public final class BenchmarkApplication {
+
+    private BenchmarkApplication() {
+    }
+
+    public static void main(String[] args) {
+        if (System.getProperty("spring.profiles.active") == null) System.setProperty("spring.profiles.active", "benchmark");
+        ZyberheroApplication.main(args);
+    }
+
+}
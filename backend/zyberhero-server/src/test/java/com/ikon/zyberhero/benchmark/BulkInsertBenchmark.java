@@ -0,0 +1,129 @@
+package com.ikon.zyberhero.benchmark;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.ikon.zyberhero.entity.ActivityLog;
+import com.ikon.zyberhero.repository.ActivityLogJdbcRepository;
+import com.ikon.zyberhero.repository.ActivityLogRepository;
+
+// Rows/second for bulk activity_logs inserts. Run through BenchmarkApplication.
+// Every run is rolled back, so the database is left untouched.
+//  - row-at-a-time: one INSERT ... RETURNING id round trip per row, which is what
+//    GenerationType.IDENTITY forced Hibernate to do
+//  - jpa-saveAll: sequence ids fetched in pooled blocks, inserts batched by Hibernate
+//  - jdbc-batch: the JDBC batch path used by the ingest endpoints
+@Component
+@Profile("benchmark")
+public class BulkInsertBenchmark implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkInsertBenchmark.class);
+
+    // synthetic device id so benchmark rows can never be mistaken for real data
+    private static final long BENCH_DEVICE_ID = -1L;
+
+    private final ActivityLogRepository activityLogRepository;
+    private final ActivityLogJdbcRepository activityLogJdbcRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManager entityManager;
+    private final TransactionTemplate tx;
+    private final int rows;
+    private final int rounds;
+
+    public BulkInsertBenchmark(ActivityLogRepository activityLogRepository, ActivityLogJdbcRepository activityLogJdbcRepository,
+            JdbcTemplate jdbcTemplate, EntityManager entityManager, PlatformTransactionManager transactionManager,
+            @Value("${zyberhero.benchmark.rows:5000}") int rows,
+            @Value("${zyberhero.benchmark.rounds:3}") int rounds) {
+        this.activityLogRepository = activityLogRepository;
+        this.activityLogJdbcRepository = activityLogJdbcRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManager = entityManager;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.rows = rows;
+        this.rounds = rounds;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        log.info("Bulk insert benchmark: {} rows x {} rounds", rows, rounds);
+        // first round warms up the JIT and connection pool
+        for (int round = 0; round <= rounds; round++) {
+            boolean report = round > 0;
+            measure("row-at-a-time", report, this::rowAtATime);
+            measure("jpa-saveAll", report, this::jpaSaveAll);
+            measure("jdbc-batch", report, this::jdbcBatch);
+        }
+    }
+
+    private void measure(String name, boolean report, Runnable body) {
+        long start = System.nanoTime();
+        tx.executeWithoutResult(status -> {
+            body.run();
+            status.setRollbackOnly();
+        });
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        if (report) log.info("{}: {} rows in {} ms ({} rows/s)", name, rows, Math.round(seconds * 1000), Math.round(rows / seconds));
+    }
+
+    private void rowAtATime() {
+        String sql = "INSERT INTO activity_logs (timestamp, app_name, window_title, duration_seconds, executable_path, screen_time, device_id) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+        for (ActivityLog l : sampleRows()) {
+            jdbcTemplate.update(con -> {
+                PreparedStatement ps = con.prepareStatement(sql, new String[] {"id"});
+                ps.setTimestamp(1, Timestamp.valueOf(l.getTimestamp()));
+                ps.setString(2, l.getAppName());
+                ps.setString(3, l.getWindowTitle());
+                ps.setInt(4, l.getDurationSeconds());
+                ps.setString(5, l.getExecutablePath());
+                ps.setBoolean(6, l.getScreenTime());
+                ps.setLong(7, l.getDeviceId());
+                return ps;
+            }, new GeneratedKeyHolder());
+        }
+    }
+
+    private void jpaSaveAll() {
+        activityLogRepository.saveAll(sampleRows());
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private void jdbcBatch() {
+        activityLogJdbcRepository.batchInsert(sampleRows());
+    }
+
+    private List<ActivityLog> sampleRows() {
+        List<ActivityLog> list = new ArrayList<>(rows);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < rows; i++) {
+            ActivityLog l = new ActivityLog();
+            l.setTimestamp(now.minusSeconds(i));
+            l.setAppName("benchmark");
+            l.setWindowTitle("Benchmark window " + (i % 50));
+            l.setDurationSeconds(30);
+            l.setExecutablePath("");
+            l.setScreenTime(i % 2 == 0);
+            l.setDeviceId(BENCH_DEVICE_ID);
+            list.add(l);
+        }
+        return list;
+    }
+
+}
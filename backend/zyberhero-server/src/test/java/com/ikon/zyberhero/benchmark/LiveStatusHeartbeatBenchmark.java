@@ -0,0 +1,128 @@
+package com.ikon.zyberhero.benchmark;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.ikon.zyberhero.entity.LiveAppStatus;
+import com.ikon.zyberhero.repository.LiveAppStatusJdbcRepository;
+import com.ikon.zyberhero.repository.LiveAppStatusRepository;
+
+// Statements and latency per live-status heartbeat for 5, 50 and 200 running apps.
+// Run through BenchmarkApplication; every run is rolled back.
+//  - per-app: the previous write path (load running, flip to false, find + save per app)
+//  - set-based: LiveAppStatusJdbcRepository.replaceRunning, always two statements
+// Each heartbeat reports the same apps as the previous one minus one, plus one new app,
+// with changed titles, which is the common steady state.
+@Component
+@Profile("benchmark")
+public class LiveStatusHeartbeatBenchmark implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(LiveStatusHeartbeatBenchmark.class);
+
+    private static final long BENCH_DEVICE_ID = -1L;
+    private static final int[] APP_COUNTS = {5, 50, 200};
+
+    private final LiveAppStatusRepository liveAppStatusRepository;
+    private final LiveAppStatusJdbcRepository liveAppStatusJdbcRepository;
+    private final EntityManager entityManager;
+    private final Statistics statistics;
+    private final TransactionTemplate tx;
+    private final int heartbeats;
+
+    public LiveStatusHeartbeatBenchmark(LiveAppStatusRepository liveAppStatusRepository,
+            LiveAppStatusJdbcRepository liveAppStatusJdbcRepository, EntityManager entityManager,
+            EntityManagerFactory entityManagerFactory, PlatformTransactionManager transactionManager,
+            @Value("${zyberhero.benchmark.heartbeats:200}") int heartbeats) {
+        this.liveAppStatusRepository = liveAppStatusRepository;
+        this.liveAppStatusJdbcRepository = liveAppStatusJdbcRepository;
+        this.entityManager = entityManager;
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        this.tx = new TransactionTemplate(transactionManager);
+        this.heartbeats = heartbeats;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        log.info("Live status heartbeat benchmark: {} heartbeats per case", heartbeats);
+        boolean statsWereEnabled = statistics.isStatisticsEnabled();
+        statistics.setStatisticsEnabled(true);
+        try {
+            for (int apps : APP_COUNTS) {
+                measure("per-app", apps, false);
+                measure("set-based", apps, true);
+            }
+        } finally {
+            statistics.setStatisticsEnabled(statsWereEnabled);
+        }
+    }
+
+    private void measure(String name, int apps, boolean setBased) {
+        tx.executeWithoutResult(status -> {
+            // seed the running set, then time steady-state heartbeats
+            heartbeat(setBased, report(apps, 0));
+            long statements = 0;
+            long nanos = 0;
+            for (int i = 1; i <= heartbeats; i++) {
+                List<LiveAppStatusJdbcRepository.RunningApp> report = report(apps, i);
+                statistics.clear();
+                long start = System.nanoTime();
+                heartbeat(setBased, report);
+                nanos += System.nanoTime() - start;
+                statements += setBased ? 2 : statistics.getPrepareStatementCount();
+            }
+            status.setRollbackOnly();
+            log.info("{} / {} apps: {} statements per heartbeat, {} us per heartbeat",
+                    name, apps, statements / heartbeats, nanos / heartbeats / 1000);
+        });
+    }
+
+    private void heartbeat(boolean setBased, List<LiveAppStatusJdbcRepository.RunningApp> report) {
+        if (setBased) {
+            liveAppStatusJdbcRepository.replaceRunning(BENCH_DEVICE_ID, report);
+            return;
+        }
+        List<LiveAppStatus> running = liveAppStatusRepository.findByDeviceIdAndIsRunningTrue(BENCH_DEVICE_ID);
+        for (LiveAppStatus r : running) r.setIsRunning(false);
+        liveAppStatusRepository.saveAll(running);
+        for (LiveAppStatusJdbcRepository.RunningApp a : report) {
+            LiveAppStatus e = liveAppStatusRepository.findFirstByDeviceIdAndAppName(BENCH_DEVICE_ID, a.appName()).orElse(null);
+            if (e == null) {
+                e = new LiveAppStatus();
+                e.setDeviceId(BENCH_DEVICE_ID);
+                e.setAppName(a.appName());
+            }
+            e.setIsRunning(true);
+            e.setWindowTitle(a.windowTitle());
+            e.setLastSeen(a.lastSeen());
+            liveAppStatusRepository.save(e);
+        }
+        entityManager.flush();
+        // the real path ran one transaction per heartbeat, so nothing stays cached between them
+        entityManager.clear();
+    }
+
+    private List<LiveAppStatusJdbcRepository.RunningApp> report(int apps, int beat) {
+        List<LiveAppStatusJdbcRepository.RunningApp> list = new ArrayList<>(apps);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = beat; i < beat + apps; i++) {
+            list.add(new LiveAppStatusJdbcRepository.RunningApp("bench-app-" + i, "Window " + beat, now));
+        }
+        return list;
+    }
+
+}
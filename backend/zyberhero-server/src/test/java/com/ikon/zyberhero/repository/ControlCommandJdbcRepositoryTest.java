@@ -0,0 +1,123 @@
+package com.ikon.zyberhero.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import com.ikon.zyberhero.entity.CommandState;
+import com.ikon.zyberhero.entity.ControlCommand;
+
+@Import({ PostgresTestConfiguration.class, ControlCommandJdbcRepository.class })
+class ControlCommandJdbcRepositoryTest extends PostgresRepositoryTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 5, 6, 9, 0);
+
+    @Autowired
+    private ControlCommandJdbcRepository jdbcRepository;
+
+    @Autowired
+    private ControlCommandRepository repository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Test
+    void upsertInsertsOneQueuedRowPerDevice() {
+        Map<Long, Long> ids = jdbcRepository.upsertActive(List.of(1L, 2L, 3L), "game", "kill", null, NOW);
+
+        assertEquals(List.of(1L, 2L, 3L), List.copyOf(ids.keySet()));
+        assertEquals(3, ids.values().stream().distinct().count());
+        for (Map.Entry<Long, Long> e : ids.entrySet()) {
+            ControlCommand c = load(e.getValue());
+            assertEquals(e.getKey(), c.getDeviceId());
+            assertEquals("game", c.getAppName());
+            assertEquals("kill", c.getAction());
+            assertTrue(c.getIsActive());
+            assertEquals(CommandState.QUEUED, c.getState());
+            assertEquals(0, c.getDeliveryCount());
+            assertFalse(c.getServerEvaluated());
+        }
+    }
+
+    @Test
+    void upsertReArmsExistingRowInPlace() {
+        Long id = jdbcRepository.upsertActive(List.of(1L), "game", "schedule", "MON 08:00-09:00", NOW).get(1L);
+        ControlCommand c = load(id);
+        c.setIsActive(false);
+        c.setState(CommandState.LEASED);
+        c.setLeaseUntil(NOW.plusMinutes(1));
+        c.setDeliveryCount(3);
+        c.setAckedAt(NOW);
+        repository.saveAndFlush(c);
+
+        Map<Long, Long> again = jdbcRepository.upsertActive(List.of(1L, 2L), "game", "schedule", "TUE 10:00-11:00", true,
+                NOW.plusHours(1));
+
+        assertEquals(id, again.get(1L));
+        ControlCommand rearmed = load(id);
+        assertTrue(rearmed.getIsActive());
+        assertEquals(CommandState.QUEUED, rearmed.getState());
+        assertNull(rearmed.getLeaseUntil());
+        assertEquals(0, rearmed.getDeliveryCount());
+        assertNull(rearmed.getAckedAt());
+        assertEquals("TUE 10:00-11:00", rearmed.getSchedule());
+        assertTrue(rearmed.getServerEvaluated());
+        assertEquals(2, repository.count());
+    }
+
+    @Test
+    void upsertKeepsActionsApart() {
+        Long kill = jdbcRepository.upsertActive(List.of(1L), "game", "kill", null, NOW).get(1L);
+        Long scheduleKill = jdbcRepository.upsertActive(List.of(1L), "game", "schedule-kill", null, NOW).get(1L);
+        Long otherApp = jdbcRepository.upsertActive(List.of(1L), "chat", "kill", null, NOW).get(1L);
+
+        assertEquals(3, List.of(kill, scheduleKill, otherApp).stream().distinct().count());
+    }
+
+    @Test
+    void deactivateOnlyTouchesMatchingActiveRows() {
+        Map<Long, Long> kills = jdbcRepository.upsertActive(List.of(1L, 2L, 3L), "game", "kill", null, NOW);
+        Long scheduleKill = jdbcRepository.upsertActive(List.of(1L), "game", "schedule-kill", null, NOW).get(1L);
+        Long otherApp = jdbcRepository.upsertActive(List.of(1L), "chat", "kill", null, NOW).get(1L);
+
+        assertEquals(2, jdbcRepository.deactivate(List.of(1L, 2L, 99L), "game", "kill"));
+        // already inactive rows are not counted again
+        assertEquals(0, jdbcRepository.deactivate(List.of(1L, 2L), "game", "kill"));
+
+        assertFalse(load(kills.get(1L)).getIsActive());
+        assertFalse(load(kills.get(2L)).getIsActive());
+        assertTrue(load(kills.get(3L)).getIsActive());
+        assertTrue(load(scheduleKill).getIsActive());
+        assertTrue(load(otherApp).getIsActive());
+    }
+
+    @Test
+    void markServerEvaluatedSetsFlag() {
+        Map<Long, Long> ids = jdbcRepository.upsertActive(List.of(1L, 2L), "game", "schedule", "DAILY", NOW);
+
+        assertEquals(1, jdbcRepository.markServerEvaluated(List.of(ids.get(1L)), true));
+        // rows that already carry the value are skipped
+        assertEquals(0, jdbcRepository.markServerEvaluated(List.of(ids.get(1L)), true));
+        assertEquals(0, jdbcRepository.markServerEvaluated(List.of(), true));
+
+        assertTrue(load(ids.get(1L)).getServerEvaluated());
+        assertFalse(load(ids.get(2L)).getServerEvaluated());
+    }
+
+    // the JDBC statements bypass the persistence context
+    private ControlCommand load(Long id) {
+        entityManager.clear();
+        return repository.findById(id).orElseThrow();
+    }
+
+}
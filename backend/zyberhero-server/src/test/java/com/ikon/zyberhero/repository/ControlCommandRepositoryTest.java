@@ -0,0 +1,156 @@
+package com.ikon.zyberhero.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeout;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.ikon.zyberhero.entity.CommandState;
+import com.ikon.zyberhero.entity.ControlCommand;
+
+// Not run inside the test transaction: the lock test needs two transactions that
+// commit independently, so rows are cleaned up after each test instead.
+@Import(PostgresTestConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ControlCommandRepositoryTest extends PostgresRepositoryTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 5, 6, 9, 0);
+    private static final int MAX_DELIVERIES = 5;
+
+    @Autowired
+    private ControlCommandRepository repository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate tx;
+
+    @BeforeEach
+    void setUp() {
+        tx = new TransactionTemplate(transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        repository.deleteAll();
+    }
+
+    @Test
+    void lockDeliverableSelectsOneTimeCommandsToLease() {
+        save(1L, "a", "kill", CommandState.QUEUED, null, 0, true, false);
+        save(1L, "b", "schedule-kill", CommandState.QUEUED, null, 0, true, false);
+        Long queued = save(1L, "c", "relaunch", CommandState.QUEUED, null, 0, true, false);
+        Long lapsed = save(1L, "d", "relaunch", CommandState.LEASED, NOW.minusSeconds(1), 2, true, false);
+        Long agentSchedule = save(1L, "e", "schedule", CommandState.QUEUED, null, 0, true, false);
+        // not deliverable: lease still running, out of deliveries, inactive, run by the
+        // server, another device
+        save(1L, "f", "relaunch", CommandState.LEASED, NOW.plusMinutes(1), 1, true, false);
+        save(1L, "g", "relaunch", CommandState.LEASED, NOW.minusSeconds(1), MAX_DELIVERIES, true, false);
+        save(1L, "h", "relaunch", CommandState.QUEUED, null, 0, false, false);
+        save(1L, "i", "schedule", CommandState.QUEUED, null, 0, true, true);
+        save(2L, "a", "relaunch", CommandState.QUEUED, null, 0, true, false);
+
+        List<ControlCommand> locked = tx.execute(status -> lockDeliverable(1L));
+
+        assertEquals(List.of(queued, lapsed, agentSchedule), ids(locked));
+    }
+
+    @Test
+    void findActiveKillsReturnsEveryActiveKillWhateverItsState() {
+        Long kill = save(1L, "a", "kill", CommandState.LEASED, NOW.plusMinutes(1), 9, true, false);
+        Long scheduleKill = save(1L, "b", "schedule-kill", CommandState.QUEUED, null, 0, true, false);
+        save(1L, "c", "kill", CommandState.QUEUED, null, 0, false, false);
+        save(1L, "d", "relaunch", CommandState.QUEUED, null, 0, true, false);
+        save(2L, "a", "kill", CommandState.QUEUED, null, 0, true, false);
+
+        assertEquals(List.of(kill, scheduleKill), ids(repository.findActiveKills(1L)));
+    }
+
+    @Test
+    void concurrentPollSkipsLockedRowsButStillSeesKills() throws Exception {
+        Long kill = save(1L, "a", "kill", CommandState.QUEUED, null, 0, true, false);
+        save(1L, "b", "relaunch", CommandState.QUEUED, null, 0, true, false);
+        save(1L, "c", "relaunch", CommandState.QUEUED, null, 0, true, false);
+        Long otherDevice = save(2L, "b", "relaunch", CommandState.QUEUED, null, 0, true, false);
+
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Integer> holder = executor.submit(() -> tx.execute(status -> {
+                int n = lockDeliverable(1L).size();
+                repository.findActiveKills(1L);
+                locked.countDown();
+                try {
+                    release.await(30, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return n;
+            }));
+            assertTrue(locked.await(30, TimeUnit.SECONDS));
+
+            // a blocking FOR UPDATE would sit here until the holder commits
+            List<ControlCommand> second = assertTimeout(Duration.ofSeconds(5),
+                    () -> tx.execute(status -> lockDeliverable(1L)));
+            assertTrue(second.isEmpty());
+            // the kill is not locked by the holder, so an overlapping poll still delivers it
+            List<ControlCommand> kills = assertTimeout(Duration.ofSeconds(5),
+                    () -> tx.execute(status -> repository.findActiveKills(1L)));
+            assertEquals(List.of(kill), ids(kills));
+            List<ControlCommand> other = assertTimeout(Duration.ofSeconds(5),
+                    () -> tx.execute(status -> lockDeliverable(2L)));
+            assertEquals(List.of(otherDevice), ids(other));
+
+            release.countDown();
+            assertEquals(2, holder.get(30, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+
+        // once the holder has committed the rows are available again
+        assertEquals(2, tx.execute(status -> lockDeliverable(1L)).size());
+    }
+
+    private List<ControlCommand> lockDeliverable(Long deviceId) {
+        return repository.lockDeliverable(deviceId, NOW, MAX_DELIVERIES, CommandState.QUEUED, CommandState.LEASED);
+    }
+
+    private static List<Long> ids(List<ControlCommand> commands) {
+        return commands.stream().map(ControlCommand::getId).toList();
+    }
+
+    private Long save(Long deviceId, String appName, String action, CommandState state, LocalDateTime leaseUntil,
+            int deliveryCount, boolean active, boolean serverEvaluated) {
+        ControlCommand c = new ControlCommand();
+        c.setDeviceId(deviceId);
+        c.setAppName(appName);
+        c.setAction(action);
+        c.setState(state);
+        c.setLeaseUntil(leaseUntil);
+        c.setDeliveryCount(deliveryCount);
+        c.setIsActive(active);
+        c.setServerEvaluated(serverEvaluated);
+        return repository.save(c).getId();
+    }
+
+}
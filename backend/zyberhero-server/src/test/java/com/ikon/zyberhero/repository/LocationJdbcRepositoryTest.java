@@ -0,0 +1,112 @@
+package com.ikon.zyberhero.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+
+import com.ikon.zyberhero.config.IngestProperties;
+import com.ikon.zyberhero.entity.Location;
+import com.ikon.zyberhero.repository.LocationJdbcRepository.Cursor;
+
+@Import({ PostgresTestConfiguration.class, LocationJdbcRepository.class, IngestProperties.class })
+class LocationJdbcRepositoryTest extends PostgresRepositoryTest {
+
+    private static final LocalDateTime T = LocalDateTime.of(2024, 5, 6, 9, 0);
+
+    @Autowired
+    private LocationJdbcRepository repository;
+
+    // device 1, newest first: T+5, T+4, T+3 (twice), T+2, T+1, T+0
+    private List<Location> history;
+
+    @BeforeEach
+    void setUp() {
+        List<Location> rows = new ArrayList<>();
+        for (int i = 0; i <= 5; i++) rows.add(fix(1L, T.plusMinutes(i)));
+        rows.add(fix(1L, T.plusMinutes(3)));
+        rows.add(fix(2L, T.plusMinutes(10)));
+        repository.batchInsert(rows);
+
+        history = rows.stream().filter(l -> l.getDeviceId() == 1L)
+                .sorted(Comparator.comparing(Location::getTimestamp).thenComparing(Location::getId).reversed())
+                .toList();
+    }
+
+    @Test
+    void firstPageIsNewestFirst() {
+        List<Location> page = repository.findPage(1L, null, null, null, null, 3);
+
+        assertEquals(ids(history.subList(0, 3)), ids(page));
+    }
+
+    @Test
+    void beforeCursorWalksOlderPagesWithoutGapsOrRepeats() {
+        // limit 3 puts the two T+3 rows on different pages, so the id decides
+        List<Location> walked = new ArrayList<>();
+        Cursor before = null;
+        List<Location> page;
+        do {
+            page = repository.findPage(1L, null, null, before, null, 3);
+            walked.addAll(page);
+            if (!page.isEmpty()) before = cursor(page.get(page.size() - 1));
+        } while (page.size() == 3);
+
+        assertEquals(ids(history), ids(walked));
+    }
+
+    @Test
+    void afterCursorReturnsTheNewerRowsNearestTheCursor() {
+        // after T+1: T+2 and the older T+3 row, still newest first
+        List<Location> page = repository.findPage(1L, null, null, null, cursor(history.get(5)), 2);
+        assertEquals(ids(history.subList(3, 5)), ids(page));
+
+        // after the older T+3 row: the other T+3 row is newer by id
+        page = repository.findPage(1L, null, null, null, cursor(history.get(3)), 10);
+        assertEquals(ids(history.subList(0, 3)), ids(page));
+
+        assertTrue(repository.findPage(1L, null, null, null, cursor(history.get(0)), 10).isEmpty());
+    }
+
+    @Test
+    void boundsAreFromInclusiveToExclusive() {
+        List<Location> page = repository.findPage(1L, T.plusMinutes(1), T.plusMinutes(4), null, null, 10);
+
+        assertEquals(ids(history.subList(2, 6)), ids(page));
+    }
+
+    @Test
+    void compactionMarksArePerDeviceAndDay() {
+        LocalDate day = T.toLocalDate();
+        repository.markCompacted(1L, day);
+        repository.markCompacted(1L, day);
+        repository.markCompacted(2L, day.plusDays(1));
+
+        assertEquals(Set.of(1L), repository.findCompactedDeviceIds(day));
+        assertEquals(Set.of(2L), repository.findCompactedDeviceIds(day.plusDays(1)));
+        assertTrue(repository.findCompactedDeviceIds(day.minusDays(1)).isEmpty());
+    }
+
+    private static Location fix(Long deviceId, LocalDateTime timestamp) {
+        return new Location(null, timestamp, 12.97, 77.59, 5.0, null, deviceId);
+    }
+
+    private static Cursor cursor(Location l) {
+        return new Cursor(l.getTimestamp(), l.getId());
+    }
+
+    private static List<Long> ids(List<Location> rows) {
+        return rows.stream().map(Location::getId).toList();
+    }
+
+}
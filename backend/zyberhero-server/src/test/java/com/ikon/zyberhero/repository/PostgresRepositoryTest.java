@@ -0,0 +1,24 @@
+package com.ikon.zyberhero.repository;
+
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.jdbc.Sql;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+// Base for tests of the Postgres-specific SQL (unnest, ON CONFLICT, SKIP LOCKED, row
+// comparisons). Skipped when Docker is not available. Hibernate creates the tables
+// from the entities; the migrations the bulk statements depend on (sequence-backed
+// id defaults, the command upsert key, server_evaluated, the keyset index, the
+// compaction marks) are applied on top before each test. Subclasses @Import
+// PostgresTestConfiguration.
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+@Sql({
+        "classpath:db/migration/V6__sequence_ids.sql",
+        "classpath:db/migration/V12__control_commands_unique.sql",
+        "classpath:db/migration/V13__locations_keyset_index.sql",
+        "classpath:db/migration/V14__control_commands_server_evaluated.sql",
+        "classpath:db/migration/V15__location_compaction_marks.sql" })
+abstract class PostgresRepositoryTest {
+}
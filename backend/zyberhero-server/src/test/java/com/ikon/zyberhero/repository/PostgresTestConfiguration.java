@@ -0,0 +1,19 @@
+package com.ikon.zyberhero.repository;
+
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Bean;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+// Throwaway Postgres for repository tests; the datasource is pointed at it through
+// @ServiceConnection and it lives as long as the (cached) test context.
+@TestConfiguration(proxyBeanMethods = false)
+class PostgresTestConfiguration {
+
+    @Bean
+    @ServiceConnection
+    PostgreSQLContainer<?> postgres() {
+        return new PostgreSQLContainer<>("postgres:16-alpine");
+    }
+
+}
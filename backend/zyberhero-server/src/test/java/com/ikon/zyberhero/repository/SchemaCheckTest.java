@@ -0,0 +1,36 @@
+package com.ikon.zyberhero.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.ikon.zyberhero.config.SchemaCheck;
+
+@Import(PostgresTestConfiguration.class)
+class SchemaCheckTest extends PostgresRepositoryTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void passesOnceTheMigrationsAreApplied() {
+        assertEquals(List.of(), new SchemaCheck(jdbcTemplate, false).missing());
+    }
+
+    @Test
+    void reportsWhatIsMissing() {
+        jdbcTemplate.execute("ALTER TABLE locations ALTER COLUMN id DROP DEFAULT");
+        jdbcTemplate.execute("DROP INDEX idx_locations_device_ts_id");
+        jdbcTemplate.execute("ALTER TABLE control_commands DROP COLUMN server_evaluated");
+
+        assertEquals(List.of("locations.id sequence default (V6)", "index idx_locations_device_ts_id (V13)",
+                "control_commands.server_evaluated (V14)"),
+                new SchemaCheck(jdbcTemplate, false).missing());
+    }
+
+}
@@ -0,0 +1,73 @@
+package com.ikon.zyberhero.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class AhoCorasickMatcherTest {
+
+    @Test
+    void findsPatternAnywhereInText() {
+        AhoCorasickMatcher m = new AhoCorasickMatcher(List.of("youtube", "netflix"));
+        assertEquals(0, m.match("watching youtube.com in chrome"));
+        assertEquals(1, m.match("netflix"));
+        assertEquals(-1, m.match("notepad"));
+        assertEquals(-1, m.match(""));
+    }
+
+    @Test
+    void reportsBestRankedPatternNotFirstOccurrence() {
+        AhoCorasickMatcher m = new AhoCorasickMatcher(List.of("game", "chrome"));
+        // "chrome" occurs first in the text, but "game" ranks higher
+        assertEquals(0, m.match("chrome - online game"));
+        assertEquals(1, m.match("chrome - docs"));
+    }
+
+    @Test
+    void findsPatternsReachedOnlyThroughFailureLinks() {
+        // while walking "she", the matcher is on the "sh" branch when "he" completes
+        AhoCorasickMatcher m = new AhoCorasickMatcher(List.of("hers", "he", "shop"));
+        assertEquals(1, m.match("she"));
+        assertEquals(0, m.match("ushers"));
+        assertEquals(2, m.match("workshop"));
+    }
+
+    @Test
+    void patternInsideAnotherPatternIsFound() {
+        AhoCorasickMatcher m = new AhoCorasickMatcher(List.of("minecraft launcher", "craft"));
+        assertEquals(1, m.match("minecraft"));
+        assertEquals(0, m.match("minecraft launcher"));
+    }
+
+    @Test
+    void duplicateAndEmptyPatternsKeepTheirRank() {
+        AhoCorasickMatcher m = new AhoCorasickMatcher(Arrays.asList("", null, "zoom", "zoom"));
+        assertEquals(2, m.match("zoom meeting"));
+    }
+
+    @Test
+    void agreesWithNaiveScan() {
+        List<String> patterns = List.of("ab", "bab", "abc", "c", "bca", "aaa");
+        AhoCorasickMatcher m = new AhoCorasickMatcher(patterns);
+        String alphabet = "abc";
+        Random random = new Random(7);
+        for (int n = 0; n < 2000; n++) {
+            StringBuilder text = new StringBuilder();
+            int len = random.nextInt(12);
+            for (int i = 0; i < len; i++) text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            int expected = -1;
+            for (int i = 0; i < patterns.size(); i++) {
+                if (text.toString().contains(patterns.get(i))) {
+                    expected = i;
+                    break;
+                }
+            }
+            assertEquals(expected, m.match(text.toString()), text.toString());
+        }
+    }
+
+}
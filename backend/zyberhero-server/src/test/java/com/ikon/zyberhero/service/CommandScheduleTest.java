@@ -0,0 +1,110 @@
+package com.ikon.zyberhero.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class CommandScheduleTest {
+
+    private static final int DAY = 24 * 60;
+    private static final int MON = 0, TUE = 1, FRI = 4, SAT = 5, SUN = 6;
+
+    private static int at(int day, int hour, int minute) {
+        return day * DAY + hour * 60 + minute;
+    }
+
+    @Test
+    void blocksInsideWindowOnListedDays() {
+        CommandSchedule s = CommandSchedule.parse("MON-FRI 08:00-15:00");
+        assertFalse(s.isBlockedAt(at(MON, 7, 59)));
+        assertTrue(s.isBlockedAt(at(MON, 8, 0)));
+        assertTrue(s.isBlockedAt(at(FRI, 14, 59)));
+        // the end minute is already allowed
+        assertFalse(s.isBlockedAt(at(FRI, 15, 0)));
+        assertFalse(s.isBlockedAt(at(SAT, 10, 0)));
+    }
+
+    @Test
+    void windowEndingBeforeItsStartRunsPastMidnight() {
+        CommandSchedule s = CommandSchedule.parse("SAT,SUN 22:00-07:00");
+        assertTrue(s.isBlockedAt(at(SAT, 23, 0)));
+        assertTrue(s.isBlockedAt(at(SUN, 6, 59)));
+        assertFalse(s.isBlockedAt(at(SUN, 7, 0)));
+        // Sunday's window wraps into Monday morning of the next week
+        assertTrue(s.isBlockedAt(at(MON, 3, 0)));
+        assertFalse(s.isBlockedAt(at(MON, 7, 0)));
+    }
+
+    @Test
+    void daysWithoutTimesBlockWholeDay() {
+        CommandSchedule s = CommandSchedule.parse("weekends");
+        assertTrue(s.isBlockedAt(at(SAT, 0, 0)));
+        assertTrue(s.isBlockedAt(at(SUN, 23, 59)));
+        assertFalse(s.isBlockedAt(at(MON, 0, 0)));
+        assertEquals(DAY * 5 - at(FRI, 12, 0), s.minutesUntilNextTransition(at(FRI, 12, 0)));
+    }
+
+    @Test
+    void dayRangesWrapAroundTheWeek() {
+        CommandSchedule s = CommandSchedule.parse("FRI-MON 20:00-21:00");
+        assertTrue(s.isBlockedAt(at(FRI, 20, 30)));
+        assertTrue(s.isBlockedAt(at(SUN, 20, 30)));
+        assertTrue(s.isBlockedAt(at(MON, 20, 30)));
+        assertFalse(s.isBlockedAt(at(TUE, 20, 30)));
+    }
+
+    @Test
+    void nextTransitionIsTheNearestFlip() {
+        CommandSchedule s = CommandSchedule.parse("MON-FRI 08:00-15:00");
+        assertEquals(60, s.minutesUntilNextTransition(at(MON, 7, 0)));
+        assertEquals(7 * 60, s.minutesUntilNextTransition(at(MON, 8, 0)));
+        // from Friday's close to Monday's open wraps around the end of the week
+        assertEquals(at(MON, 8, 0) + CommandSchedule.MINUTES_PER_WEEK - at(FRI, 15, 0),
+                s.minutesUntilNextTransition(at(FRI, 15, 0)));
+    }
+
+    @Test
+    void alwaysBlockedScheduleNeverFlips() {
+        CommandSchedule s = CommandSchedule.parse("DAILY");
+        assertTrue(s.isBlockedAt(0));
+        assertTrue(s.isBlockedAt(CommandSchedule.MINUTES_PER_WEEK - 1));
+        assertEquals(-1, s.minutesUntilNextTransition(at(TUE, 9, 0)));
+    }
+
+    @Test
+    void overlappingRulesAreMerged() {
+        CommandSchedule s = CommandSchedule.parse("MON 08:00-12:00; MON 11:00-14:00; mon 14:00-15:00");
+        assertTrue(s.isBlockedAt(at(MON, 13, 0)));
+        assertEquals(at(MON, 15, 0) - at(MON, 9, 0), s.minutesUntilNextTransition(at(MON, 9, 0)));
+    }
+
+    @Test
+    void windowsAcrossTheWeekBoundaryAreOneWindow() {
+        CommandSchedule s = CommandSchedule.parse("SUN 20:00-24:00; MON 00:00-06:00");
+        // no flip at Monday 00:00
+        assertEquals(10 * 60, s.minutesUntilNextTransition(at(SUN, 20, 0)));
+        assertEquals(at(SUN, 20, 0) - at(MON, 6, 0), s.minutesUntilNextTransition(at(MON, 6, 0)));
+    }
+
+    @Test
+    void keepsTrimmedText() {
+        assertEquals("MON 08:00-09:00", CommandSchedule.parse("  MON 08:00-09:00 ").text());
+    }
+
+    @Test
+    void rejectsInvalidSchedules() {
+        assertThrows(IllegalArgumentException.class, () -> CommandSchedule.parse(" "));
+        assertThrows(IllegalArgumentException.class, () -> CommandSchedule.parse(";"));
+        assertThrows(IllegalArgumentException.class, () -> CommandSchedule.parse("MON 08:00"));
+        assertThrows(IllegalArgumentException.class, () -> CommandSchedule.parse("MON 8-9"));
+        assertThrows(IllegalArgumentException.class, () -> CommandSchedule.parse("MON 25:00-26:00"));
+        assertThrows(IllegalArgumentException.class, () -> CommandSchedule.parse("MON 24:00-01:00"));
+        assertThrows(IllegalArgumentException.class, () -> CommandSchedule.parse("FUNDAY 08:00-09:00"));
+        assertThrows(IllegalArgumentException.class, () -> CommandSchedule.parse("MON-TUE-WED"));
+        assertThrows(IllegalArgumentException.class, () -> CommandSchedule.parse("MON 08:00-09:00 extra"));
+    }
+
+}
@@ -0,0 +1,167 @@
+package com.ikon.zyberhero.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.ikon.zyberhero.entity.SafeZone;
+import com.ikon.zyberhero.repository.SafeZoneRepository;
+
+class GeofenceEngineTest {
+
+    private static final long CHILD = 7L;
+    private static final long DEVICE = 10L;
+    private static final double LAT = 12.9716;
+    private static final double LON = 77.5946;
+    // about 1.1 km north of the zone centre
+    private static final double FAR_LAT = LAT + 0.01;
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 5, 6, 9, 0);
+
+    private SafeZoneRepository safeZoneRepository;
+    private GeofenceEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        safeZoneRepository = mock(SafeZoneRepository.class);
+        DeviceResolver deviceResolver = mock(DeviceResolver.class);
+        when(deviceResolver.childIdOf(anyLong())).thenReturn(Optional.of(CHILD));
+        when(safeZoneRepository.findAll()).thenReturn(List.of(zone(1L, "School", LAT, LON, 200, null)));
+        engine = new GeofenceEngine(safeZoneRepository, deviceResolver, true, 0.01, 500);
+        engine.load();
+    }
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    void firstFixOnlySeedsState() {
+        assertTrue(fix(LAT, LON, 0).isEmpty());
+        assertTrue(fix(LAT, LON, 1).isEmpty());
+    }
+
+    @Test
+    void reportsEnterAndExitOnce() {
+        fix(FAR_LAT, LON, 0);
+
+        List<GeofenceEngine.Transition> entered = fix(LAT, LON, 1);
+        assertEquals(1, entered.size());
+        assertTrue(entered.get(0).entered());
+        assertEquals(1L, (long) entered.get(0).zoneId());
+        assertEquals("School", entered.get(0).zoneName());
+        assertTrue(fix(LAT + 0.0005, LON, 2).isEmpty());
+
+        List<GeofenceEngine.Transition> exited = fix(FAR_LAT, LON, 3);
+        assertEquals(1, exited.size());
+        assertFalse(exited.get(0).entered());
+        assertTrue(fix(FAR_LAT, LON, 4).isEmpty());
+    }
+
+    @Test
+    void deviceZoneOnlyAppliesToThatDevice() {
+        engine.zoneSaved(zone(2L, "Other device", FAR_LAT, LON, 200, 99L));
+        fix(LAT, LON, 0);
+        assertTrue(fix(FAR_LAT, LON, 1).stream().noneMatch(t -> t.entered()));
+
+        engine.evaluate(99L, LAT, LON, 5.0, T0);
+        List<GeofenceEngine.Transition> other = engine.evaluate(99L, FAR_LAT, LON, 5.0, T0.plusMinutes(1));
+        assertTrue(other.stream().anyMatch(t -> t.entered() && t.zoneId() == 2L));
+    }
+
+    @Test
+    void olderFixesDoNotMoveStateBack() {
+        fix(FAR_LAT, LON, 0);
+        assertEquals(1, fix(LAT, LON, 2).size());
+        // a late upload from before the entry
+        assertTrue(fix(FAR_LAT, LON, 1).isEmpty());
+        assertTrue(fix(LAT, LON, 3).isEmpty());
+    }
+
+    @Test
+    void inaccurateFixesAreIgnored() {
+        fix(FAR_LAT, LON, 0);
+        assertTrue(engine.evaluate(DEVICE, LAT, LON, 1000.0, T0.plusMinutes(1)).isEmpty());
+        assertEquals(1, fix(LAT, LON, 2).size());
+    }
+
+    @Test
+    void rolledBackFixLeavesStateUnchanged() {
+        fix(FAR_LAT, LON, 0);
+        inTransaction(false, () -> assertEquals(1, fix(LAT, LON, 1).size()));
+        // the crossing is reported again by the next fix
+        assertEquals(1, fix(LAT, LON, 2).size());
+    }
+
+    @Test
+    void fixesOfOneTransactionChainAndApplyOnCommit() {
+        fix(FAR_LAT, LON, 0);
+        inTransaction(true, () -> {
+            assertEquals(1, fix(LAT, LON, 1).size());
+            assertEquals(1, fix(FAR_LAT, LON, 2).size());
+            assertEquals(1, fix(LAT, LON, 3).size());
+        });
+        assertTrue(fix(LAT, LON, 4).isEmpty());
+    }
+
+    @Test
+    void deletedZoneIsForgottenWithoutExit() {
+        fix(LAT, LON, 0);
+        engine.zoneDeleted(zone(1L, "School", LAT, LON, 200, null));
+        assertTrue(fix(FAR_LAT, LON, 1).isEmpty());
+        assertEquals(0, engine.zoneCount());
+    }
+
+    @Test
+    void largeZonesAreCheckedWithoutTheGrid() {
+        // 50 km radius spans far more cells than a zone is indexed in
+        engine.zoneSaved(zone(3L, "City", LAT + 1, LON, 50_000, null));
+        fix(LAT, LON, 0);
+        List<GeofenceEngine.Transition> entered = fix(LAT + 0.8, LON, 1);
+        assertTrue(entered.stream().anyMatch(t -> t.entered() && t.zoneId() == 3L));
+    }
+
+    private List<GeofenceEngine.Transition> fix(double lat, double lon, int minute) {
+        return engine.evaluate(DEVICE, lat, lon, 10.0, T0.plusMinutes(minute));
+    }
+
+    private static void inTransaction(boolean commit, Runnable body) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            body.run();
+            int status = commit ? TransactionSynchronization.STATUS_COMMITTED : TransactionSynchronization.STATUS_ROLLED_BACK;
+            for (TransactionSynchronization s : TransactionSynchronizationManager.getSynchronizations()) {
+                if (commit) s.afterCommit();
+                s.afterCompletion(status);
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static SafeZone zone(Long id, String name, double lat, double lon, int radius, Long deviceId) {
+        SafeZone z = new SafeZone();
+        z.setId(id);
+        z.setChildId(CHILD);
+        z.setName(name);
+        z.setLatitude(lat);
+        z.setLongitude(lon);
+        z.setRadius(radius);
+        z.setDeviceId(deviceId);
+        return z;
+    }
+
+}
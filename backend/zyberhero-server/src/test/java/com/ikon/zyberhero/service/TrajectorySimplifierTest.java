@@ -0,0 +1,103 @@
+package com.ikon.zyberhero.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.ikon.zyberhero.entity.Location;
+
+class TrajectorySimplifierTest {
+
+    private static final double LAT = 12.9716;
+    private static final double LON = 77.5946;
+    // one metre in degrees of latitude
+    private static final double METER = 1 / 111_320d;
+
+    @Test
+    void shortTracksAndNoLimitsAreReturnedAsIs() {
+        List<Location> two = List.of(fix(0, 0, 0), fix(1, 100, 0));
+        assertSame(two, TrajectorySimplifier.simplify(two, 10, 0));
+        List<Location> track = straightLine(10);
+        assertSame(track, TrajectorySimplifier.simplify(track, 0, 0));
+    }
+
+    @Test
+    void straightLineKeepsOnlyEndpoints() {
+        List<Location> track = straightLine(50);
+        List<Location> out = TrajectorySimplifier.simplify(track, 1, 0);
+        assertEquals(List.of(track.get(0), track.get(49)), out);
+    }
+
+    @Test
+    void keepsCornerBeyondTolerance() {
+        // 100 m north, then 100 m east
+        List<Location> track = new ArrayList<>();
+        for (int i = 0; i <= 10; i++) track.add(fix(i, i * 10, 0));
+        for (int i = 1; i <= 10; i++) track.add(fix(10 + i, 100, i * 10));
+        List<Location> out = TrajectorySimplifier.simplify(track, 5, 0);
+        assertEquals(List.of(track.get(0), track.get(10), track.get(20)), out);
+    }
+
+    @Test
+    void dropsJitterWithinTolerance() {
+        List<Location> track = new ArrayList<>();
+        for (int i = 0; i < 30; i++) track.add(fix(i, i * 10, i % 2 == 0 ? 2 : -2));
+        List<Location> out = TrajectorySimplifier.simplify(track, 5, 0);
+        assertEquals(2, out.size());
+        // with a tighter tolerance the wiggles stay
+        assertTrue(TrajectorySimplifier.simplify(track, 1, 0).size() > 20);
+    }
+
+    @Test
+    void backAndForthIsKept() {
+        // out 100 m and back along the same line: the turning point is off the start-end segment
+        List<Location> track = List.of(fix(0, 0, 0), fix(1, 50, 0), fix(2, 100, 0), fix(3, 50, 0), fix(4, 1, 0));
+        List<Location> out = TrajectorySimplifier.simplify(track, 5, 0);
+        assertEquals(List.of(track.get(0), track.get(2), track.get(4)), out);
+    }
+
+    @Test
+    void maxPointsKeepsTheLargestDeviationsFirst() {
+        List<Location> track = new ArrayList<>();
+        track.add(fix(0, 0, 0));
+        track.add(fix(1, 10, 3));
+        track.add(fix(2, 20, 40));
+        track.add(fix(3, 30, 8));
+        track.add(fix(4, 40, 0));
+        List<Location> out = TrajectorySimplifier.simplify(track, 0, 3);
+        assertEquals(List.of(track.get(0), track.get(2), track.get(4)), out);
+        // below two, the endpoints are still kept
+        assertEquals(2, TrajectorySimplifier.simplify(track, 0, 1).size());
+    }
+
+    @Test
+    void resultKeepsTrackOrder() {
+        List<Location> track = new ArrayList<>();
+        for (int i = 0; i < 200; i++) track.add(fix(i, i * 5, 30 * Math.sin(i / 10.0)));
+        List<Location> out = TrajectorySimplifier.simplify(track, 3, 40);
+        assertTrue(out.size() <= 40);
+        for (int i = 1; i < out.size(); i++) assertTrue(out.get(i - 1).getId() < out.get(i).getId());
+        assertEquals(track.get(0), out.get(0));
+        assertEquals(track.get(199), out.get(out.size() - 1));
+    }
+
+    private static List<Location> straightLine(int n) {
+        List<Location> track = new ArrayList<>();
+        for (int i = 0; i < n; i++) track.add(fix(i, i * 10, 0));
+        return track;
+    }
+
+    // northMeters / eastMeters from a fixed origin, one fix per second
+    private static Location fix(long id, double northMeters, double eastMeters) {
+        double lat = LAT + northMeters * METER;
+        double lon = LON + eastMeters * METER / Math.cos(Math.toRadians(LAT));
+        return new Location(id, LocalDateTime.of(2024, 5, 6, 9, 0).plusSeconds(id), lat, lon, 5.0, null, 1L);
+    }
+
+}